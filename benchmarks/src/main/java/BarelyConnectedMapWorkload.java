@@ -0,0 +1,24 @@
+import roadmapanalyzer.benchmarks.Workload;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Finds the barely connected map of the network on a fresh road table, serially with the "serial" variant and with the
+ * parallel search with the "parallel" variant.
+ */
+public class BarelyConnectedMapWorkload implements Workload {
+    private RoadColumns columns;
+    private boolean parallel;
+
+    @Override
+    public void setUp(Path input, String variant) throws IOException {
+        columns = new RoadColumns(MappedRoadInput.read(input.toString()).getRoads());
+        parallel = variant.equals("parallel");
+    }
+
+    @Override
+    public long run() {
+        return new BarelyConnectedMapCalculate(columns.newTable(), parallel).getBarelyConnectedMapTotalDistance();
+    }
+}
@@ -0,0 +1,34 @@
+import roadmapanalyzer.benchmarks.Workload;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Finds the fastest road between the starting and destination cities of the network with the delta-stepping search.
+ * The variant is "threads:width", the size of the fork-join pool and the bucket width, where a width of 0 picks the
+ * default width of the roads.
+ */
+public class DeltaSteppingWorkload implements Workload {
+    private DeltaSteppingSearch search;
+    private String startingCity;
+    private String destinationCity;
+    private final DiscardingResultSink sink = new DiscardingResultSink();
+
+    @Override
+    public void setUp(Path input, String variant) throws IOException {
+        MappedRoadInput parsed = MappedRoadInput.read(input.toString());
+        RoadTable roads = parsed.getRoads().freeze();
+        String[] settings = variant.split(":");
+        int threads = Integer.parseInt(settings[0]);
+        int delta = Integer.parseInt(settings[1]);
+        search = new DeltaSteppingSearch(roads, new ForkJoinPool(threads), delta == 0 ? DeltaSteppingSearch.defaultDelta(roads) : delta);
+        startingCity = parsed.getStartingCity();
+        destinationCity = parsed.getDestinationCity();
+    }
+
+    @Override
+    public long run() throws IOException {
+        return new DeltaSteppingRouteCalculate(search, startingCity, destinationCity, "Fastest Route", sink).getTotalFastestRoadDistance();
+    }
+}
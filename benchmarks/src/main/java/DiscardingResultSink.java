@@ -0,0 +1,38 @@
+/**
+ * The DiscardingResultSink class is a ResultSink that ignores everything reported to it, so a calculation can be
+ * measured without the cost of writing its output.
+ */
+public class DiscardingResultSink implements ResultSink {
+    @Override
+    public void beginRoute(String title, int totalDistance) {
+    }
+
+    @Override
+    public void beginRoadList(String title) {
+    }
+
+    @Override
+    public void road(CityDictionary cities, int city1, int city2, int distance, int ID) {
+    }
+
+    @Override
+    public void analysis(int barelyConnectedMapTotalDistance, int originalTotalDistance, int totalFastestRoadDistance,
+                         int totalFastestRoadDistanceOnBarelyConnectedMap) {
+    }
+
+    @Override
+    public void message(String text) {
+    }
+
+    @Override
+    public void endAnswer() {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
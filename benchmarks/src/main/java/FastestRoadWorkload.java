@@ -0,0 +1,39 @@
+import roadmapanalyzer.benchmarks.Workload;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Finds the fastest road between the starting and destination cities of the network. The "cold" variant searches a
+ * fresh road table every time, the "cached" variant reuses one table and its adjacency index, and the "offheap"
+ * variant searches a snapshot of the network mapped off the heap with off-heap working arrays.
+ */
+public class FastestRoadWorkload implements Workload {
+    private RoadColumns columns;
+    private RoadTable roads;
+    private boolean cold;
+    private boolean offHeap;
+    private String startingCity;
+    private String destinationCity;
+    private final DiscardingResultSink sink = new DiscardingResultSink();
+
+    @Override
+    public void setUp(Path input, String variant) throws IOException {
+        offHeap = variant.equals("offheap");
+        RoadInput parsed = offHeap ? GraphSnapshot.map(InputParsingWorkload.snapshotOf(input).toString()) : MappedRoadInput.read(input.toString());
+        roads = parsed.getRoads();
+        cold = variant.equals("cold");
+        columns = cold ? new RoadColumns(roads) : null;
+        startingCity = parsed.getStartingCity();
+        destinationCity = parsed.getDestinationCity();
+    }
+
+    @Override
+    public long run() throws IOException {
+        if (offHeap) {
+            return new OffHeapRouteCalculate(roads, startingCity, destinationCity, "Fastest Route", sink).getTotalFastestRoadDistance();
+        }
+        RoadTable table = cold ? columns.newTable() : roads;
+        return new FastestRoadCalculate(table, startingCity, destinationCity, "Fastest Route", sink).getTotalFastestRoadDistance();
+    }
+}
@@ -0,0 +1,49 @@
+import roadmapanalyzer.benchmarks.Workload;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads the network into a road table, from the text input file with the "text" variant, by loading a snapshot
+ * compiled from it with the "snapshot" variant, or by mapping that snapshot off the heap with the "mapped" variant.
+ * The snapshot is compiled once and kept next to the input file.
+ */
+public class InputParsingWorkload implements Workload {
+    private String path;
+    private String variant;
+
+    @Override
+    public void setUp(Path input, String variant) throws IOException {
+        this.variant = variant;
+        path = variant.equals("text") ? input.toString() : snapshotOf(input).toString();
+    }
+
+    @Override
+    public long run() throws IOException {
+        RoadInput input;
+        if (variant.equals("snapshot")) {
+            input = GraphSnapshot.load(path);
+        } else if (variant.equals("mapped")) {
+            input = GraphSnapshot.map(path);
+        } else {
+            input = MappedRoadInput.read(path);
+        }
+        return input.getRoads().size();
+    }
+
+    /**
+     * Returns the snapshot of the given network, compiling it next to the network file first if it does not exist yet.
+     *
+     * @param input the network file
+     * @return the path of the snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    static synchronized Path snapshotOf(Path input) throws IOException {
+        Path snapshotPath = input.resolveSibling(input.getFileName() + ".snapshot");
+        if (!Files.exists(snapshotPath)) {
+            GraphSnapshot.compile(input.toString(), snapshotPath.toString());
+        }
+        return snapshotPath;
+    }
+}
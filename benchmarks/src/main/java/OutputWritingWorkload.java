@@ -0,0 +1,51 @@
+import roadmapanalyzer.benchmarks.DiscardingChannel;
+import roadmapanalyzer.benchmarks.Workload;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Writes the barely connected map of the network and the analysis through a new result sink of the format given as the
+ * variant, "text", "jsonl" or "bin", and returns the number of bytes written.
+ */
+public class OutputWritingWorkload implements Workload {
+    private RoadTable barelyConnectedMap;
+    private int barelyConnectedMapTotalDistance;
+    private int originalTotalDistance;
+    private String format;
+
+    @Override
+    public void setUp(Path input, String variant) throws IOException {
+        RoadTable roads = MappedRoadInput.read(input.toString()).getRoads();
+        BarelyConnectedMapCalculate barelyConnectedMapCalculate = new BarelyConnectedMapCalculate(roads, false);
+        barelyConnectedMap = barelyConnectedMapCalculate.getBarelyConnectedMap();
+        barelyConnectedMapTotalDistance = barelyConnectedMapCalculate.getBarelyConnectedMapTotalDistance();
+        originalTotalDistance = MapAnalyzer.totalDistance(roads);
+        format = variant;
+    }
+
+    @Override
+    public long run() throws IOException {
+        DiscardingChannel channel = new DiscardingChannel();
+        try (ResultSink sink = open(channel)) {
+            sink.beginRoadList("Roads of Barely Connected Map");
+            for (int road = 0; road < barelyConnectedMap.size(); road++) {
+                sink.road(barelyConnectedMap, road);
+            }
+            sink.analysis(barelyConnectedMapTotalDistance, originalTotalDistance, 1, 1);
+        }
+        return channel.getBytes();
+    }
+
+    private ResultSink open(DiscardingChannel channel) throws IOException {
+        switch (format) {
+            case "jsonl":
+                return new JsonLinesResultSink(channel);
+            case "bin":
+                return new BinaryResultSink(channel);
+            default:
+                return new TextResultSink(channel, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * The RoadColumns class keeps the columns of a parsed road table, so a workload can build a fresh table over them
+ * whenever the indexes a table caches must not be reused.
+ */
+public class RoadColumns {
+    private final CityDictionary cities;
+    private final int[] city1;
+    private final int[] city2;
+    private final int[] distance;
+    private final int[] ID;
+
+    /**
+     * Copies the columns of the given road table.
+     *
+     * @param roads the road table
+     */
+    public RoadColumns(RoadTable roads) {
+        cities = roads.getCities();
+        city1 = new int[roads.size()];
+        city2 = new int[roads.size()];
+        distance = new int[roads.size()];
+        ID = new int[roads.size()];
+        for (int road = 0; road < roads.size(); road++) {
+            city1[road] = roads.getCity1(road);
+            city2[road] = roads.getCity2(road);
+            distance[road] = roads.getDistance(road);
+            ID[road] = roads.getID(road);
+        }
+    }
+
+    /**
+     * Returns a new road table over the columns, with no cached indexes. The columns are shared, not copied.
+     *
+     * @return the road table
+     */
+    public RoadTable newTable() {
+        return new RoadTable(cities, city1, city2, distance, ID);
+    }
+}
@@ -0,0 +1,184 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+/**
+ * The RouteCrossCheck class checks that AltRouteCalculate and DynamicShortestPathTree report the same fastest road as
+ * FastestRoadCalculate, road for road, on small seeded maps full of ties: distances from 0 to 3, parallel roads between
+ * the same cities and several components. AltRouteCalculate is compared on every pair of cities of every map.
+ * DynamicShortestPathTree is compared on the route to every city after each of a series of random road changes, on
+ * maps with and without roads of 0 KM. The process exits with status 1 if anything differs.
+ */
+public class RouteCrossCheck {
+    private static final int MAPS = 300;
+    private static final long SEED = 42;
+    // Road changes applied to every map of the dynamic check
+    private static final int CHANGES = 40;
+
+    /**
+     * A sink that records what is reported to it as text lines.
+     */
+    private static final class RecordingResultSink extends DiscardingResultSink {
+        final List<String> lines = new ArrayList<>();
+
+        @Override
+        public void beginRoute(String title, int totalDistance) {
+            lines.add(title + " (" + totalDistance + " KM)");
+        }
+
+        @Override
+        public void road(CityDictionary cities, int city1, int city2, int distance, int ID) {
+            lines.add(cities.getName(city1) + "\t" + cities.getName(city2) + "\t" + distance + "\t" + ID);
+        }
+    }
+
+    private interface Engine {
+        void run(String startingCity, String destinationCity, RecordingResultSink sink) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int mismatches = 0;
+        long pairs = 0;
+
+        // Two parallel roads of the same distance from the starting city, listed in either direction
+        RoadTable parallel = new RoadTable(new CityDictionary());
+        add(parallel, "C13", "C16", 3, 22);
+        add(parallel, "C16", "C13", 3, 24);
+        add(parallel, "C16", "C20", 1, 23);
+        mismatches += check(parallel, 2);
+        pairs += (long) parallel.getCities().size() * parallel.getCities().size();
+
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int map = 0; map < MAPS; map++) {
+            RoadTable roads = randomMap(random, 0);
+            mismatches += check(roads, 1 + random.nextInt(4));
+            pairs += (long) roads.getCities().size() * roads.getCities().size();
+        }
+        for (int map = 0; map < MAPS; map++) {
+            // Every other map has positive distances only, so both the repairs and the full searches are checked
+            boolean zeroDistances = map % 2 == 0;
+            RoadTable roads = randomMap(random, zeroDistances ? 0 : 1);
+            mismatches += checkChanges(roads, random, zeroDistances ? 0 : 1);
+            pairs += (long) (CHANGES + 1) * roads.getCities().size();
+        }
+        System.out.println(pairs + " pairs checked, " + mismatches + " mismatches");
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    // A map of up to 40 cities with roads from the shortest distance to 3 KM, many of them parallel to another road
+    private static RoadTable randomMap(SplittableRandom random, int shortest) {
+        int cityCount = 2 + random.nextInt(39);
+        int roadCount = cityCount + random.nextInt(3 * cityCount);
+        RoadTable roads = new RoadTable(new CityDictionary());
+        int ID = 1;
+        for (int i = 0; i < roadCount; i++) {
+            int city1 = random.nextInt(cityCount);
+            int city2 = random.nextInt(cityCount);
+            if (city1 == city2) {
+                continue;
+            }
+            int distance = shortest + random.nextInt(4 - shortest);
+            add(roads, "C" + city1, "C" + city2, distance, ID++);
+            if (random.nextInt(4) == 0) {
+                // A parallel road, listed in either direction
+                boolean reversed = random.nextBoolean();
+                add(roads, "C" + (reversed ? city2 : city1), "C" + (reversed ? city1 : city2),
+                        random.nextBoolean() ? distance : shortest + random.nextInt(4 - shortest), ID++);
+            }
+        }
+        return roads;
+    }
+
+    private static void add(RoadTable roads, String city1, String city2, int distance, int ID) {
+        CityDictionary cities = roads.getCities();
+        roads.add(cities.getOrAdd(city1), cities.getOrAdd(city2), distance, ID);
+    }
+
+    // Compares the engines on every pair of cities, returning the number of pairs that differ
+    private static int check(RoadTable roads, int landmarkCount) throws IOException {
+        roads.freeze();
+        LandmarkIndex landmarks = new LandmarkIndex(roads, landmarkCount);
+        CityDictionary cities = roads.getCities();
+        int mismatches = 0;
+        for (int start = 0; start < cities.size(); start++) {
+            for (int destination = 0; destination < cities.size(); destination++) {
+                String startingCity = cities.getName(start);
+                String destinationCity = cities.getName(destination);
+                List<String> expected = answer((s, d, sink) -> new FastestRoadCalculate(roads, s, d, "Fastest Route", sink),
+                        startingCity, destinationCity);
+                List<String> actual = answer((s, d, sink) -> new AltRouteCalculate(landmarks, s, d, "Fastest Route", sink),
+                        startingCity, destinationCity);
+                if (!expected.equals(actual)) {
+                    mismatches++;
+                    System.out.println("Mismatch from " + startingCity + " to " + destinationCity + ":");
+                    System.out.println("  FastestRoadCalculate: " + expected);
+                    System.out.println("  AltRouteCalculate:    " + actual);
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    // Applies random changes to a dynamic copy of the map and compares the route to every city after each of them with
+    // that of a plain search over the changed roads, returning the number of routes that differ
+    private static int checkChanges(RoadTable roads, SplittableRandom random, int shortest) throws IOException {
+        roads.freeze();
+        CityDictionary cities = roads.getCities();
+        if (cities.size() == 0) {
+            return 0;
+        }
+        String startingCity = cities.getName(0);
+        DynamicRoadMap map = new DynamicRoadMap(roads);
+        DynamicShortestPathTree tree = new DynamicShortestPathTree(map, startingCity);
+        int nextID = 1000;
+        int mismatches = 0;
+        for (int change = 0; change <= CHANGES; change++) {
+            if (change > 0) {
+                int cityCount = cities.size();
+                int slot = random.nextInt(map.getSlotCount());
+                int kind = random.nextInt(3);
+                if (kind == 0 || !map.isAlive(slot)) {
+                    map.addRoad("C" + random.nextInt(cityCount + 1), "C" + random.nextInt(cityCount + 1),
+                            shortest + random.nextInt(4 - shortest), nextID++);
+                } else if (kind == 1) {
+                    map.removeRoad(map.getID(slot));
+                } else {
+                    map.changeDistance(map.getID(slot), shortest + random.nextInt(4 - shortest));
+                }
+            }
+            RoadTable changed = map.getRoads().freeze();
+            for (int destination = 0; destination < cities.size(); destination++) {
+                String destinationCity = cities.getName(destination);
+                List<String> expected = answer((s, d, sink) -> new FastestRoadCalculate(changed, s, d, "Fastest Route", sink),
+                        startingCity, destinationCity);
+                List<String> actual = answer((s, d, sink) -> tree.writeFastestRoad(d, "Fastest Route", sink),
+                        startingCity, destinationCity);
+                // The dynamic tree names unreachable cities in its own words
+                if (expected.get(0).startsWith("ERROR") && actual.get(0).startsWith("ERROR")) {
+                    continue;
+                }
+                if (!expected.equals(actual)) {
+                    mismatches++;
+                    System.out.println("Mismatch from " + startingCity + " to " + destinationCity + " after " + change + " changes:");
+                    System.out.println("  FastestRoadCalculate:   " + expected);
+                    System.out.println("  DynamicShortestPathTree: " + actual);
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    private static List<String> answer(Engine engine, String startingCity, String destinationCity) throws IOException {
+        RecordingResultSink sink = new RecordingResultSink();
+        try {
+            engine.run(startingCity, destinationCity, sink);
+        } catch (NoSuchElementException e) {
+            sink.lines.add("ERROR: " + e.getMessage());
+        }
+        return sink.lines;
+    }
+}
@@ -0,0 +1,28 @@
+package roadmapanalyzer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.io.IOException;
+
+/**
+ * Measures BarelyConnectedMapCalculate on a fresh road table, including the sort of the roads, with Kruskal's algorithm
+ * or the parallel Boruvka search.
+ */
+public class BarelyConnectedMapBenchmark extends RoadNetworkBenchmark {
+    @Param({"serial", "parallel"})
+    public String search;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() throws IOException {
+        workload = workload("BarelyConnectedMapWorkload", search);
+    }
+
+    @Benchmark
+    public long barelyConnectedMap() throws IOException {
+        return workload.run();
+    }
+}
@@ -0,0 +1,28 @@
+package roadmapanalyzer.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The BenchmarkMain class runs the benchmarks with the usual JMH command line. Unless other profilers are asked for,
+ * the GC profiler is added, so every result comes with its allocation rate. The speedups of the benchmarks that run on
+ * several thread counts are printed at the end.
+ */
+public final class BenchmarkMain {
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()
+                || !commandLine.getProfilers().isEmpty()) {
+            Main.main(args);
+            return;
+        }
+        SpeedupReport.print(new Runner(new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class).build()).run(), System.out);
+    }
+}
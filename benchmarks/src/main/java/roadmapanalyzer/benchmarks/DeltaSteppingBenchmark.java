@@ -0,0 +1,33 @@
+package roadmapanalyzer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.io.IOException;
+
+/**
+ * Measures DeltaSteppingRouteCalculate between the starting and destination cities of the network on a fork-join pool
+ * of the given size. The road table and its indexes are reused, so the result compares with the cached variant of
+ * {@link FastestRoadBenchmark}; BenchmarkMain reports the speedup of every pool size over a pool of one thread. A
+ * bucket width of 0 picks the default width of the roads.
+ */
+public class DeltaSteppingBenchmark extends RoadNetworkBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param("0")
+    public int delta;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() throws IOException {
+        workload = workload("DeltaSteppingWorkload", threads + ":" + delta);
+    }
+
+    @Benchmark
+    public long fastestRoad() throws IOException {
+        return workload.run();
+    }
+}
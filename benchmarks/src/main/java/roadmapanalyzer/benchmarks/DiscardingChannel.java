@@ -0,0 +1,40 @@
+package roadmapanalyzer.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * The DiscardingChannel class is a WritableByteChannel that drops everything written to it and only counts the bytes,
+ * so writing output can be measured without the cost of a file system.
+ */
+public final class DiscardingChannel implements WritableByteChannel {
+    private long bytes = 0;
+    private boolean open = true;
+
+    @Override
+    public int write(ByteBuffer source) {
+        int count = source.remaining();
+        source.position(source.limit());
+        bytes += count;
+        return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     *
+     * @return the number of bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+}
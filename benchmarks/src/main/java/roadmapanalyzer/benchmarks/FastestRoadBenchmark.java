@@ -0,0 +1,30 @@
+package roadmapanalyzer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.io.IOException;
+
+/**
+ * Measures FastestRoadCalculate between the starting and destination cities of the network. With cold indexes every
+ * search starts from a fresh road table and so includes building the adjacency index, as a run of MapAnalyzer does;
+ * with cached indexes the table is reused and only the search itself is measured. The offheap variant measures
+ * OffHeapRouteCalculate on a snapshot of the network mapped off the heap.
+ */
+public class FastestRoadBenchmark extends RoadNetworkBenchmark {
+    @Param({"cold", "cached", "offheap"})
+    public String indexes;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() throws IOException {
+        workload = workload("FastestRoadWorkload", indexes);
+    }
+
+    @Benchmark
+    public long fastestRoad() throws IOException {
+        return workload.run();
+    }
+}
@@ -0,0 +1,28 @@
+package roadmapanalyzer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.io.IOException;
+
+/**
+ * Measures reading the network into a road table, either by parsing the text input file, by loading a snapshot
+ * compiled from it or by mapping that snapshot off the heap.
+ */
+public class InputParsingBenchmark extends RoadNetworkBenchmark {
+    @Param({"text", "snapshot", "mapped"})
+    public String format;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() throws IOException {
+        workload = workload("InputParsingWorkload", format);
+    }
+
+    @Benchmark
+    public long parse() throws IOException {
+        return workload.run();
+    }
+}
@@ -0,0 +1,28 @@
+package roadmapanalyzer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.io.IOException;
+
+/**
+ * Measures writing the roads of the network's barely connected map and the analysis through a result sink of the given
+ * format into a channel that discards the bytes.
+ */
+public class OutputWritingBenchmark extends RoadNetworkBenchmark {
+    @Param({"text", "jsonl", "bin"})
+    public String format;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() throws IOException {
+        workload = workload("OutputWritingWorkload", format);
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        return workload.run();
+    }
+}
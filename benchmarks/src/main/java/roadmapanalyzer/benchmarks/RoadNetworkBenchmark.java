@@ -0,0 +1,62 @@
+package roadmapanalyzer.benchmarks;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RoadNetworkBenchmark class holds the parameters shared by all benchmarks: the topology, size and seed of the
+ * generated network. Every benchmark is measured both as throughput and as sampled time, which gives the latency
+ * percentiles. Networks of up to 1M roads are measured by default; larger ones, up to 10M, can be selected with
+ * {@code -p roads=10000000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class RoadNetworkBenchmark {
+    @Param({"grid", "geometric", "scalefree"})
+    public String topology;
+
+    @Param({"1000", "100000", "1000000"})
+    public int roads;
+
+    @Param("42")
+    public long seed;
+
+    /**
+     * Returns the network file of the current parameters, generating it if needed.
+     *
+     * @return the path of the network file
+     * @throws IOException if the file cannot be written
+     */
+    protected Path network() throws IOException {
+        return RoadNetworkGenerator.cached(topology, roads, seed);
+    }
+
+    /**
+     * Creates and prepares a workload for the current network.
+     *
+     * @param className the name of the workload class
+     * @param variant   the variant of the operation
+     * @return the prepared workload
+     * @throws IOException if the network cannot be read
+     */
+    protected Workload workload(String className, String variant) throws IOException {
+        Workload workload = Workload.create(className);
+        workload.setUp(network(), variant);
+        return workload;
+    }
+}
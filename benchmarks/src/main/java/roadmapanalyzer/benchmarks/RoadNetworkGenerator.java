@@ -0,0 +1,273 @@
+package roadmapanalyzer.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * The RoadNetworkGenerator class writes synthetic road networks in the input format of MapAnalyzer: a first line with
+ * the starting and destination cities, then one tab-separated road per line. The same topology, road count and seed
+ * always give the same file. Every network is connected, road IDs are a shuffled 1..n, and the destination is a city
+ * far away from the starting city.
+ * <ul>
+ * <li>grid: a rectangular grid with roads between horizontal and vertical neighbours, 1 to 100 KM each.</li>
+ * <li>geometric: cities scattered over a square, joined along a space-filling path and to random nearby cities, with
+ * the straight-line distance as the road distance.</li>
+ * <li>scalefree: a Barabasi-Albert network where every new city joins three cities picked by degree, so a few hubs
+ * carry most of the roads, 1 to 100 KM each.</li>
+ * </ul>
+ * Usage: {@code RoadNetworkGenerator <grid|geometric|scalefree> <roads> <seed> <output file>}
+ */
+public final class RoadNetworkGenerator {
+    /**
+     * The shapes of network that can be generated.
+     */
+    public enum Topology {
+        GRID, GEOMETRIC, SCALEFREE;
+
+        /**
+         * Returns the topology with the given name, ignoring case.
+         *
+         * @param name the name of the topology
+         * @return the topology
+         */
+        public static Topology of(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    // Roads every new city of the scale-free network joins
+    private static final int SCALE_FREE_LINKS = 3;
+    // Average number of roads per city of the geometric network is twice this
+    private static final int GEOMETRIC_ROADS_PER_CITY = 3;
+    // Kilometres per side of a cell of the geometric network
+    private static final double GEOMETRIC_CELL_KM = 20.0;
+
+    private final int[] city1;
+    private final int[] city2;
+    private final int[] distance;
+    private int size = 0;
+    private int startingCity = 0;
+    private int destinationCity = 0;
+    private final SplittableRandom random;
+
+    private RoadNetworkGenerator(int roads, long seed) {
+        city1 = new int[roads];
+        city2 = new int[roads];
+        distance = new int[roads];
+        random = new SplittableRandom(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.out.println("Usage: RoadNetworkGenerator <grid|geometric|scalefree> <roads> <seed> <output file>");
+            return;
+        }
+        generate(Topology.of(args[0]), Integer.parseInt(args[1]), Long.parseLong(args[2]), Paths.get(args[3]));
+    }
+
+    /**
+     * Generates a network and writes it to the given file.
+     *
+     * @param topology the shape of the network
+     * @param roads    the number of roads, at least 1
+     * @param seed     the seed of the random choices
+     * @param path     the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void generate(Topology topology, int roads, long seed, Path path) throws IOException {
+        if (roads < 1) {
+            throw new IllegalArgumentException("A network needs at least one road: " + roads);
+        }
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(roads, seed);
+        switch (topology) {
+            case GRID:
+                generator.grid();
+                break;
+            case GEOMETRIC:
+                generator.geometric();
+                break;
+            default:
+                generator.scaleFree();
+                break;
+        }
+        generator.write(path);
+    }
+
+    /**
+     * Returns the file of the given network in the benchmark directory under java.io.tmpdir, generating it first if it
+     * does not exist yet, so large networks are only generated once.
+     *
+     * @param topology the name of the topology
+     * @param roads    the number of roads
+     * @param seed     the seed of the random choices
+     * @return the path of the network file
+     * @throws IOException if the file cannot be written
+     */
+    public static synchronized Path cached(String topology, int roads, long seed) throws IOException {
+        Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "road-map-benchmarks");
+        Path path = directory.resolve(topology.toLowerCase(Locale.ROOT) + "-" + roads + "-" + seed + ".txt");
+        if (!Files.exists(path)) {
+            Files.createDirectories(directory);
+            // Generate next to the final file and move it in place, so an interrupted run leaves no partial network
+            Path partial = Files.createTempFile(directory, "network", ".partial");
+            try {
+                generate(Topology.of(topology), roads, seed, partial);
+                Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+        }
+        return path;
+    }
+
+    private void grid() {
+        int roads = city1.length;
+        int width = Math.max(2, (int) Math.ceil(Math.sqrt(roads / 2.0)));
+        // Rows are filled top to bottom, each city adding its road to the right and its road down, so every prefix of
+        // the roads is connected
+        for (int row = 0; size < roads; row++) {
+            for (int column = 0; column < width && size < roads; column++) {
+                int city = row * width + column;
+                if (column + 1 < width) {
+                    add(city, city + 1, 1 + random.nextInt(100));
+                }
+                if (size < roads) {
+                    add(city, city + width, 1 + random.nextInt(100));
+                }
+            }
+        }
+        destinationCity = farthestCity();
+    }
+
+    private void geometric() {
+        int roads = city1.length;
+        int cities = Math.max(2, Math.min(roads + 1, roads / GEOMETRIC_ROADS_PER_CITY));
+        int side = Math.max(1, (int) Math.sqrt(cities / 2.0));
+        double[] x = new double[cities];
+        double[] y = new double[cities];
+        int[] cellStart = new int[side * side + 1];
+        int[] cell = new int[cities];
+        for (int i = 0; i < cities; i++) {
+            x[i] = random.nextDouble() * side;
+            y[i] = random.nextDouble() * side;
+            cell[i] = cellIndex((int) x[i], (int) y[i], side);
+            cellStart[cell[i] + 1]++;
+        }
+        // Number the cities cell by cell along a snake through the rows, so consecutive cities are close together
+        for (int c = 0; c < side * side; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] next = cellStart.clone();
+        double[] sortedX = new double[cities];
+        double[] sortedY = new double[cities];
+        for (int i = 0; i < cities; i++) {
+            int city = next[cell[i]]++;
+            sortedX[city] = x[i];
+            sortedY[city] = y[i];
+        }
+        x = sortedX;
+        y = sortedY;
+
+        // A path through all cities keeps the network connected
+        for (int city = 0; city + 1 < cities && size < roads; city++) {
+            add(city, city + 1, kilometres(x, y, city, city + 1));
+        }
+        // The other roads join a city to a random city of its own or a neighbouring cell
+        for (int city = 0; size < roads; city = (city + 1) % cities) {
+            int cellX = Math.min(side - 1, Math.max(0, (int) x[city] + random.nextInt(3) - 1));
+            int cellY = Math.min(side - 1, Math.max(0, (int) y[city] + random.nextInt(3) - 1));
+            int c = cellIndex(cellX, cellY, side);
+            int count = cellStart[c + 1] - cellStart[c];
+            int other = count == 0 ? (city + 1) % cities : cellStart[c] + random.nextInt(count);
+            if (other != city) {
+                add(city, other, kilometres(x, y, city, other));
+            }
+        }
+        destinationCity = cities - 1;
+    }
+
+    private void scaleFree() {
+        int roads = city1.length;
+        // Every road appears twice in the endpoint list, so a uniform pick from it picks a city by degree
+        int[] endpoints = new int[2 * roads];
+        int endpointCount = 0;
+        int[] targets = new int[SCALE_FREE_LINKS];
+        int city = 1;
+        for (; size < roads; city++) {
+            int links = Math.min(city, SCALE_FREE_LINKS);
+            int found = 0;
+            for (int attempt = 0; found < links && attempt < 8 * links; attempt++) {
+                int target = endpointCount == 0 ? 0 : endpoints[random.nextInt(endpointCount)];
+                boolean duplicate = false;
+                for (int i = 0; i < found; i++) {
+                    duplicate |= targets[i] == target;
+                }
+                if (!duplicate) {
+                    targets[found++] = target;
+                }
+            }
+            for (int i = 0; i < found && size < roads; i++) {
+                add(city, targets[i], 1 + random.nextInt(100));
+                endpoints[endpointCount++] = city;
+                endpoints[endpointCount++] = targets[i];
+            }
+        }
+        destinationCity = city - 1;
+    }
+
+    private static int cellIndex(int cellX, int cellY, int side) {
+        return cellY * side + (cellY % 2 == 0 ? cellX : side - 1 - cellX);
+    }
+
+    private static int kilometres(double[] x, double[] y, int a, int b) {
+        double dx = x[a] - x[b];
+        double dy = y[a] - y[b];
+        return Math.max(1, (int) Math.round(Math.sqrt(dx * dx + dy * dy) * GEOMETRIC_CELL_KM));
+    }
+
+    private void add(int a, int b, int km) {
+        city1[size] = a;
+        city2[size] = b;
+        distance[size] = km;
+        size++;
+    }
+
+    private int farthestCity() {
+        int farthest = 0;
+        for (int road = 0; road < size; road++) {
+            farthest = Math.max(farthest, Math.max(city1[road], city2[road]));
+        }
+        return farthest;
+    }
+
+    private void write(Path path) throws IOException {
+        // Shuffled IDs, so the (distance, ID) order of the roads does not follow the order they were generated in
+        int[] ID = new int[size];
+        for (int i = 0; i < size; i++) {
+            ID[i] = i + 1;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = ID[i];
+            ID[i] = ID[j];
+            ID[j] = swap;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("City" + startingCity + "\tCity" + destinationCity + "\n");
+            StringBuilder line = new StringBuilder(64);
+            for (int road = 0; road < size; road++) {
+                line.setLength(0);
+                line.append("City").append(city1[road]).append("\tCity").append(city2[road])
+                        .append('\t').append(distance[road]).append('\t').append(ID[road]).append('\n');
+                writer.append(line);
+            }
+        }
+    }
+}
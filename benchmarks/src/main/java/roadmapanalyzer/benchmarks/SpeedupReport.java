@@ -0,0 +1,55 @@
+package roadmapanalyzer.benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The SpeedupReport class prints, for every benchmark with a "threads" parameter, the throughput of every thread count
+ * relative to the throughput with one thread on the same network and settings.
+ */
+public final class SpeedupReport {
+    private SpeedupReport() {
+    }
+
+    /**
+     * Prints the speedups found in the given results, if any.
+     *
+     * @param results the results of a run
+     * @param out     the stream to print to
+     */
+    public static void print(Collection<RunResult> results, PrintStream out) {
+        // Throughput by benchmark and other parameters, then by thread count
+        Map<String, Map<Integer, Double>> throughputs = new TreeMap<>();
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            if (params.getMode() != Mode.Throughput || params.getParam("threads") == null) {
+                continue;
+            }
+            StringBuilder key = new StringBuilder(params.getBenchmark());
+            for (String name : params.getParamsKeys()) {
+                if (!name.equals("threads")) {
+                    key.append(' ').append(name).append('=').append(params.getParam(name));
+                }
+            }
+            throughputs.computeIfAbsent(key.toString(), k -> new TreeMap<>())
+                    .put(Integer.parseInt(params.getParam("threads")), result.getPrimaryResult().getScore());
+        }
+        for (Map.Entry<String, Map<Integer, Double>> entry : throughputs.entrySet()) {
+            Double single = entry.getValue().get(1);
+            if (single == null || single == 0) {
+                continue;
+            }
+            StringBuilder line = new StringBuilder("Speedup of ").append(entry.getKey()).append(':');
+            for (Map.Entry<Integer, Double> threads : entry.getValue().entrySet()) {
+                line.append(String.format(" %d threads %.2fx", threads.getKey(), threads.getValue() / single));
+            }
+            out.println(line);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package roadmapanalyzer.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The Workload interface is one measured operation of the analyzer. The analyzer's classes live in the default package,
+ * which benchmark classes cannot refer to, so each workload is a default-package class of this module that is created by
+ * name once per trial; the measured call is then a plain interface call.
+ */
+public interface Workload {
+    /**
+     * Prepares the workload for the given network.
+     *
+     * @param input   the network file
+     * @param variant the variant of the operation, as listed by the benchmark that uses the workload
+     * @throws IOException if the network cannot be read
+     */
+    void setUp(Path input, String variant) throws IOException;
+
+    /**
+     * Performs the operation once.
+     *
+     * @return a value computed from the result, to be consumed by the benchmark
+     * @throws IOException if an I/O error occurs
+     */
+    long run() throws IOException;
+
+    /**
+     * Creates the workload with the given class name.
+     *
+     * @param className the name of a default-package class implementing Workload
+     * @return the workload
+     */
+    static Workload create(String className) {
+        try {
+            return (Workload) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create workload " + className, e);
+        }
+    }
+}
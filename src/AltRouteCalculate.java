@@ -0,0 +1,318 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The AltRouteCalculate class calculates the fastest road between two cities like FastestRoadCalculate, but uses the
+ * lower bounds of a LandmarkIndex to search fewer cities.
+ * <p>
+ * The distance is found with a bidirectional A* search whose potential is the average of the forward and backward
+ * landmark bounds. A bidirectional search finds some fastest road, which is not necessarily the one the plain search
+ * picks among roads of equal distance, so the road itself is then recovered by a forward A* pass that only expands
+ * cities whose bound fits within the known distance. Every city on a fastest road is settled by that pass with its
+ * exact distance, and the plain search is then replayed over those cities alone to pick the same roads it would.
+ * <p>
+ * The working arrays of both passes are kept per thread and reset by stamp, so a query costs only the cities it
+ * touches.
+ */
+public class AltRouteCalculate {
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final ThreadLocal<Workspace> WORKSPACES = ThreadLocal.withInitial(Workspace::new);
+
+    RoadTable roads;
+    private LandmarkIndex landmarks;
+    private String startingCity;
+    private String destinationCity;
+    private String customMessage;
+    private int totalFastestRoadDistance = 0;
+
+    /**
+     * The search arrays of one thread, reused by every query on it. A distance or a flag of a city only counts if the
+     * city carries the stamp of the current search, so nothing is cleared for the whole map between queries and a query
+     * costs only the cities it touches. The arrays grow to the largest map the thread has searched.
+     */
+    private static final class Workspace {
+        IndexedRoadHeap[] heaps = {new IndexedRoadHeap(0), new IndexedRoadHeap(0)};
+        int[][] distances = {new int[0], new int[0]};
+        int[][] reached = {new int[0], new int[0]};
+        int[][] settled = {new int[0], new int[0]};
+        int[] marked = new int[0];
+        int[] replayed = new int[0];
+        int[] predecessorRoads = new int[0];
+        int[] onRoute = new int[0];
+        int stamp = 0;
+
+        void begin(int cityCount) {
+            if (marked.length < cityCount) {
+                int capacity = Math.max(cityCount, marked.length + (marked.length >> 1));
+                for (int side = 0; side < 2; side++) {
+                    heaps[side] = new IndexedRoadHeap(capacity);
+                    distances[side] = new int[capacity];
+                    reached[side] = new int[capacity];
+                    settled[side] = new int[capacity];
+                }
+                marked = new int[capacity];
+                replayed = new int[capacity];
+                predecessorRoads = new int[capacity];
+                onRoute = new int[capacity];
+                stamp = 0;
+            } else {
+                heaps[0].clear();
+                heaps[1].clear();
+            }
+            // Stamps only wrap around after billions of queries, and then every stamp is cleared once
+            if (stamp == Integer.MAX_VALUE) {
+                for (int side = 0; side < 2; side++) {
+                    Arrays.fill(reached[side], 0);
+                    Arrays.fill(settled[side], 0);
+                }
+                Arrays.fill(marked, 0);
+                Arrays.fill(replayed, 0);
+                stamp = 0;
+            }
+            stamp++;
+        }
+
+        int getDistance(int side, int city) {
+            return reached[side][city] == stamp ? distances[side][city] : INFINITY;
+        }
+
+        void setDistance(int side, int city, int distance) {
+            reached[side][city] = stamp;
+            distances[side][city] = distance;
+        }
+    }
+
+    /**
+     * Constructs an AltRouteCalculate object and finds the fastest road.
+     *
+     * @param landmarks       the landmark index of the roads
+     * @param startingCity    the starting city
+     * @param destinationCity the destination city
+     * @param customMessage   the custom message to be written
+     * @param sink            the sink to report the output to
+     * @throws IOException if an I/O error occurs
+     */
+    public AltRouteCalculate(LandmarkIndex landmarks, String startingCity, String destinationCity, String customMessage, ResultSink sink) throws IOException {
+        this.roads = landmarks.getRoads();
+        this.landmarks = landmarks;
+        this.startingCity = startingCity;
+        this.destinationCity = destinationCity;
+        this.customMessage = customMessage;
+        findFastestRoad(sink);
+    }
+
+    /**
+     * Returns the total distance of the fastest road.
+     *
+     * @return the total distance of the fastest road
+     */
+    public int getTotalFastestRoadDistance() {
+        return totalFastestRoadDistance;
+    }
+
+    /**
+     * Finds the fastest road and reports the result to the given sink, in the same format as FastestRoadCalculate.
+     *
+     * @param sink the sink to report the output to
+     * @throws IOException if an I/O error occurs
+     */
+    public void findFastestRoad(ResultSink sink) throws IOException {
+        CityDictionary cities = roads.getCities();
+        int start = cities.indexOf(startingCity);
+        int destination = cities.indexOf(destinationCity);
+        if (start < 0 || destination < 0) {
+            throw new NoSuchElementException("No route from " + startingCity + " to " + destinationCity);
+        }
+
+        totalFastestRoadDistance = findDistance(landmarks, start, destination);
+        if (totalFastestRoadDistance == INFINITY) {
+            throw new NoSuchElementException("No route from " + startingCity + " to " + destinationCity);
+        }
+        sink.beginRoute(customMessage, totalFastestRoadDistance);
+        for (int road : findRoute(landmarks, start, destination, totalFastestRoadDistance)) {
+            sink.road(roads, road);
+        }
+    }
+
+    /**
+     * Returns the distance of the fastest road between two cities using a bidirectional A* search.
+     *
+     * @param landmarks   the landmark index of the roads
+     * @param start       the starting city ID
+     * @param destination the destination city ID
+     * @return the distance, or Integer.MAX_VALUE if there is no road between the cities
+     */
+    public static int findDistance(LandmarkIndex landmarks, int start, int destination) {
+        if (start == destination) {
+            return 0;
+        }
+        RoadTable roads = landmarks.getRoads();
+        RoadAdjacency adjacency = roads.getAdjacency();
+        int cityCount = adjacency.getCityCount();
+        if (landmarks.lowerBound(start, destination) == LandmarkIndex.UNREACHABLE) {
+            return INFINITY;
+        }
+
+        // Keys are doubled so the averaged potential stays an integer:
+        // forward key 2 * d(start, v) + p(v) and backward key 2 * d(v, destination) - p(v), with
+        // p(v) = bound(v, destination) - bound(start, v)
+        Workspace workspace = WORKSPACES.get();
+        workspace.begin(cityCount);
+        int stamp = workspace.stamp;
+        int[][] settled = workspace.settled;
+        IndexedRoadHeap[] heaps = workspace.heaps;
+        workspace.setDistance(0, start, 0);
+        workspace.setDistance(1, destination, 0);
+        heaps[0].push(start, potential(landmarks, start, start, destination), 0);
+        heaps[1].push(destination, -potential(landmarks, destination, start, destination), 0);
+
+        long best = INFINITY;
+        while (!heaps[0].isEmpty() && !heaps[1].isEmpty()) {
+            long topForward = heaps[0].getDistance(heaps[0].peek());
+            long topBackward = heaps[1].getDistance(heaps[1].peek());
+            if (topForward + topBackward >= 2 * best) {
+                break;
+            }
+
+            // Advance the side with the smaller key
+            int side = topForward <= topBackward ? 0 : 1;
+            int sign = side == 0 ? 1 : -1;
+            int city = heaps[side].poll();
+            settled[side][city] = stamp;
+            int cityDistance = workspace.getDistance(side, city);
+            for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                int neighbour = adjacency.getNeighbour(slot);
+                if (settled[side][neighbour] == stamp) {
+                    continue;
+                }
+                int road = adjacency.getRoadIndex(slot);
+                int newDistance = cityDistance + roads.getDistance(road);
+                if (newDistance < workspace.getDistance(side, neighbour)) {
+                    int p = potential(landmarks, neighbour, start, destination);
+                    if (p == INFINITY) {
+                        continue;
+                    }
+                    workspace.setDistance(side, neighbour, newDistance);
+                    heaps[side].push(neighbour, 2 * newDistance + sign * p, roads.getID(road));
+                }
+                int otherDistance = workspace.getDistance(1 - side, neighbour);
+                if (otherDistance != INFINITY) {
+                    best = Math.min(best, (long) newDistance + otherDistance);
+                }
+            }
+        }
+        return (int) best;
+    }
+
+    /**
+     * Returns the roads of the fastest road between two cities whose distance is already known, picking the same
+     * road as FastestRoadCalculate among roads of equal distance.
+     *
+     * @param landmarks   the landmark index of the roads
+     * @param start       the starting city ID
+     * @param destination the destination city ID
+     * @param bound       the distance of the fastest road
+     * @return the rows of the roads, in order from the starting city
+     */
+    static int[] findRoute(LandmarkIndex landmarks, int start, int destination, int bound) {
+        RoadTable roads = landmarks.getRoads();
+        RoadAdjacency adjacency = roads.getAdjacency();
+        int cityCount = adjacency.getCityCount();
+
+        // Forward A* that settles every city whose distance plus lower bound fits within the known distance
+        Workspace workspace = WORKSPACES.get();
+        workspace.begin(cityCount);
+        int stamp = workspace.stamp;
+        int[] settled = workspace.settled[0];
+        IndexedRoadHeap heap = workspace.heaps[0];
+        workspace.setDistance(0, start, 0);
+        heap.push(start, landmarks.lowerBound(start, destination), 0);
+        while (!heap.isEmpty() && heap.getDistance(heap.peek()) <= bound) {
+            int city = heap.poll();
+            settled[city] = stamp;
+            int cityDistance = workspace.getDistance(0, city);
+            for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                int neighbour = adjacency.getNeighbour(slot);
+                int road = adjacency.getRoadIndex(slot);
+                int newDistance = cityDistance + roads.getDistance(road);
+                if (settled[neighbour] == stamp || newDistance >= workspace.getDistance(0, neighbour)) {
+                    continue;
+                }
+                int lowerBound = landmarks.lowerBound(neighbour, destination);
+                if (lowerBound == LandmarkIndex.UNREACHABLE || (long) newDistance + lowerBound > bound) {
+                    continue;
+                }
+                workspace.setDistance(0, neighbour, newDistance);
+                heap.push(neighbour, newDistance + lowerBound, roads.getID(road));
+            }
+        }
+        // Only settled cities are read from here on, and their distances are final
+        int[] distance = workspace.distances[0];
+
+        // Collect the cities on fastest roads by walking tight roads back from the destination
+        int[] onRoute = workspace.onRoute;
+        int count = 0;
+        int[] marked = workspace.marked;
+        onRoute[count++] = destination;
+        marked[destination] = stamp;
+        for (int i = 0; i < count; i++) {
+            int city = onRoute[i];
+            for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                int neighbour = adjacency.getNeighbour(slot);
+                int road = adjacency.getRoadIndex(slot);
+                if (marked[neighbour] != stamp && settled[neighbour] == stamp
+                        && (long) distance[neighbour] + roads.getDistance(road) == distance[city]) {
+                    marked[neighbour] = stamp;
+                    onRoute[count++] = neighbour;
+                }
+            }
+        }
+
+        // Replay the plain search over the cities on fastest roads only. Each of them is first reached at its final
+        // distance from a tight neighbour that is on a fastest road too, so they are settled in the same order as by the
+        // plain search and keep the same last roads, including among parallel roads and roads of 0 KM
+        int[] predecessorRoads = workspace.predecessorRoads;
+        int[] replayed = workspace.replayed;
+        IndexedRoadHeap replay = workspace.heaps[1];
+        predecessorRoads[start] = -1;
+        replayed[start] = stamp;
+        for (int city = start; city != destination; ) {
+            for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                int neighbour = adjacency.getNeighbour(slot);
+                int road = adjacency.getRoadIndex(slot);
+                if (marked[neighbour] != stamp || replayed[neighbour] == stamp || replay.contains(neighbour)
+                        || (long) distance[city] + roads.getDistance(road) != distance[neighbour]) {
+                    continue;
+                }
+                replay.push(neighbour, distance[neighbour], roads.getID(road));
+                predecessorRoads[neighbour] = road;
+            }
+            city = replay.poll();
+            replayed[city] = stamp;
+        }
+
+        // Follow the predecessor roads from the destination back to the start
+        int hops = 0;
+        for (int city = destination; city != start; hops++) {
+            int road = predecessorRoads[city];
+            city = roads.getCity1(road) == city ? roads.getCity2(road) : roads.getCity1(road);
+        }
+        int[] route = new int[hops];
+        for (int city = destination; city != start; ) {
+            int road = predecessorRoads[city];
+            route[--hops] = road;
+            city = roads.getCity1(road) == city ? roads.getCity2(road) : roads.getCity1(road);
+        }
+        return route;
+    }
+
+    private static int potential(LandmarkIndex landmarks, int city, int start, int destination) {
+        int toDestination = landmarks.lowerBound(city, destination);
+        int fromStart = landmarks.lowerBound(start, city);
+        if (toDestination == LandmarkIndex.UNREACHABLE || fromStart == LandmarkIndex.UNREACHABLE) {
+            return INFINITY;
+        }
+        return toDestination - fromStart;
+    }
+}
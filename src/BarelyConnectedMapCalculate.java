@@ -1,18 +1,24 @@
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.*;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
 
 /**
- * The BarelyConnectedMapCalculate class calculates a barely connected map from a list of roads,
+ * The BarelyConnectedMapCalculate class calculates a barely connected map from a road table,
  * ensuring the minimum number of roads that still connect all cities. It also calculates the
  * fastest route on this barely connected map.
  */
 public class BarelyConnectedMapCalculate {
-    List<Road> roads;
+    RoadTable roads;
     private String startingCity;
     private String destinationCity;
     private int barelyConnectedMapTotalDistance = 0;
     private int totalFastestRoadDistanceOnBarelyConnectedMap = 0;
+    private boolean parallel = false;
+    private RoadTable barelyConnectedMap;
+    private int[] barelyConnectedMapRows;
+    private TreePathIndex treePathIndex;
 
     /**
      * Returns the total distance of the fastest road on the barely connected map.
@@ -26,17 +32,77 @@ public class BarelyConnectedMapCalculate {
     /**
      * Constructs a BarelyConnectedMapCalculate object and finds the barely connected map.
      *
-     * @param roads           the list of roads
+     * @param roads           the road table
      * @param startingCity    the starting city
      * @param destinationCity the destination city
-     * @param writer          the FileWriter to write the output
+     * @param sink            the sink to report the output to
      * @throws IOException if an I/O error occurs
      */
-    public BarelyConnectedMapCalculate(List<Road> roads, String startingCity, String destinationCity, FileWriter writer) throws IOException {
+    public BarelyConnectedMapCalculate(RoadTable roads, String startingCity, String destinationCity, ResultSink sink) throws IOException {
+        this(roads, startingCity, destinationCity, false, sink);
+    }
+
+    /**
+     * Constructs a BarelyConnectedMapCalculate object and finds the barely connected map, either with Kruskal's
+     * algorithm or with a parallel Boruvka search. Both return the same roads. Roads stored off the heap are always
+     * searched with Kruskal's algorithm, which reads them in place.
+     *
+     * @param roads           the road table
+     * @param startingCity    the starting city
+     * @param destinationCity the destination city
+     * @param parallel        true to use the parallel Boruvka search
+     * @param sink            the sink to report the output to
+     * @throws IOException if an I/O error occurs
+     */
+    public BarelyConnectedMapCalculate(RoadTable roads, String startingCity, String destinationCity, boolean parallel, ResultSink sink) throws IOException {
         this.roads = roads;
         this.startingCity = startingCity;
         this.destinationCity = destinationCity;
-        findBarelyConnectedMap(writer);
+        this.parallel = parallel;
+        findBarelyConnectedMap(sink);
+    }
+
+    /**
+     * Constructs a BarelyConnectedMapCalculate object that only finds the barely connected map, without writing
+     * anything. Routes on the map can then be found for any number of city pairs.
+     *
+     * @param roads    the road table
+     * @param parallel true to use the parallel Boruvka search
+     */
+    public BarelyConnectedMapCalculate(RoadTable roads, boolean parallel) {
+        this.roads = roads;
+        this.parallel = parallel;
+        buildBarelyConnectedMap();
+    }
+
+    /**
+     * Constructs a BarelyConnectedMapCalculate object from a barely connected map found before, such as one kept by
+     * {@link ResultCache}, without searching the roads again.
+     *
+     * @param roads                  the road table
+     * @param barelyConnectedMapRows the rows of the roads of the barely connected map, in (distance, ID) order
+     */
+    public BarelyConnectedMapCalculate(RoadTable roads, int[] barelyConnectedMapRows) {
+        this.roads = roads;
+        setBarelyConnectedMap(barelyConnectedMapRows, barelyConnectedMapRows.length);
+    }
+
+    /**
+     * Returns the rows of the roads of the barely connected map in the road table, in (distance, ID) order.
+     *
+     * @return the rows of the roads
+     */
+    public int[] getBarelyConnectedMapRows() {
+        return barelyConnectedMapRows;
+    }
+
+    /**
+     * Returns the roads of the barely connected map, ordered by distance and ID.
+     *
+     * @return the barely connected map
+     */
+    public RoadTable getBarelyConnectedMap() {
+        return barelyConnectedMap;
     }
 
     /**
@@ -49,95 +115,258 @@ public class BarelyConnectedMapCalculate {
     }
 
     /**
-     * Finds the barely connected map and writes the result to the given FileWriter.
+     * Returns the total distance of the roads of the barely connected map in every connected component of the roads.
+     * On a map that is not connected, the barely connected map is a forest with one tree per component.
+     *
+     * @return the total distance of every component, indexed as in {@link RoadTable#getComponents()}
+     */
+    public int[] getComponentTotalDistances() {
+        ConnectedComponents components = roads.getComponents();
+        int[] totals = new int[components.getComponentCount()];
+        for (int road = 0; road < barelyConnectedMap.size(); road++) {
+            totals[components.getComponent(barelyConnectedMap.getCity1(road))] += barelyConnectedMap.getDistance(road);
+        }
+        return totals;
+    }
+
+    /**
+     * Reports the total distance of the barely connected map in every connected component of the roads, one message
+     * per component.
      *
-     * @param writer the FileWriter to write the output
+     * @param sink the sink to report the output to
      * @throws IOException if an I/O error occurs
      */
-    public void findBarelyConnectedMap(FileWriter writer) throws IOException {
-        List<Road> barelyConnectedMap = new ArrayList<>();
-        List<String> seen = new ArrayList<>();
-        List<Road> possibleWays = new ArrayList<>();
+    public void writeComponentTotalDistances(ResultSink sink) throws IOException {
+        ConnectedComponents components = roads.getComponents();
+        int[] totals = getComponentTotalDistances();
+        for (int component = 0; component < totals.length; component++) {
+            sink.message("Total Distance of Component " + (component + 1) + " of Barely Connected Map ("
+                    + components.getSize(component) + " Cities): " + totals[component] + " KM");
+        }
+    }
+
+    /**
+     * Finds the barely connected map and reports the result to the given sink.
+     *
+     * @param sink the sink to report the output to
+     * @throws IOException if an I/O error occurs
+     */
+    public void findBarelyConnectedMap(ResultSink sink) throws IOException {
+        buildBarelyConnectedMap();
+        writeBarelyConnectedMap(sink);
+        totalFastestRoadDistanceOnBarelyConnectedMap = findFastestRoadOnBarelyConnectedMap(startingCity, destinationCity, sink);
+    }
 
-        // Create a set of cities
-        HashSet<String> cities = new HashSet<>();
-        for (Road road : roads) {
-            cities.add(road.getCity1());
-            cities.add(road.getCity2());
+    /**
+     * Reports the roads of the barely connected map to the given sink.
+     *
+     * @param sink the sink to report the output to
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeBarelyConnectedMap(ResultSink sink) throws IOException {
+        RunMetrics.Timer output = RunMetrics.start(RunMetrics.Phase.OUTPUT);
+        sink.beginRoadList("Roads of Barely Connected Map");
+        for (int road = 0; road < barelyConnectedMap.size(); road++) {
+            sink.road(barelyConnectedMap, road);
         }
+        output.stop();
+    }
 
-        // Sort the roads by distance and ID
-        roads.sort(Comparator.comparingInt(Road::getDistance)
-                .thenComparingInt(Road::getID));
-
-        // Add the first road to the barely connected map
-        Road firstRoad = roads.get(0);
-        barelyConnectedMap.add(firstRoad);
-        seen.add(firstRoad.getCity1());
-        seen.add(firstRoad.getCity2());
-
-        // Determine possible ways from the starting cities
-        for (Road road : roads) {
-            if (Objects.equals(road.getCity1(), seen.get(0)) && Objects.equals(road.getCity2(), seen.get(1)) || Objects.equals(road.getCity1(), seen.get(1)) && Objects.equals(road.getCity2(), seen.get(0))) {
-                continue;
-            } else if (Objects.equals(road.getCity1(), seen.get(0))) {
-                possibleWays.add(road);
-            } else if (Objects.equals(road.getCity2(), seen.get(0))) {
-                possibleWays.add(road);
-            } else if (Objects.equals(road.getCity1(), seen.get(1))) {
-                possibleWays.add(road);
-            } else if (Objects.equals(road.getCity2(), seen.get(1))) {
-                possibleWays.add(road);
-            }
+    /**
+     * Finds the fastest route between two cities on the barely connected map and reports it to the given sink. Since
+     * the map is a tree, the route is the unique path between the cities and is read from the tree path index.
+     *
+     * @param startingCity    the starting city
+     * @param destinationCity the destination city
+     * @param sink            the sink to report the output to
+     * @return the total distance of the fastest route on the barely connected map
+     * @throws IOException if an I/O error occurs
+     */
+    public int findFastestRoadOnBarelyConnectedMap(String startingCity, String destinationCity, ResultSink sink) throws IOException {
+        TreePathIndex index = getTreePathIndex();
+        CityDictionary cities = barelyConnectedMap.getCities();
+        int start = cities.indexOf(startingCity);
+        int destination = cities.indexOf(destinationCity);
+        if (start < 0 || destination < 0 || !index.isConnected(start, destination)) {
+            throw new NoSuchElementException("No route from " + startingCity + " to " + destinationCity + " on Barely Connected Map");
+        }
+
+        int totalDistance = index.getDistance(start, destination);
+        RunMetrics.Timer output = RunMetrics.start(RunMetrics.Phase.OUTPUT);
+        sink.beginRoute("Fastest Route from " + startingCity + " to " + destinationCity + " on Barely Connected Map", totalDistance);
+        for (int road : index.getPath(start, destination)) {
+            sink.road(barelyConnectedMap, road);
+        }
+        output.stop();
+        return totalDistance;
+    }
+
+    /**
+     * Returns the path index of the barely connected map. It is built on first use.
+     *
+     * @return the tree path index
+     */
+    public synchronized TreePathIndex getTreePathIndex() {
+        if (treePathIndex == null) {
+            RunMetrics.Timer timer = RunMetrics.start(RunMetrics.Phase.BARELY_CONNECTED_MAP);
+            treePathIndex = new TreePathIndex(barelyConnectedMap);
+            timer.stop();
         }
+        return treePathIndex;
+    }
+
+    private void buildBarelyConnectedMap() {
+        RunMetrics.Timer timer = RunMetrics.start(RunMetrics.Phase.BARELY_CONNECTED_MAP);
+        int cityCount = roads.getCities().size();
+        // The search stops once the map is down to the components of the roads, so a map that is not connected is not
+        // scanned to its last road
+        int componentCount = roads.getComponents().getComponentCount();
+        int[] order;
+        int count = 0;
+        if (roads.isOffHeap()) {
+            // Nothing per road is copied onto the heap: the mapped order is read in place and only the taken roads kept
+            order = new int[Math.max(0, cityCount - 1)];
+            count = findByKruskal(roads, order, cityCount, componentCount, timer);
+        } else {
+            // Order the roads by distance and ID
+            order = roads.getSortedOrder().clone();
+            int[] city1 = new int[order.length];
+            int[] city2 = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                city1[i] = roads.getCity1(order[i]);
+                city2[i] = roads.getCity2(order[i]);
+            }
 
-        // Iterate until all cities are seen
-        while (seen.size() < cities.size()) {
-            List<Road> copyPossibleWays = new ArrayList<>(possibleWays);
-            for (Road road : copyPossibleWays) {
-                if (seen.contains(road.getCity1()) && seen.contains(road.getCity2())) {
-                    possibleWays.remove(road);
+            boolean[] taken = parallel ? findByBoruvka(city1, city2, cityCount, componentCount, timer)
+                    : findByKruskal(city1, city2, cityCount, componentCount, timer);
+            for (int i = 0; i < order.length; i++) {
+                if (taken[i]) {
+                    order[count++] = order[i];
                 }
             }
+        }
+        setBarelyConnectedMap(order, count);
+        timer.stop();
+    }
 
-            // Sort possible ways
-            possibleWays.sort(Comparator.comparingInt(Road::getDistance)
-                    .thenComparingInt(Road::getID));
+    private void setBarelyConnectedMap(int[] rows, int count) {
+        barelyConnectedMapRows = Arrays.copyOf(rows, count);
+        barelyConnectedMap = roads.select(rows, count);
 
-            String newCity = null;
+        barelyConnectedMapTotalDistance = 0;
+        for (int road = 0; road < barelyConnectedMap.size(); road++) {
+            barelyConnectedMapTotalDistance += barelyConnectedMap.getDistance(road);
+        }
+    }
 
-            // Find the new city for the shortest path
-            if (!seen.contains(possibleWays.get(0).getCity1())) {
-                newCity = possibleWays.get(0).getCity1();
-            } else if (!seen.contains(possibleWays.get(0).getCity2())) {
-                newCity = possibleWays.get(0).getCity2();
-            }
+    /**
+     * Finds the roads of the barely connected map with Kruskal's algorithm.
+     *
+     * @param city1     the first city of every road, in (distance, ID) order
+     * @param city2     the second city of every road, in (distance, ID) order
+     * @param cityCount      the number of cities
+     * @param componentCount the number of connected components of the roads
+     * @param timer          the timer the work of the search is counted on
+     * @return which of the ordered roads belong to the barely connected map
+     */
+    private static boolean[] findByKruskal(int[] city1, int[] city2, int cityCount, int componentCount, RunMetrics.Timer timer) {
+        boolean[] taken = new boolean[city1.length];
+        DisjointSet components = new DisjointSet(cityCount);
 
-            // Add the road to the barely connected map and update seen cities
-            barelyConnectedMap.add(possibleWays.get(0));
-            possibleWays.remove(0);
-            seen.add(newCity);
+        // Take every road that joins two cities which are not connected yet
+        int i = 0;
+        for (; i < city1.length && components.getComponentCount() > componentCount; i++) {
+            taken[i] = components.union(city1[i], city2[i]);
+        }
+        timer.add(RunMetrics.Counter.ROADS_SCANNED, i);
+        timer.add(RunMetrics.Counter.UNION_FIND_OPERATIONS, i);
+        return taken;
+    }
 
-            // Update possible ways for the new city
-            for (Road road : roads) {
-                if (road.getCity1().equals(newCity) || road.getCity2().equals(newCity)) {
-                    possibleWays.add(road);
-                }
+    /**
+     * Finds the roads of the barely connected map with Kruskal's algorithm, reading the roads of the table in
+     * (distance, ID) order where they are stored.
+     *
+     * @param roads     the road table
+     * @param taken     receives the rows of the roads of the barely connected map, in (distance, ID) order
+     * @param cityCount      the number of cities
+     * @param componentCount the number of connected components of the roads
+     * @param timer          the timer the work of the search is counted on
+     * @return the number of roads of the barely connected map
+     */
+    private static int findByKruskal(RoadTable roads, int[] taken, int cityCount, int componentCount, RunMetrics.Timer timer) {
+        DisjointSet components = new DisjointSet(cityCount);
+        int count = 0;
+        int i = 0;
+        for (; i < roads.size() && components.getComponentCount() > componentCount; i++) {
+            int road = roads.getSortedRoad(i);
+            if (components.union(roads.getCity1(road), roads.getCity2(road))) {
+                taken[count++] = road;
             }
         }
+        timer.add(RunMetrics.Counter.ROADS_SCANNED, i);
+        timer.add(RunMetrics.Counter.UNION_FIND_OPERATIONS, i);
+        return count;
+    }
 
-        // Write the roads of barely connected map
-        writer.write("Roads of Barely Connected Map is:\n");
+    /**
+     * Finds the roads of the barely connected map with Boruvka's algorithm, scanning the roads in parallel in
+     * every round. Since the roads are ordered, the cheapest road of a component is the one with the lowest index.
+     *
+     * @param city1     the first city of every road, in (distance, ID) order
+     * @param city2     the second city of every road, in (distance, ID) order
+     * @param cityCount      the number of cities
+     * @param componentCount the number of connected components of the roads
+     * @param timer          the timer the work of the search is counted on
+     * @return which of the ordered roads belong to the barely connected map
+     */
+    private static boolean[] findByBoruvka(int[] city1, int[] city2, int cityCount, int componentCount, RunMetrics.Timer timer) {
+        boolean[] taken = new boolean[city1.length];
+        DisjointSet components = new DisjointSet(cityCount);
+        int[] component = new int[cityCount];
+        AtomicIntegerArray cheapest = new AtomicIntegerArray(cityCount);
+
+        while (components.getComponentCount() > componentCount) {
+            // Every round scans all roads, finds every city and tries one union per city
+            timer.add(RunMetrics.Counter.ROADS_SCANNED, city1.length);
+            timer.add(RunMetrics.Counter.UNION_FIND_OPERATIONS, 2L * cityCount);
+
+            // Snapshot the components so the parallel scan only reads them
+            for (int city = 0; city < cityCount; city++) {
+                component[city] = components.find(city);
+                cheapest.set(city, Integer.MAX_VALUE);
+            }
+
+            // Find the cheapest road leaving every component
+            IntStream.range(0, city1.length).parallel().forEach(i -> {
+                int a = component[city1[i]];
+                int b = component[city2[i]];
+                if (a != b) {
+                    lowerTo(cheapest, a, i);
+                    lowerTo(cheapest, b, i);
+                }
+            });
 
-        barelyConnectedMap.sort(Comparator.comparingInt(Road::getDistance)
-                .thenComparingInt(Road::getID));
-        for (Road road : barelyConnectedMap) {
-            barelyConnectedMapTotalDistance += road.getDistance();
-            writer.write(road.getCity1() + "\t" + road.getCity2() + "\t" + road.getDistance() + "\t" + road.getID() + "\n");
+            // Join the components along their cheapest roads
+            boolean merged = false;
+            for (int city = 0; city < cityCount; city++) {
+                int i = cheapest.get(city);
+                if (i != Integer.MAX_VALUE && components.union(city1[i], city2[i])) {
+                    taken[i] = true;
+                    merged = true;
+                }
+            }
+            if (!merged) {
+                break;
+            }
         }
+        return taken;
+    }
 
-        String customMessage = "Fastest Route from " + startingCity + " to " + destinationCity + " on Barely Connected Map";
-        FastestRoadCalculate fastestRoadCalculate = new FastestRoadCalculate(barelyConnectedMap, startingCity, destinationCity, customMessage, writer);
-        totalFastestRoadDistanceOnBarelyConnectedMap = fastestRoadCalculate.getTotalFastestRoadDistance();
+    private static void lowerTo(AtomicIntegerArray cheapest, int component, int roadIndex) {
+        int current = cheapest.get(component);
+        while (roadIndex < current && !cheapest.compareAndSet(component, current, roadIndex)) {
+            current = cheapest.get(component);
+        }
     }
 }
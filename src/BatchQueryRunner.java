@@ -0,0 +1,189 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The BatchQueryRunner class answers many starting/destination city pairs against one road map. The roads, their
+ * adjacency index and the barely connected map are built once, and the pairs are answered on a worker pool. For
+ * every pair, the fastest route, the fastest route on the barely connected map and the analysis are written exactly
+ * as a single run writes them, in the order the pairs were read. With the plain search, the shortest-path trees of
+ * recent starting cities are cached, so pairs sharing a starting city only search once.
+ */
+public class BatchQueryRunner {
+    private final RoadTable roads;
+    private final BarelyConnectedMapCalculate barelyConnectedMapCalculate;
+    private final int originalTotalDistance;
+    private final int threads;
+    private final LandmarkIndex landmarks;
+    private final ContractionHierarchy hierarchy;
+    private final RegionOverlay overlay;
+    private final ShortestPathTreeCache treeCache;
+
+    /**
+     * Constructs a BatchQueryRunner and finds the barely connected map of the given roads.
+     *
+     * @param roads   the road table
+     * @param threads the number of worker threads
+     */
+    public BatchQueryRunner(RoadTable roads, int threads) {
+        this(roads, threads, 0);
+    }
+
+    /**
+     * Constructs a BatchQueryRunner and finds the barely connected map of the given roads. With landmarks, the fastest
+     * routes on the original map are found with the landmark-based search, which gives the same routes.
+     *
+     * @param roads         the road table
+     * @param threads       the number of worker threads
+     * @param landmarkCount the number of landmarks to preprocess, or 0 to use the plain search
+     */
+    public BatchQueryRunner(RoadTable roads, int threads, int landmarkCount) {
+        this(roads, threads, landmarkCount > 0 ? new LandmarkIndex(roads, landmarkCount) : null, null, null);
+    }
+
+    /**
+     * Constructs a BatchQueryRunner that finds the fastest routes on the original map with a contraction hierarchy.
+     * Distances are the same as with the plain search; among routes of equal distance, a different one may be written.
+     *
+     * @param roads     the road table
+     * @param threads   the number of worker threads
+     * @param hierarchy the contraction hierarchy of the roads
+     */
+    public BatchQueryRunner(RoadTable roads, int threads, ContractionHierarchy hierarchy) {
+        this(roads, threads, null, hierarchy, null);
+    }
+
+    /**
+     * Constructs a BatchQueryRunner that finds the fastest routes on the original map with a region overlay.
+     * Distances are the same as with the plain search; among routes of equal distance, a different one may be written.
+     *
+     * @param roads   the road table
+     * @param threads the number of worker threads
+     * @param overlay the region overlay of the roads
+     */
+    public BatchQueryRunner(RoadTable roads, int threads, RegionOverlay overlay) {
+        this(roads, threads, null, null, overlay);
+    }
+
+    private BatchQueryRunner(RoadTable roads, int threads, LandmarkIndex landmarks, ContractionHierarchy hierarchy, RegionOverlay overlay) {
+        this.roads = roads;
+        this.threads = threads;
+        this.landmarks = landmarks;
+        this.hierarchy = hierarchy;
+        this.overlay = overlay;
+        // A quarter of the heap is left for shortest-path trees when no faster engine is used
+        this.treeCache = landmarks == null && hierarchy == null && overlay == null
+                ? new ShortestPathTreeCache(roads, Runtime.getRuntime().maxMemory() / 4) : null;
+        boolean parallel = threads > 1 && roads.size() >= MapAnalyzer.PARALLEL_SPANNING_TREE_THRESHOLD;
+        this.barelyConnectedMapCalculate = new BarelyConnectedMapCalculate(roads, parallel);
+        this.originalTotalDistance = MapAnalyzer.totalDistance(roads);
+        // Build the shared indexes before the workers start
+        roads.getAdjacency();
+        roads.getComponents();
+        barelyConnectedMapCalculate.getTreePathIndex();
+    }
+
+    /**
+     * Reads tab-separated city pairs, one per line, and writes the answer of every pair. The roads of the barely
+     * connected map are written once, before the first answer. Every answer ends with a line break, and a pair that
+     * cannot be answered is reported with an error line instead of stopping the batch.
+     *
+     * @param pairs the reader of city pairs
+     * @param sink  the sink to report the output to
+     * @throws IOException if an I/O error occurs
+     */
+    public void run(BufferedReader pairs, ResultSink sink) throws IOException {
+        barelyConnectedMapCalculate.writeBarelyConnectedMap(sink);
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        // Keep a bounded number of answers in flight so the pairs can be streamed
+        Deque<Future<ResultRecorder>> pending = new ArrayDeque<>();
+        try {
+            String line;
+            while ((line = pairs.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] cities = line.split("\t");
+                pending.add(workers.submit(() -> answer(cities[0], cities.length > 1 ? cities[1] : "")));
+                if (pending.size() >= 4 * threads) {
+                    take(pending.poll()).replay(sink);
+                }
+            }
+            while (!pending.isEmpty()) {
+                take(pending.poll()).replay(sink);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Answers one city pair. A pair without a route is answered with an error line; any other failure of the route
+     * engines is thrown.
+     *
+     * @param startingCity    the starting city
+     * @param destinationCity the destination city
+     * @return the recorded output for the pair
+     * @throws IOException if an I/O error occurs
+     */
+    public ResultRecorder answer(String startingCity, String destinationCity) throws IOException {
+        ResultRecorder sink = new ResultRecorder();
+        CityDictionary cities = roads.getCities();
+        if (!roads.getComponents().isConnected(cities.indexOf(startingCity), cities.indexOf(destinationCity))) {
+            // Rejected without a search
+            sink.message("ERROR: No route from " + startingCity + " to " + destinationCity);
+            return sink;
+        }
+        try {
+            String customMessage = "Fastest Route from " + startingCity + " to " + destinationCity;
+            int totalFastestRoadDistance;
+            if (overlay != null) {
+                totalFastestRoadDistance = new OverlayRouteCalculate(overlay, startingCity, destinationCity, customMessage, sink).getTotalFastestRoadDistance();
+            } else if (hierarchy != null) {
+                totalFastestRoadDistance = new HierarchyRouteCalculate(hierarchy, startingCity, destinationCity, customMessage, sink).getTotalFastestRoadDistance();
+            } else if (landmarks != null) {
+                totalFastestRoadDistance = new AltRouteCalculate(landmarks, startingCity, destinationCity, customMessage, sink).getTotalFastestRoadDistance();
+            } else {
+                totalFastestRoadDistance = new FastestRoadCalculate(treeCache, startingCity, destinationCity, customMessage, sink).getTotalFastestRoadDistance();
+            }
+            int totalFastestRoadDistanceOnBarelyConnectedMap =
+                    barelyConnectedMapCalculate.findFastestRoadOnBarelyConnectedMap(startingCity, destinationCity, sink);
+            sink.analysis(barelyConnectedMapCalculate.getBarelyConnectedMapTotalDistance(), originalTotalDistance,
+                    totalFastestRoadDistance, totalFastestRoadDistanceOnBarelyConnectedMap);
+        } catch (NoSuchElementException e) {
+            // Only the "no route" signal of the engines is an answer; anything else is a failure of the run
+            ResultRecorder error = new ResultRecorder();
+            error.message("ERROR: No route from " + startingCity + " to " + destinationCity);
+            return error;
+        }
+        sink.endAnswer();
+        return sink;
+    }
+
+    /**
+     * Returns the shortest-path tree cache used by the plain search.
+     *
+     * @return the cache, or null if the routes are found with landmarks, a contraction hierarchy or a region overlay
+     */
+    public ShortestPathTreeCache getTreeCache() {
+        return treeCache;
+    }
+
+    private static ResultRecorder take(Future<ResultRecorder> answer) throws IOException {
+        try {
+            return answer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an answer", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * The BinaryResultSink class writes results as a compact big-endian binary stream for other programs to read. The
+ * stream starts with the magic number "RDRS" and a version, followed by records that each start with a tag byte:
+ * <pre>
+ * CITY     int city, UTF name                  (before the first road that uses the city)
+ * ROUTE    UTF title, int distance
+ * ROADS    UTF title
+ * ROAD     int city1, int city2, int distance, int ID
+ * ANALYSIS int barely connected total, int original total, int fastest, int fastest on barely connected map
+ * MESSAGE  UTF text
+ * END
+ * </pre>
+ * Cities are numbered by the sink in the order they are first used, and every name is written once.
+ */
+public class BinaryResultSink implements ResultSink {
+    /**
+     * Magic number at the start of every result stream, "RDRS" in ASCII.
+     */
+    public static final int MAGIC = 0x52445253;
+    /**
+     * Version of the stream format.
+     */
+    public static final int VERSION = 1;
+
+    // Record tags
+    public static final byte CITY = 1;
+    public static final byte ROUTE = 2;
+    public static final byte ROADS = 3;
+    public static final byte ROAD = 4;
+    public static final byte ANALYSIS = 5;
+    public static final byte MESSAGE = 6;
+    public static final byte END = 7;
+
+    private final DataOutputStream output;
+    // Number given to every city of the dictionary seen last, plus one, or 0 before it is written
+    private CityDictionary cities;
+    private int[] numbers = new int[0];
+    private int cityCount = 0;
+
+    /**
+     * Constructs a BinaryResultSink writing to the given channel and writes the header.
+     *
+     * @param channel the channel to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public BinaryResultSink(WritableByteChannel channel) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+    }
+
+    @Override
+    public void beginRoute(String title, int totalDistance) throws IOException {
+        output.writeByte(ROUTE);
+        output.writeUTF(title);
+        output.writeInt(totalDistance);
+    }
+
+    @Override
+    public void beginRoadList(String title) throws IOException {
+        output.writeByte(ROADS);
+        output.writeUTF(title);
+    }
+
+    @Override
+    public void road(CityDictionary cities, int city1, int city2, int distance, int ID) throws IOException {
+        int number1 = number(cities, city1);
+        int number2 = number(cities, city2);
+        output.writeByte(ROAD);
+        output.writeInt(number1);
+        output.writeInt(number2);
+        output.writeInt(distance);
+        output.writeInt(ID);
+    }
+
+    @Override
+    public void analysis(int barelyConnectedMapTotalDistance, int originalTotalDistance, int totalFastestRoadDistance,
+                         int totalFastestRoadDistanceOnBarelyConnectedMap) throws IOException {
+        output.writeByte(ANALYSIS);
+        output.writeInt(barelyConnectedMapTotalDistance);
+        output.writeInt(originalTotalDistance);
+        output.writeInt(totalFastestRoadDistance);
+        output.writeInt(totalFastestRoadDistanceOnBarelyConnectedMap);
+    }
+
+    @Override
+    public void message(String text) throws IOException {
+        output.writeByte(MESSAGE);
+        output.writeUTF(text);
+    }
+
+    @Override
+    public void endAnswer() throws IOException {
+        output.writeByte(END);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+
+    // Returns the number of a city in the stream, writing its name the first time
+    private int number(CityDictionary dictionary, int city) throws IOException {
+        if (dictionary != cities) {
+            cities = dictionary;
+            numbers = new int[dictionary.size()];
+        }
+        if (city >= numbers.length) {
+            numbers = Arrays.copyOf(numbers, Math.max(city + 1, dictionary.size()));
+        }
+        if (numbers[city] == 0) {
+            numbers[city] = ++cityCount;
+            output.writeByte(CITY);
+            output.writeInt(cityCount - 1);
+            output.writeUTF(dictionary.getName(city));
+        }
+        return numbers[city] - 1;
+    }
+}
@@ -0,0 +1,150 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CityDictionary class assigns a dense integer ID to every city name, in order of first appearance, so that
+ * roads can refer to cities by int instead of by String. Cities can also be looked up by their UTF-8 bytes, so a
+ * parser only has to build a String the first time it sees a city.
+ */
+public class CityDictionary {
+    private final Map<String, Integer> cityIDs = new HashMap<>();
+    private final List<String> cityNames = new ArrayList<>();
+    private final List<byte[]> encodedNames = new ArrayList<>();
+    // Open-addressing table of city ID + 1 by hash of the UTF-8 name, 0 marks an empty slot
+    private int[] byteTable = new int[64];
+
+    /**
+     * Returns the ID of the given city, assigning the next free ID if the city has not been seen before.
+     *
+     * @param cityName the name of the city
+     * @return the ID of the city
+     */
+    public int getOrAdd(String cityName) {
+        Integer id = cityIDs.get(cityName);
+        if (id == null) {
+            byte[] bytes = cityName.getBytes(StandardCharsets.UTF_8);
+            id = add(cityName, bytes, hash(bytes, 0, bytes.length));
+        }
+        return id;
+    }
+
+    /**
+     * Returns the ID of the city whose UTF-8 name is stored in the given bytes of the buffer, assigning the next
+     * free ID if the city has not been seen before. The buffer's position and limit are not changed.
+     *
+     * @param buffer the buffer holding the name
+     * @param from   the index of the first byte of the name
+     * @param to     the index after the last byte of the name
+     * @return the ID of the city
+     */
+    public int getOrAdd(ByteBuffer buffer, int from, int to) {
+        int hash = hash(buffer, from, to);
+        int mask = byteTable.length - 1;
+        for (int slot = mix(hash) & mask; byteTable[slot] != 0; slot = (slot + 1) & mask) {
+            int id = byteTable[slot] - 1;
+            if (matches(encodedNames.get(id), buffer, from, to)) {
+                return id;
+            }
+        }
+        byte[] bytes = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            bytes[i - from] = buffer.get(i);
+        }
+        return add(new String(bytes, StandardCharsets.UTF_8), bytes, hash);
+    }
+
+    /**
+     * Returns the ID of the given city, or -1 if the city is not in the dictionary.
+     *
+     * @param cityName the name of the city
+     * @return the ID of the city
+     */
+    public int indexOf(String cityName) {
+        Integer id = cityIDs.get(cityName);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the name of the city with the given ID.
+     *
+     * @param city the ID of the city
+     * @return the name of the city
+     */
+    public String getName(int city) {
+        return cityNames.get(city);
+    }
+
+    /**
+     * Returns the number of cities in the dictionary.
+     *
+     * @return the number of cities
+     */
+    public int size() {
+        return cityNames.size();
+    }
+
+    private int add(String cityName, byte[] bytes, int hash) {
+        int id = cityNames.size();
+        cityIDs.put(cityName, id);
+        cityNames.add(cityName);
+        encodedNames.add(bytes);
+        if (2 * cityNames.size() > byteTable.length) {
+            // Keep the table at most half full
+            int[] old = byteTable;
+            byteTable = new int[old.length * 2];
+            for (int entry : old) {
+                if (entry != 0) {
+                    byte[] name = encodedNames.get(entry - 1);
+                    insert(hash(name, 0, name.length), entry);
+                }
+            }
+        }
+        insert(hash, id + 1);
+        return id;
+    }
+
+    private void insert(int hash, int entry) {
+        int mask = byteTable.length - 1;
+        int slot = mix(hash) & mask;
+        while (byteTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        byteTable[slot] = entry;
+    }
+
+    static boolean matches(byte[] name, ByteBuffer buffer, int from, int to) {
+        if (name.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (name[i] != buffer.get(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int hash(byte[] bytes, int from, int to) {
+        int hash = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ bytes[i]) * 0x01000193;
+        }
+        return hash;
+    }
+
+    static int hash(ByteBuffer buffer, int from, int to) {
+        int hash = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ buffer.get(i)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.Arrays;
+
+/**
+ * The ConnectedComponents class labels every city of a road table with the component it belongs to, the cities that
+ * can reach each other. The labels are found with one breadth-first pass over the adjacency index, linear in the
+ * number of cities and roads, after which whether two cities are connected is a comparison of two labels. Components
+ * are numbered in the order of their smallest city ID.
+ */
+public class ConnectedComponents {
+    private final int[] labels;
+    private final int[] sizes;
+
+    /**
+     * Constructs the components of the given roads.
+     *
+     * @param roads the road table
+     */
+    public ConnectedComponents(RoadTable roads) {
+        RoadAdjacency adjacency = roads.getAdjacency();
+        int cityCount = roads.getCities().size();
+        labels = new int[cityCount];
+        int[] queue = new int[cityCount];
+        int[] sizes = new int[Math.max(1, cityCount)];
+        int componentCount = 0;
+        for (int city = 0; city < cityCount; city++) {
+            labels[city] = -1;
+        }
+        for (int root = 0; root < cityCount; root++) {
+            if (labels[root] >= 0) {
+                continue;
+            }
+            // Every city reached from the root gets its label, and the queue is reused for the next component
+            int head = 0;
+            int tail = 0;
+            labels[root] = componentCount;
+            queue[tail++] = root;
+            while (head < tail) {
+                int city = queue[head++];
+                for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                    int neighbour = adjacency.getNeighbour(slot);
+                    if (labels[neighbour] < 0) {
+                        labels[neighbour] = componentCount;
+                        queue[tail++] = neighbour;
+                    }
+                }
+            }
+            sizes[componentCount++] = tail;
+        }
+        this.sizes = Arrays.copyOf(sizes, componentCount);
+    }
+
+    /**
+     * Returns the number of components.
+     *
+     * @return the number of components
+     */
+    public int getComponentCount() {
+        return sizes.length;
+    }
+
+    /**
+     * Returns the component of a city.
+     *
+     * @param city the city ID
+     * @return the component, from 0 to the number of components - 1
+     */
+    public int getComponent(int city) {
+        return labels[city];
+    }
+
+    /**
+     * Returns the number of cities in a component.
+     *
+     * @param component the component
+     * @return the number of cities
+     */
+    public int getSize(int component) {
+        return sizes[component];
+    }
+
+    /**
+     * Returns whether there is a route between two cities.
+     *
+     * @param city1 the ID of the first city, or -1 for a city that is not on the map
+     * @param city2 the ID of the second city, or -1 for a city that is not on the map
+     * @return true if both cities are on the map and in the same component
+     */
+    public boolean isConnected(int city1, int city2) {
+        return city1 >= 0 && city2 >= 0 && labels[city1] == labels[city2];
+    }
+}
@@ -0,0 +1,672 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * The ContractionHierarchy class preprocesses a road table for fast point-to-point queries. Cities are contracted one
+ * by one in order of importance; whenever removing a city would lengthen the fastest road between two of its
+ * neighbours, a shortcut edge is added between them that remembers the two edges it replaces. A query then only
+ * searches upwards in the order from both ends, and the shortcuts on the route found are unpacked back into roads.
+ * <p>
+ * Cities are contracted in rounds: every round takes the cities whose priority is lower than that of all their
+ * neighbours, finds their shortcuts in parallel and then removes them together. Witness searches skip the cities of
+ * the current round, so no shortcut is left out because it was covered by a city removed at the same time.
+ * <p>
+ * A hierarchy always finds the same distance as FastestRoadCalculate. When several roads share the fastest distance,
+ * it may return a different one of them.
+ */
+public class ContractionHierarchy {
+    private static final int MAGIC = 0x52444348; // "RDCH"
+    private static final int VERSION = 1;
+    private static final int INFINITY = Integer.MAX_VALUE;
+    // Number of cities a witness search may settle before it gives up and keeps the shortcut
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private final RoadTable roads;
+    private final int cityCount;
+    private int[] rank;
+
+    // Edges 0 to roads.size() - 1 are the roads themselves, the rest are shortcuts made of a first and second edge
+    private int edgeCount = 0;
+    private int[] edgeFrom;
+    private int[] edgeTo;
+    private int[] edgeWeight;
+    private int[] edgeFirst;
+    private int[] edgeSecond;
+
+    // Edges from every city to cities ranked above it
+    private int[] upOffsets;
+    private int[] upTargets;
+    private int[] upEdges;
+
+    private long buildMillis = 0;
+
+    // Query state of every thread that searches the hierarchy
+    private final ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+
+    // Contraction state, only used while building
+    private int[][] incident;
+    private int[] incidentCount;
+    private boolean[] contracted;
+    private boolean[] inRound;
+
+    private ContractionHierarchy(RoadTable roads) {
+        this.roads = roads;
+        this.cityCount = roads.getCities().size();
+        int capacity = Math.max(16, 2 * roads.size());
+        edgeFrom = new int[capacity];
+        edgeTo = new int[capacity];
+        edgeWeight = new int[capacity];
+        edgeFirst = new int[capacity];
+        edgeSecond = new int[capacity];
+        for (int road = 0; road < roads.size(); road++) {
+            addEdge(roads.getCity1(road), roads.getCity2(road), roads.getDistance(road), -1, -1);
+        }
+    }
+
+    /**
+     * Builds the contraction hierarchy of the given roads.
+     *
+     * @param roads   the road table
+     * @param threads the number of threads to contract cities with
+     * @return the contraction hierarchy
+     */
+    public static ContractionHierarchy build(RoadTable roads, int threads) {
+        long startTime = System.nanoTime();
+        ContractionHierarchy hierarchy = new ContractionHierarchy(roads);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            hierarchy.contract(pool);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the contraction hierarchy", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Building the contraction hierarchy failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        hierarchy.buildUpwardGraph();
+        hierarchy.buildMillis = (System.nanoTime() - startTime) / 1_000_000;
+        return hierarchy;
+    }
+
+    /**
+     * Returns the road table the hierarchy was built for.
+     *
+     * @return the road table
+     */
+    public RoadTable getRoads() {
+        return roads;
+    }
+
+    /**
+     * Returns the number of shortcut edges.
+     *
+     * @return the number of shortcuts
+     */
+    public int getShortcutCount() {
+        return edgeCount - roads.size();
+    }
+
+    /**
+     * Returns how long building the hierarchy took, or 0 if it was loaded from a file.
+     *
+     * @return the build time in milliseconds
+     */
+    public long getBuildMillis() {
+        return buildMillis;
+    }
+
+    /**
+     * Returns the number of bytes the arrays of the hierarchy take.
+     *
+     * @return the memory used by the hierarchy in bytes
+     */
+    public long getMemoryBytes() {
+        long ints = 5L * edgeFrom.length + rank.length + upOffsets.length + upTargets.length + upEdges.length;
+        return 4 * ints;
+    }
+
+    /**
+     * Returns a one-line summary of the size, build time and memory of the hierarchy.
+     *
+     * @return the statistics
+     */
+    public String getStatistics() {
+        return String.format("Contraction hierarchy: %d cities, %d roads, %d shortcuts, built in %d ms, %.1f MB",
+                cityCount, roads.size(), getShortcutCount(), buildMillis, getMemoryBytes() / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Returns the distance of the fastest road between two cities.
+     *
+     * @param start       the starting city ID
+     * @param destination the destination city ID
+     * @return the distance, or Integer.MAX_VALUE if there is no road between the cities
+     */
+    public int findDistance(int start, int destination) {
+        Search search = search(start, destination);
+        return search == null ? INFINITY : search.best;
+    }
+
+    /**
+     * Returns the roads of a fastest road between two cities, with all shortcuts unpacked.
+     *
+     * @param start       the starting city ID
+     * @param destination the destination city ID
+     * @return the rows of the roads in order from the starting city, or null if there is no road between the cities
+     */
+    public int[] findRoute(int start, int destination) {
+        if (start == destination) {
+            return new int[0];
+        }
+        Search search = search(start, destination);
+        if (search == null) {
+            return null;
+        }
+
+        // Edges from the start up to the meeting city, then down to the destination, each with the city it is left from
+        int[] edges = new int[16];
+        int[] from = new int[16];
+        int count = 0;
+        for (int city = search.meeting; city != start; ) {
+            int edge = search.predecessorEdges[0][city];
+            int previous = otherEnd(edge, city);
+            if (count == edges.length) {
+                edges = Arrays.copyOf(edges, 2 * count);
+                from = Arrays.copyOf(from, 2 * count);
+            }
+            edges[count] = edge;
+            from[count++] = previous;
+            city = previous;
+        }
+        reverse(edges, count);
+        reverse(from, count);
+        for (int city = search.meeting; city != destination; ) {
+            int edge = search.predecessorEdges[1][city];
+            if (count == edges.length) {
+                edges = Arrays.copyOf(edges, 2 * count);
+                from = Arrays.copyOf(from, 2 * count);
+            }
+            edges[count] = edge;
+            from[count++] = city;
+            city = otherEnd(edge, city);
+        }
+
+        // Unpack every shortcut into the two edges it replaces, keeping the direction of travel
+        int[] route = new int[16];
+        int length = 0;
+        int[] stackEdges = new int[16];
+        int[] stackFrom = new int[16];
+        for (int i = 0; i < count; i++) {
+            int top = 0;
+            stackEdges[top] = edges[i];
+            stackFrom[top++] = from[i];
+            while (top > 0) {
+                int edge = stackEdges[--top];
+                int city = stackFrom[top];
+                if (edgeFirst[edge] < 0) {
+                    if (length == route.length) {
+                        route = Arrays.copyOf(route, 2 * length);
+                    }
+                    route[length++] = edge;
+                    continue;
+                }
+                if (top + 2 > stackEdges.length) {
+                    stackEdges = Arrays.copyOf(stackEdges, 2 * stackEdges.length);
+                    stackFrom = Arrays.copyOf(stackFrom, 2 * stackFrom.length);
+                }
+                int first = edgeFirst[edge];
+                int second = edgeSecond[edge];
+                int middle = otherEnd(first, edgeFrom[edge]);
+                if (city == edgeFrom[edge]) {
+                    stackEdges[top] = second;
+                    stackFrom[top++] = middle;
+                    stackEdges[top] = first;
+                    stackFrom[top++] = city;
+                } else {
+                    stackEdges[top] = first;
+                    stackFrom[top++] = middle;
+                    stackEdges[top] = second;
+                    stackFrom[top++] = city;
+                }
+            }
+        }
+        return Arrays.copyOf(route, length);
+    }
+
+    /**
+     * Writes the hierarchy to a file. The roads themselves are not written; they are given again when loading.
+     *
+     * @param path path to the hierarchy file
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(String path) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(path)), 1 << 16))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(cityCount);
+            output.writeInt(roads.size());
+            output.writeInt(edgeCount);
+            for (int city = 0; city < cityCount; city++) {
+                output.writeInt(rank[city]);
+            }
+            for (int edge = roads.size(); edge < edgeCount; edge++) {
+                output.writeInt(edgeFrom[edge]);
+                output.writeInt(edgeTo[edge]);
+                output.writeInt(edgeWeight[edge]);
+                output.writeInt(edgeFirst[edge]);
+                output.writeInt(edgeSecond[edge]);
+            }
+        }
+    }
+
+    /**
+     * Loads a hierarchy written by write for the same roads.
+     *
+     * @param path  path to the hierarchy file
+     * @param roads the road table the hierarchy was built for
+     * @return the contraction hierarchy
+     * @throws IOException if the file cannot be read or does not belong to the roads
+     */
+    public static ContractionHierarchy load(String path, RoadTable roads) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(path)), 1 << 16))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(path + " is not a contraction hierarchy");
+            }
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported contraction hierarchy version " + version + " in " + path);
+            }
+            ContractionHierarchy hierarchy = new ContractionHierarchy(roads);
+            int cityCount = input.readInt();
+            int roadCount = input.readInt();
+            if (cityCount != hierarchy.cityCount || roadCount != roads.size()) {
+                throw new IOException(path + " was built for a different road map");
+            }
+            int edgeCount = input.readInt();
+            hierarchy.rank = new int[cityCount];
+            for (int city = 0; city < cityCount; city++) {
+                hierarchy.rank[city] = input.readInt();
+            }
+            for (int edge = roadCount; edge < edgeCount; edge++) {
+                hierarchy.addEdge(input.readInt(), input.readInt(), input.readInt(), input.readInt(), input.readInt());
+            }
+            hierarchy.buildUpwardGraph();
+            return hierarchy;
+        }
+    }
+
+    /**
+     * The state of one bidirectional upward search. Every thread keeps its own for the hierarchy and reuses it for every
+     * query, resetting only the cities the previous query touched, so a query costs only the few cities it searches.
+     */
+    private class Search {
+        final int[][] distance = {new int[cityCount], new int[cityCount]};
+        final int[][] predecessorEdges = {new int[cityCount], new int[cityCount]};
+        final IndexedRoadHeap[] heaps = {new IndexedRoadHeap(cityCount), new IndexedRoadHeap(cityCount)};
+        private final int[] touched = new int[cityCount];
+        private int touchedCount = 0;
+        int best;
+        int meeting;
+
+        Search() {
+            Arrays.fill(distance[0], INFINITY);
+            Arrays.fill(distance[1], INFINITY);
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                distance[0][touched[i]] = INFINITY;
+                distance[1][touched[i]] = INFINITY;
+            }
+            touchedCount = 0;
+            heaps[0].clear();
+            heaps[1].clear();
+            best = INFINITY;
+            meeting = -1;
+        }
+
+        void setDistance(int side, int city, int newDistance) {
+            if (distance[0][city] == INFINITY && distance[1][city] == INFINITY) {
+                touched[touchedCount++] = city;
+            }
+            distance[side][city] = newDistance;
+        }
+    }
+
+    // The result is the search state of the current thread, valid until its next query
+    private Search search(int start, int destination) {
+        Search search = searches.get();
+        search.reset();
+        int[][] distance = search.distance;
+        IndexedRoadHeap[] heaps = search.heaps;
+        search.setDistance(0, start, 0);
+        search.setDistance(1, destination, 0);
+        heaps[0].push(start, 0, 0);
+        heaps[1].push(destination, 0, 0);
+
+        while (true) {
+            // Pick the side with the smaller key that can still improve the best distance
+            int side = -1;
+            for (int s = 0; s < 2; s++) {
+                if (!heaps[s].isEmpty() && heaps[s].getDistance(heaps[s].peek()) < search.best
+                        && (side < 0 || heaps[s].getDistance(heaps[s].peek()) < heaps[side].getDistance(heaps[side].peek()))) {
+                    side = s;
+                }
+            }
+            if (side < 0) {
+                break;
+            }
+            int city = heaps[side].poll();
+            if (distance[1 - side][city] != INFINITY && distance[side][city] + distance[1 - side][city] < search.best) {
+                search.best = distance[side][city] + distance[1 - side][city];
+                search.meeting = city;
+            }
+            for (int i = upOffsets[city]; i < upOffsets[city + 1]; i++) {
+                int neighbour = upTargets[i];
+                int edge = upEdges[i];
+                int newDistance = distance[side][city] + edgeWeight[edge];
+                if (newDistance < distance[side][neighbour]) {
+                    search.setDistance(side, neighbour, newDistance);
+                    search.predecessorEdges[side][neighbour] = edge;
+                    heaps[side].push(neighbour, newDistance, 0);
+                }
+            }
+        }
+        return search.meeting < 0 ? null : search;
+    }
+
+    private void contract(ForkJoinPool pool) throws InterruptedException, ExecutionException {
+        incident = new int[cityCount][];
+        incidentCount = new int[cityCount];
+        contracted = new boolean[cityCount];
+        inRound = new boolean[cityCount];
+        int[] deletedNeighbours = new int[cityCount];
+        int[] priority = new int[cityCount];
+        rank = new int[cityCount];
+        for (int city = 0; city < cityCount; city++) {
+            incident[city] = new int[4];
+        }
+        for (int edge = 0; edge < edgeCount; edge++) {
+            if (edgeFrom[edge] != edgeTo[edge]) {
+                addIncident(edgeFrom[edge], edge);
+                addIncident(edgeTo[edge], edge);
+            }
+        }
+
+        ThreadLocal<WitnessSearch> witnesses = ThreadLocal.withInitial(WitnessSearch::new);
+        pool.submit(() -> IntStream.range(0, cityCount).parallel()
+                .forEach(city -> priority[city] = findShortcuts(city, witnesses.get()).length / 5 - countNeighbours(city))).get();
+
+        int[] remaining = IntStream.range(0, cityCount).toArray();
+        int nextRank = 0;
+        while (remaining.length > 0) {
+            // Contract the cities whose priority is lower than that of all their remaining neighbours
+            int[] current = remaining;
+            int[] round = pool.submit(() -> IntStream.of(current).parallel()
+                    .filter(city -> isLocalMinimum(city, priority)).toArray()).get();
+            for (int city : round) {
+                inRound[city] = true;
+            }
+            int[][] shortcuts = pool.submit(() -> IntStream.range(0, round.length).parallel()
+                    .mapToObj(i -> findShortcuts(round[i], witnesses.get())).toArray(int[][]::new)).get();
+
+            boolean[] touched = new boolean[cityCount];
+            for (int i = 0; i < round.length; i++) {
+                int city = round[i];
+                rank[city] = nextRank++;
+                contracted[city] = true;
+                for (int j = 0; j < shortcuts[i].length; j += 5) {
+                    addShortcut(shortcuts[i][j], shortcuts[i][j + 1], shortcuts[i][j + 2], shortcuts[i][j + 3], shortcuts[i][j + 4]);
+                }
+                for (int k = 0; k < incidentCount[city]; k++) {
+                    int neighbour = otherEnd(incident[city][k], city);
+                    if (!contracted[neighbour]) {
+                        deletedNeighbours[neighbour]++;
+                        touched[neighbour] = true;
+                    }
+                }
+                incident[city] = null;
+            }
+            for (int city : round) {
+                inRound[city] = false;
+            }
+
+            // Drop the edges to contracted cities and update the priorities of their neighbours
+            remaining = IntStream.of(current).filter(city -> !contracted[city]).toArray();
+            int[] update = IntStream.of(remaining).filter(city -> touched[city]).toArray();
+            pool.submit(() -> IntStream.of(update).parallel().forEach(this::removeContractedEdges)).get();
+            pool.submit(() -> IntStream.of(update).parallel().forEach(city -> priority[city] =
+                    findShortcuts(city, witnesses.get()).length / 5 - countNeighbours(city) + deletedNeighbours[city])).get();
+        }
+        incident = null;
+        incidentCount = null;
+        contracted = null;
+        inRound = null;
+    }
+
+    private boolean isLocalMinimum(int city, int[] priority) {
+        for (int k = 0; k < incidentCount[city]; k++) {
+            int neighbour = otherEnd(incident[city][k], city);
+            if (contracted[neighbour]) {
+                continue;
+            }
+            if (priority[neighbour] < priority[city] || (priority[neighbour] == priority[city] && neighbour < city)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int countNeighbours(int city) {
+        int count = 0;
+        for (int k = 0; k < incidentCount[city]; k++) {
+            if (!contracted[otherEnd(incident[city][k], city)]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the shortcuts needed to contract the given city, as groups of five ints: the two neighbours, the
+     * distance and the two edges the shortcut replaces.
+     */
+    private int[] findShortcuts(int city, WitnessSearch witness) {
+        // Keep the shortest edge to every remaining neighbour
+        int[] neighbours = new int[incidentCount[city]];
+        int[] weights = new int[incidentCount[city]];
+        int[] edges = new int[incidentCount[city]];
+        int count = 0;
+        int maxWeight = 0;
+        for (int k = 0; k < incidentCount[city]; k++) {
+            int edge = incident[city][k];
+            int neighbour = otherEnd(edge, city);
+            if (contracted[neighbour] || inRound[neighbour]) {
+                continue;
+            }
+            int j = 0;
+            while (j < count && neighbours[j] != neighbour) {
+                j++;
+            }
+            if (j == count) {
+                neighbours[count] = neighbour;
+                weights[count] = edgeWeight[edge];
+                edges[count++] = edge;
+            } else if (edgeWeight[edge] < weights[j]) {
+                weights[j] = edgeWeight[edge];
+                edges[j] = edge;
+            }
+            maxWeight = Math.max(maxWeight, edgeWeight[edge]);
+        }
+
+        int[] shortcuts = new int[0];
+        int shortcutCount = 0;
+        for (int i = 0; i + 1 < count; i++) {
+            witness.run(neighbours[i], city, weights[i] + maxWeight);
+            for (int j = i + 1; j < count; j++) {
+                int via = weights[i] + weights[j];
+                if (witness.distanceTo(neighbours[j]) <= via) {
+                    continue;
+                }
+                if (shortcutCount + 5 > shortcuts.length) {
+                    shortcuts = Arrays.copyOf(shortcuts, Math.max(10, 2 * shortcuts.length));
+                }
+                shortcuts[shortcutCount++] = neighbours[i];
+                shortcuts[shortcutCount++] = neighbours[j];
+                shortcuts[shortcutCount++] = via;
+                shortcuts[shortcutCount++] = edges[i];
+                shortcuts[shortcutCount++] = edges[j];
+            }
+        }
+        return Arrays.copyOf(shortcuts, shortcutCount);
+    }
+
+    /**
+     * The WitnessSearch class is a per-thread Dijkstra search that looks for a road between two neighbours of a city
+     * that avoids the city. Only the cities it touched are reset between searches.
+     */
+    private class WitnessSearch {
+        private final int[] distance = new int[cityCount];
+        private final int[] touched = new int[cityCount];
+        private int touchedCount = 0;
+        private final IndexedRoadHeap heap = new IndexedRoadHeap(cityCount);
+
+        WitnessSearch() {
+            Arrays.fill(distance, INFINITY);
+        }
+
+        void run(int source, int avoided, int limit) {
+            for (int i = 0; i < touchedCount; i++) {
+                distance[touched[i]] = INFINITY;
+            }
+            touchedCount = 0;
+            heap.clear();
+            distance[source] = 0;
+            touched[touchedCount++] = source;
+            heap.push(source, 0, 0);
+            int settledCount = 0;
+            while (!heap.isEmpty() && settledCount++ < WITNESS_SETTLE_LIMIT) {
+                int city = heap.poll();
+                if (distance[city] > limit) {
+                    break;
+                }
+                for (int k = 0; k < incidentCount[city]; k++) {
+                    int edge = incident[city][k];
+                    int neighbour = otherEnd(edge, city);
+                    if (neighbour == avoided || contracted[neighbour] || inRound[neighbour]) {
+                        continue;
+                    }
+                    int newDistance = distance[city] + edgeWeight[edge];
+                    if (newDistance <= limit && newDistance < distance[neighbour]) {
+                        if (distance[neighbour] == INFINITY) {
+                            touched[touchedCount++] = neighbour;
+                        }
+                        distance[neighbour] = newDistance;
+                        heap.push(neighbour, newDistance, 0);
+                    }
+                }
+            }
+        }
+
+        int distanceTo(int city) {
+            return distance[city];
+        }
+    }
+
+    private void addShortcut(int from, int to, int weight, int first, int second) {
+        // Two cities of the same round may ask for the same shortcut
+        for (int k = 0; k < incidentCount[from]; k++) {
+            int edge = incident[from][k];
+            if (otherEnd(edge, from) == to && edgeWeight[edge] <= weight) {
+                return;
+            }
+        }
+        int edge = addEdge(from, to, weight, first, second);
+        addIncident(from, edge);
+        addIncident(to, edge);
+    }
+
+    private void removeContractedEdges(int city) {
+        int kept = 0;
+        for (int k = 0; k < incidentCount[city]; k++) {
+            int edge = incident[city][k];
+            if (!contracted[otherEnd(edge, city)]) {
+                incident[city][kept++] = edge;
+            }
+        }
+        incidentCount[city] = kept;
+    }
+
+    private void addIncident(int city, int edge) {
+        if (incidentCount[city] == incident[city].length) {
+            incident[city] = Arrays.copyOf(incident[city], 2 * incidentCount[city]);
+        }
+        incident[city][incidentCount[city]++] = edge;
+    }
+
+    private int addEdge(int from, int to, int weight, int first, int second) {
+        if (edgeCount == edgeFrom.length) {
+            int capacity = 2 * edgeCount;
+            edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+            edgeTo = Arrays.copyOf(edgeTo, capacity);
+            edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+            edgeFirst = Arrays.copyOf(edgeFirst, capacity);
+            edgeSecond = Arrays.copyOf(edgeSecond, capacity);
+        }
+        edgeFrom[edgeCount] = from;
+        edgeTo[edgeCount] = to;
+        edgeWeight[edgeCount] = weight;
+        edgeFirst[edgeCount] = first;
+        edgeSecond[edgeCount] = second;
+        return edgeCount++;
+    }
+
+    private void buildUpwardGraph() {
+        upOffsets = new int[cityCount + 1];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            if (edgeFrom[edge] != edgeTo[edge]) {
+                upOffsets[lowerEnd(edge) + 1]++;
+            }
+        }
+        for (int city = 0; city < cityCount; city++) {
+            upOffsets[city + 1] += upOffsets[city];
+        }
+        upTargets = new int[upOffsets[cityCount]];
+        upEdges = new int[upOffsets[cityCount]];
+        int[] next = Arrays.copyOf(upOffsets, cityCount);
+        for (int edge = 0; edge < edgeCount; edge++) {
+            if (edgeFrom[edge] != edgeTo[edge]) {
+                int lower = lowerEnd(edge);
+                int slot = next[lower]++;
+                upTargets[slot] = otherEnd(edge, lower);
+                upEdges[slot] = edge;
+            }
+        }
+    }
+
+    private int lowerEnd(int edge) {
+        return rank[edgeFrom[edge]] < rank[edgeTo[edge]] ? edgeFrom[edge] : edgeTo[edge];
+    }
+
+    private int otherEnd(int edge, int city) {
+        return edgeFrom[edge] == city ? edgeTo[edge] : edgeFrom[edge];
+    }
+
+    private static void reverse(int[] values, int count) {
+        for (int i = 0, j = count - 1; i < j; i++, j--) {
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+}
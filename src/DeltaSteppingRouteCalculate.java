@@ -0,0 +1,79 @@
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+/**
+ * The DeltaSteppingRouteCalculate class calculates the fastest road between two cities like FastestRoadCalculate, but
+ * finds the distances with the parallel DeltaSteppingSearch, which keeps every core busy on very large maps. The route
+ * and its distance are the same as those FastestRoadCalculate reports. Maps with roads of distance 0 are searched
+ * with FastestRoadCalculate instead, since the route among roads of equal distance is only picked the same way when
+ * every road has a positive distance.
+ */
+public class DeltaSteppingRouteCalculate {
+    RoadTable roads;
+    private DeltaSteppingSearch search;
+    private String startingCity;
+    private String destinationCity;
+    private String customMessage;
+    private int totalFastestRoadDistance = 0;
+
+    /**
+     * Constructs a DeltaSteppingRouteCalculate object and finds the fastest road.
+     *
+     * @param search          the delta-stepping search over the roads
+     * @param startingCity    the starting city
+     * @param destinationCity the destination city
+     * @param customMessage   the custom message to be written
+     * @param sink            the sink to report the output to
+     * @throws IOException if an I/O error occurs
+     */
+    public DeltaSteppingRouteCalculate(DeltaSteppingSearch search, String startingCity, String destinationCity, String customMessage, ResultSink sink) throws IOException {
+        this.roads = search.getRoads();
+        this.search = search;
+        this.startingCity = startingCity;
+        this.destinationCity = destinationCity;
+        this.customMessage = customMessage;
+        findFastestRoad(sink);
+    }
+
+    /**
+     * Returns the total distance of the fastest road.
+     *
+     * @return the total distance of the fastest road
+     */
+    public int getTotalFastestRoadDistance() {
+        return totalFastestRoadDistance;
+    }
+
+    /**
+     * Finds the fastest road and reports the result to the given sink, in the same format as FastestRoadCalculate.
+     *
+     * @param sink the sink to report the output to
+     * @throws IOException if an I/O error occurs
+     */
+    public void findFastestRoad(ResultSink sink) throws IOException {
+        if (!search.hasPositiveDistances()) {
+            totalFastestRoadDistance = new FastestRoadCalculate(roads, startingCity, destinationCity, customMessage, sink).getTotalFastestRoadDistance();
+            return;
+        }
+        CityDictionary cities = roads.getCities();
+        int start = cities.indexOf(startingCity);
+        int destination = cities.indexOf(destinationCity);
+        if (start < 0 || destination < 0) {
+            throw new NoSuchElementException("No route from " + startingCity + " to " + destinationCity);
+        }
+
+        RunMetrics.Timer timer = RunMetrics.start(RunMetrics.Phase.FASTEST_ROUTE);
+        int[] distances = search.findDistances(start, destination);
+        int[] route = search.findRoute(start, destination, distances);
+        search.addCounts(timer);
+        timer.stop();
+        totalFastestRoadDistance = distances[destination];
+
+        RunMetrics.Timer output = RunMetrics.start(RunMetrics.Phase.OUTPUT);
+        sink.beginRoute(customMessage, totalFastestRoadDistance);
+        for (int road : route) {
+            sink.road(roads, road);
+        }
+        output.stop();
+    }
+}
@@ -0,0 +1,454 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * The DeltaSteppingSearch class finds the distances from one city to every city with the parallel delta-stepping
+ * algorithm of Meyer and Sanders. Cities are kept in buckets of the given width by distance. The cities of the lowest
+ * bucket are expanded together on a fork-join pool, first along their light roads (no longer than the width) until
+ * the bucket stops changing, then once along their heavy roads. Distances live in a plain int array and are only ever
+ * lowered, with a compare-and-set, so the workers need no locks.
+ * <p>
+ * The distances are the same as those of the sequential search. The route is then picked the way FastestRoadCalculate
+ * picks it among roads of equal distance: every city on the route hangs from the neighbour on a fastest road with the
+ * smallest (distance, ID of its own last road), and by the first such road in the road table. This only needs the
+ * cities that lie on some fastest road to the destination. Roads are assumed to have positive distances for the
+ * route; see {@link #hasPositiveDistances()}.
+ */
+public class DeltaSteppingSearch {
+    /**
+     * Distance of the cities that cannot be reached.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final VarHandle ELEMENTS = MethodHandles.arrayElementVarHandle(int[].class);
+    // Cities expanded by one task; smaller frontiers are expanded on the calling thread
+    private static final int CHUNK_SIZE = 512;
+    // Most buckets kept in the ring
+    private static final int MAX_BUCKETS = 1 << 16;
+
+    private final RoadTable roads;
+    private final RoadAdjacency adjacency;
+    private final ForkJoinPool pool;
+    private final int delta;
+    // Distance of the road in every adjacency slot, so a relaxation reads one array
+    private final int[] slotDistances;
+    private final int bucketCount;
+    private final boolean positiveDistances;
+    private final LongAdder roadsScanned = new LongAdder();
+    private final LongAdder relaxations = new LongAdder();
+
+    /**
+     * A growable list of city IDs.
+     */
+    private static final class IntBuffer {
+        private int[] values = new int[16];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * The buckets of the cities waiting to be expanded. The buckets just ahead of the current one are kept in a ring;
+     * cities further ahead wait in an overflow list and move into the ring once their bucket comes within its reach.
+     * Entries are never removed when a city moves to a lower bucket, they are skipped when their bucket is taken.
+     */
+    private static final class Buckets {
+        private final IntBuffer[] ring;
+        private final int delta;
+        private long ringEntries = 0;
+        private IntBuffer overflow = new IntBuffer();
+        // Lowest bucket of the cities in the overflow list when they were put there
+        private long overflowBucket = Long.MAX_VALUE;
+
+        Buckets(int bucketCount, int delta) {
+            this.delta = delta;
+            ring = new IntBuffer[bucketCount];
+            for (int i = 0; i < bucketCount; i++) {
+                ring[i] = new IntBuffer();
+            }
+        }
+
+        // Puts the cities into the buckets of their current distances, behind the current bucket
+        void place(IntBuffer cities, int[] distances, long bucket) {
+            for (int j = 0; j < cities.size; j++) {
+                int city = cities.values[j];
+                long target = distances[city] / delta;
+                if (target <= bucket) {
+                    // Lowered into the current bucket since, where it is expanded
+                    continue;
+                }
+                if (target - bucket < ring.length) {
+                    ring[(int) (target % ring.length)].add(city);
+                    ringEntries++;
+                } else {
+                    overflow.add(city);
+                    overflowBucket = Math.min(overflowBucket, target);
+                }
+            }
+        }
+
+        // Returns the next bucket after the given one that holds an entry, or -1 if none is left
+        long next(int[] distances, long bucket) {
+            while (true) {
+                if (overflow.size > 0 && overflowBucket - bucket < ring.length) {
+                    IntBuffer waiting = overflow;
+                    overflow = new IntBuffer();
+                    overflowBucket = Long.MAX_VALUE;
+                    place(waiting, distances, bucket);
+                }
+                if (ringEntries > 0) {
+                    break;
+                }
+                if (overflow.size == 0) {
+                    return -1;
+                }
+                // Jump ahead to just before the nearest bucket of the overflow list
+                bucket = overflowBucket - 1;
+            }
+            // No overflow bucket lies within the ring, so the first entry of the ring comes first
+            do {
+                bucket++;
+            } while (ring[(int) (bucket % ring.length)].size == 0);
+            return bucket;
+        }
+
+        // Removes and returns the entries of the given bucket
+        IntBuffer take(long bucket) {
+            int index = (int) (bucket % ring.length);
+            IntBuffer entries = ring[index];
+            ring[index] = new IntBuffer();
+            ringEntries -= entries.size;
+            return entries;
+        }
+    }
+
+    /**
+     * Constructs a search over the given roads.
+     *
+     * @param roads the road table, which must not change while the search is used
+     * @param pool  the pool the buckets are expanded on
+     * @param delta the bucket width, at least 1; see {@link #defaultDelta(RoadTable)}
+     */
+    public DeltaSteppingSearch(RoadTable roads, ForkJoinPool pool, int delta) {
+        if (delta < 1) {
+            throw new IllegalArgumentException("The bucket width must be at least 1: " + delta);
+        }
+        this.roads = roads;
+        this.adjacency = roads.getAdjacency();
+        this.pool = pool;
+        this.delta = delta;
+        int slots = adjacency.begin(adjacency.getCityCount());
+        slotDistances = new int[slots];
+        int maxDistance = 0;
+        boolean positive = true;
+        for (int slot = 0; slot < slots; slot++) {
+            int distance = roads.getDistance(adjacency.getRoadIndex(slot));
+            slotDistances[slot] = distance;
+            maxDistance = Math.max(maxDistance, distance);
+            positive &= distance > 0;
+        }
+        positiveDistances = positive;
+        bucketCount = (int) Math.min(MAX_BUCKETS, maxDistance / delta + 2L);
+    }
+
+    /**
+     * Returns a bucket width that suits the roads: their average distance, which keeps both the number of buckets and
+     * the work repeated inside a bucket small on road networks.
+     *
+     * @param roads the road table
+     * @return the bucket width
+     */
+    public static int defaultDelta(RoadTable roads) {
+        long total = 0;
+        for (int road = 0; road < roads.size(); road++) {
+            total += roads.getDistance(road);
+        }
+        return (int) Math.max(1, total / Math.max(1, roads.size()));
+    }
+
+    /**
+     * Returns the road table of the search.
+     *
+     * @return the road table
+     */
+    public RoadTable getRoads() {
+        return roads;
+    }
+
+    /**
+     * Returns the bucket width.
+     *
+     * @return the bucket width
+     */
+    public int getDelta() {
+        return delta;
+    }
+
+    /**
+     * Returns whether every road has a positive distance. Only then is the route picked the same way as by
+     * FastestRoadCalculate.
+     *
+     * @return true if no road has a distance of 0
+     */
+    public boolean hasPositiveDistances() {
+        return positiveDistances;
+    }
+
+    /**
+     * Adds the roads scanned and relaxations tried since the last call to the given timer.
+     *
+     * @param timer the timer to add the counts to
+     */
+    void addCounts(RunMetrics.Timer timer) {
+        timer.add(RunMetrics.Counter.ROADS_SCANNED, roadsScanned.sumThenReset());
+        timer.add(RunMetrics.Counter.RELAXATIONS, relaxations.sumThenReset());
+    }
+
+    /**
+     * Finds the distance from the starting city to every city, or stops once the distance of the destination is final.
+     * The distances of the cities farther away than the destination are then only upper bounds, which is enough for
+     * {@link #findRoute(int, int, int[])}.
+     *
+     * @param start       the starting city ID
+     * @param destination the destination city ID, or -1 to find the distances of all cities
+     * @return the distance to every city, UNREACHABLE for the cities that cannot be reached
+     */
+    public int[] findDistances(int start, int destination) {
+        int cityCount = adjacency.getCityCount();
+        int[] distances = new int[cityCount];
+        Arrays.fill(distances, UNREACHABLE);
+        distances[start] = 0;
+        // Phase in which a city was last put in the frontier, and bucket in which it was last expanded along heavy roads
+        int[] frontierMark = new int[cityCount];
+        int[] settledMark = new int[cityCount];
+        int phase = 0;
+
+        Buckets buckets = new Buckets(bucketCount, delta);
+        long bucket = 0;
+        int round = 0;
+        IntBuffer frontier = new IntBuffer();
+        frontier.add(start);
+        while (true) {
+            round++;
+            IntBuffer settled = new IntBuffer();
+            // Expand the light roads of the bucket until no distance in it changes
+            while (frontier.size > 0) {
+                phase++;
+                IntBuffer[][] found = expand(frontier, distances, frontierMark, phase, bucket, true);
+                frontier = new IntBuffer();
+                for (IntBuffer[] lists : found) {
+                    IntBuffer next = lists[0];
+                    for (int j = 0; j < next.size; j++) {
+                        frontier.add(next.values[j]);
+                    }
+                    buckets.place(lists[1], distances, bucket);
+                    IntBuffer expanded = lists[2];
+                    for (int j = 0; j < expanded.size; j++) {
+                        int city = expanded.values[j];
+                        if (settledMark[city] != round) {
+                            settledMark[city] = round;
+                            settled.add(city);
+                        }
+                    }
+                }
+            }
+            // The distances of the bucket are final, so its heavy roads are expanded once
+            if (settled.size > 0) {
+                phase++;
+                for (IntBuffer[] lists : expand(settled, distances, frontierMark, phase, bucket, false)) {
+                    buckets.place(lists[1], distances, bucket);
+                }
+            }
+
+            // Every distance up to the end of this bucket is final
+            if (destination >= 0 && distances[destination] / delta <= bucket) {
+                break;
+            }
+
+            // Move on to the next bucket that holds a city
+            bucket = buckets.next(distances, bucket);
+            if (bucket < 0) {
+                break;
+            }
+            IntBuffer next = buckets.take(bucket);
+            phase++;
+            frontier = new IntBuffer();
+            for (int j = 0; j < next.size; j++) {
+                int city = next.values[j];
+                // Skip entries left behind when the city moved to a lower bucket, and repeated entries
+                if (distances[city] / delta == bucket && frontierMark[city] != phase) {
+                    frontierMark[city] = phase;
+                    frontier.add(city);
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Picks the fastest road from the starting city to the destination among the roads of equal distance, the way
+     * FastestRoadCalculate does.
+     *
+     * @param start       the starting city ID
+     * @param destination the destination city ID
+     * @param distances   the distances found from the starting city, final at least up to the destination
+     * @return the rows of the roads on the route, from the starting city to the destination
+     * @throws NoSuchElementException if the destination cannot be reached
+     */
+    public int[] findRoute(int start, int destination, int[] distances) {
+        if (distances[destination] == UNREACHABLE) {
+            throw new NoSuchElementException("No reachable city left in the heap");
+        }
+        // Collect every city that lies on some fastest road to the destination
+        int cityCount = adjacency.getCityCount();
+        boolean[] onFastestRoad = new boolean[cityCount];
+        IntBuffer cities = new IntBuffer();
+        onFastestRoad[destination] = true;
+        cities.add(destination);
+        for (int i = 0; i < cities.size; i++) {
+            int city = cities.values[i];
+            for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                int neighbour = adjacency.getNeighbour(slot);
+                if (!onFastestRoad[neighbour] && isTight(neighbour, city, slot, distances)) {
+                    onFastestRoad[neighbour] = true;
+                    cities.add(neighbour);
+                }
+            }
+        }
+
+        // Pick the roads in distance order, so the last road of every neighbour is known when it is compared
+        long[] order = new long[cities.size];
+        for (int i = 0; i < cities.size; i++) {
+            order[i] = ((long) distances[cities.values[i]] << 32) | cities.values[i];
+        }
+        Arrays.sort(order);
+        int[] predecessorRoads = new int[cityCount];
+        Arrays.fill(predecessorRoads, -1);
+        for (long entry : order) {
+            int city = (int) entry;
+            if (city != start) {
+                predecessorRoads[city] = pickRoad(start, city, distances, predecessorRoads);
+            }
+        }
+        return new ShortestPathTreeCache.Tree(start, roads.getVersion(), distances, predecessorRoads).getRoute(roads, destination);
+    }
+
+    // Expands the roads of the given cities, light or heavy ones, and returns for every task the cities to expand
+    // again in the current bucket, the cities for later buckets and the cities it expanded
+    private IntBuffer[][] expand(IntBuffer cities, int[] distances, int[] frontierMark, int phase, long bucket, boolean light) {
+        int tasks = (cities.size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntBuffer[][] found = new IntBuffer[tasks][];
+        if (tasks == 1) {
+            found[0] = expandChunk(cities, 0, distances, frontierMark, phase, bucket, light);
+        } else {
+            pool.submit(() -> IntStream.range(0, tasks).parallel().forEach(task ->
+                    found[task] = expandChunk(cities, task, distances, frontierMark, phase, bucket, light))).join();
+        }
+        return found;
+    }
+
+    private IntBuffer[] expandChunk(IntBuffer cities, int task, int[] distances, int[] frontierMark, int phase, long bucket, boolean light) {
+        IntBuffer current = new IntBuffer();
+        IntBuffer later = new IntBuffer();
+        IntBuffer expanded = new IntBuffer();
+        long scanned = 0;
+        long tried = 0;
+        int end = Math.min(cities.size, (task + 1) * CHUNK_SIZE);
+        for (int i = task * CHUNK_SIZE; i < end; i++) {
+            int city = cities.values[i];
+            int distance = (int) ELEMENTS.getVolatile(distances, city);
+            // A city that moved to a lower bucket has nothing to add here
+            if (light && distance / delta != bucket) {
+                continue;
+            }
+            expanded.add(city);
+            int from = adjacency.begin(city);
+            int to = adjacency.end(city);
+            scanned += to - from;
+            for (int slot = from; slot < to; slot++) {
+                int roadDistance = slotDistances[slot];
+                if ((roadDistance <= delta) != light) {
+                    continue;
+                }
+                long newDistance = (long) distance + roadDistance;
+                if (newDistance >= UNREACHABLE) {
+                    continue;
+                }
+                tried++;
+                int neighbour = adjacency.getNeighbour(slot);
+                if (lower(distances, neighbour, (int) newDistance)) {
+                    if (newDistance / delta == bucket) {
+                        if (mark(frontierMark, neighbour, phase)) {
+                            current.add(neighbour);
+                        }
+                    } else {
+                        later.add(neighbour);
+                    }
+                }
+            }
+        }
+        roadsScanned.add(scanned);
+        relaxations.add(tried);
+        return new IntBuffer[]{current, later, expanded};
+    }
+
+    // Lowers the distance of a city if the new distance is shorter, returning whether it was lowered
+    private static boolean lower(int[] distances, int city, int newDistance) {
+        int current = (int) ELEMENTS.getVolatile(distances, city);
+        while (newDistance < current) {
+            if (ELEMENTS.compareAndSet(distances, city, current, newDistance)) {
+                return true;
+            }
+            current = (int) ELEMENTS.getVolatile(distances, city);
+        }
+        return false;
+    }
+
+    // Marks a city for the given phase, returning whether it was not marked yet
+    private static boolean mark(int[] marks, int city, int phase) {
+        int current = (int) ELEMENTS.getVolatile(marks, city);
+        while (current != phase) {
+            if (ELEMENTS.compareAndSet(marks, city, current, phase)) {
+                return true;
+            }
+            current = (int) ELEMENTS.getVolatile(marks, city);
+        }
+        return false;
+    }
+
+    private boolean isTight(int neighbour, int city, int slot, int[] distances) {
+        return neighbour != city && distances[neighbour] != UNREACHABLE
+                && (long) distances[neighbour] + slotDistances[slot] == distances[city];
+    }
+
+    // The road FastestRoadCalculate settles the city by: the first road from the first settled neighbour on a fastest road
+    private int pickRoad(int start, int city, int[] distances, int[] predecessorRoads) {
+        int best = -1;
+        long bestKey = 0;
+        for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+            int neighbour = adjacency.getNeighbour(slot);
+            if (!isTight(neighbour, city, slot, distances)) {
+                continue;
+            }
+            // (distance, ID of the last road) as one long, in the order FastestRoadCalculate settles the cities
+            long key = neighbour == start ? Long.MIN_VALUE
+                    : ((long) distances[neighbour] << 32) | ((roads.getID(predecessorRoads[neighbour]) ^ Integer.MIN_VALUE) & 0xffffffffL);
+            int road = adjacency.getRoadIndex(slot);
+            if (best < 0 || key < bestKey || (key == bestKey && road < best)) {
+                best = road;
+                bestKey = key;
+            }
+        }
+        return best;
+    }
+}
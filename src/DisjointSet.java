@@ -0,0 +1,78 @@
+/**
+ * The DisjointSet class is a union-find structure over dense city indices, using path compression and
+ * union by rank.
+ */
+public class DisjointSet {
+    private final int[] parent;
+    private final byte[] rank;
+    private int componentCount;
+
+    /**
+     * Constructs a disjoint set in which every city 0 to size - 1 is its own component.
+     *
+     * @param size the number of cities
+     */
+    public DisjointSet(int size) {
+        parent = new int[size];
+        rank = new byte[size];
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+        }
+        componentCount = size;
+    }
+
+    /**
+     * Returns the representative of the component containing the given city.
+     *
+     * @param city the city index
+     * @return the representative city index
+     */
+    public int find(int city) {
+        int root = city;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        // Point every city on the way directly at the root
+        while (parent[city] != root) {
+            int next = parent[city];
+            parent[city] = root;
+            city = next;
+        }
+        return root;
+    }
+
+    /**
+     * Merges the components of the two given cities.
+     *
+     * @param a the first city index
+     * @param b the second city index
+     * @return true if the cities were in different components
+     */
+    public boolean union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return false;
+        }
+        if (rank[rootA] < rank[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA;
+        if (rank[rootA] == rank[rootB]) {
+            rank[rootA]++;
+        }
+        componentCount--;
+        return true;
+    }
+
+    /**
+     * Returns the number of components.
+     *
+     * @return the number of components
+     */
+    public int getComponentCount() {
+        return componentCount;
+    }
+}
@@ -0,0 +1,361 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The DynamicRoadMap class holds a road map whose roads can be added, removed and change distance. Every road ever
+ * added gets a slot that is never reused, and every city keeps the slots of its live roads in an incident list, so a
+ * change only touches the two cities of the road. Results kept up to date under changes register as listeners and
+ * are told about every change after it is made.
+ * <p>
+ * Live roads in slot order are the roads in the order they were added, which is the row order of getRoads.
+ */
+public class DynamicRoadMap {
+    private final CityDictionary cities;
+    private final List<RoadChangeListener> listeners = new ArrayList<>();
+
+    private int[] city1 = new int[0];
+    private int[] city2 = new int[0];
+    private int[] distance = new int[0];
+    private int[] ID = new int[0];
+    private boolean[] alive = new boolean[0];
+    private int slotCount = 0;
+    private final HashMap<Integer, Integer> slotByID;
+    // Positions of every road in the incident lists of its two cities
+    private int[] position1 = new int[0];
+    private int[] position2 = new int[0];
+
+    private int[][] incident = new int[0][];
+    private int[] degree = new int[0];
+    private int cityCount = 0;
+
+    private long totalDistance = 0;
+
+    /**
+     * Constructs a dynamic road map holding the given roads, whose slots are their rows. New cities of added roads are
+     * added to the same city dictionary.
+     *
+     * @param roads the road table
+     */
+    public DynamicRoadMap(RoadTable roads) {
+        this.cities = roads.getCities();
+        this.slotByID = new HashMap<>(2 * roads.size());
+        ensureSlots(roads.size());
+        ensureCities(cities.size());
+        for (int road = 0; road < roads.size(); road++) {
+            newSlot(roads.getCity1(road), roads.getCity2(road), roads.getDistance(road), roads.getID(road));
+        }
+    }
+
+    /**
+     * Registers a listener that is told about every following change.
+     *
+     * @param listener the listener
+     */
+    public void addListener(RoadChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Applies one change to the roads.
+     *
+     * @param change the change
+     * @throws IllegalArgumentException if an added road has the ID of a road that is already there
+     * @throws NoSuchElementException   if a removed or changed road does not exist
+     */
+    public void apply(RoadChange change) {
+        switch (change.getType()) {
+            case ADD:
+                addRoad(change.getCity1(), change.getCity2(), change.getDistance(), change.getID());
+                break;
+            case REMOVE:
+                removeRoad(change.getID());
+                break;
+            default:
+                changeDistance(change.getID(), change.getDistance());
+                break;
+        }
+    }
+
+    /**
+     * Adds a road.
+     *
+     * @param city1    the first city
+     * @param city2    the second city
+     * @param distance the distance of the road
+     * @param ID       the unique identifier of the road
+     * @throws IllegalArgumentException if there already is a road with the ID
+     */
+    public void addRoad(String city1, String city2, int distance, int ID) {
+        if (slotByID.containsKey(ID)) {
+            throw new IllegalArgumentException("Road " + ID + " already exists");
+        }
+        int a = cities.getOrAdd(city1);
+        int b = cities.getOrAdd(city2);
+        ensureCities(cities.size());
+        int slot = newSlot(a, b, distance, ID);
+        for (RoadChangeListener listener : listeners) {
+            listener.roadAdded(slot);
+        }
+    }
+
+    /**
+     * Removes a road.
+     *
+     * @param ID the identifier of the road
+     * @throws NoSuchElementException if there is no road with the ID
+     */
+    public void removeRoad(int ID) {
+        Integer slot = slotByID.remove(ID);
+        if (slot == null) {
+            throw new NoSuchElementException("No road with ID " + ID);
+        }
+        alive[slot] = false;
+        totalDistance -= distance[slot];
+        removeIncident(city1[slot], position1[slot]);
+        removeIncident(city2[slot], position2[slot]);
+        for (RoadChangeListener listener : listeners) {
+            listener.roadRemoved(slot);
+        }
+    }
+
+    /**
+     * Changes the distance of a road.
+     *
+     * @param ID          the identifier of the road
+     * @param newDistance the new distance of the road
+     * @throws NoSuchElementException if there is no road with the ID
+     */
+    public void changeDistance(int ID, int newDistance) {
+        Integer slot = slotByID.get(ID);
+        if (slot == null) {
+            throw new NoSuchElementException("No road with ID " + ID);
+        }
+        int oldDistance = distance[slot];
+        if (newDistance == oldDistance) {
+            return;
+        }
+        distance[slot] = newDistance;
+        totalDistance += newDistance - oldDistance;
+        for (RoadChangeListener listener : listeners) {
+            listener.distanceChanged(slot, oldDistance);
+        }
+    }
+
+    /**
+     * Returns the city dictionary of the map.
+     *
+     * @return the city dictionary
+     */
+    public CityDictionary getCities() {
+        return cities;
+    }
+
+    /**
+     * Returns the number of cities.
+     *
+     * @return the number of cities
+     */
+    public int getCityCount() {
+        return cityCount;
+    }
+
+    /**
+     * Returns the number of slots, live or not.
+     *
+     * @return the number of slots
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Returns the slot of a live road.
+     *
+     * @param ID the identifier of the road
+     * @return the slot, or -1 if there is no road with the ID
+     */
+    public int getSlot(int ID) {
+        Integer slot = slotByID.get(ID);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Returns whether the road in a slot is still there.
+     *
+     * @param slot the slot
+     * @return true if the road was not removed
+     */
+    public boolean isAlive(int slot) {
+        return alive[slot];
+    }
+
+    /**
+     * Returns the first city of a road.
+     *
+     * @param slot the slot of the road
+     * @return the city ID
+     */
+    public int getCity1(int slot) {
+        return city1[slot];
+    }
+
+    /**
+     * Returns the second city of a road.
+     *
+     * @param slot the slot of the road
+     * @return the city ID
+     */
+    public int getCity2(int slot) {
+        return city2[slot];
+    }
+
+    /**
+     * Returns the city at the other end of a road.
+     *
+     * @param slot the slot of the road
+     * @param city the city ID at one end
+     * @return the city ID at the other end
+     */
+    public int getOtherCity(int slot, int city) {
+        return city1[slot] == city ? city2[slot] : city1[slot];
+    }
+
+    /**
+     * Returns the distance of a road.
+     *
+     * @param slot the slot of the road
+     * @return the distance
+     */
+    public int getDistance(int slot) {
+        return distance[slot];
+    }
+
+    /**
+     * Returns the ID of a road.
+     *
+     * @param slot the slot of the road
+     * @return the ID
+     */
+    public int getID(int slot) {
+        return ID[slot];
+    }
+
+    /**
+     * Returns the number of live roads at a city.
+     *
+     * @param city the city ID
+     * @return the number of roads
+     */
+    public int getDegree(int city) {
+        return degree[city];
+    }
+
+    /**
+     * Returns the slot of one of the live roads at a city. The roads of a city are in no particular order.
+     *
+     * @param city  the city ID
+     * @param index the index of the road, below the degree of the city
+     * @return the slot of the road
+     */
+    public int getIncident(int city, int index) {
+        return incident[city][index];
+    }
+
+    /**
+     * Returns the total distance of all live roads.
+     *
+     * @return the total distance
+     */
+    public int getTotalDistance() {
+        return (int) totalDistance;
+    }
+
+    /**
+     * Returns a road as a tab-separated line, like RoadTable.
+     *
+     * @param slot the slot of the road
+     * @return the line
+     */
+    public String toLine(int slot) {
+        return cities.getName(city1[slot]) + "\t" + cities.getName(city2[slot]) + "\t" + distance[slot] + "\t" + ID[slot];
+    }
+
+    /**
+     * Returns the live roads, in the order they were added.
+     *
+     * @return the road table
+     */
+    public RoadTable getRoads() {
+        RoadTable roads = new RoadTable(cities, slotByID.size());
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (alive[slot]) {
+                roads.add(city1[slot], city2[slot], distance[slot], ID[slot]);
+            }
+        }
+        return roads;
+    }
+
+    private int newSlot(int a, int b, int roadDistance, int roadID) {
+        if (slotCount == ID.length) {
+            ensureSlots(slotCount + (slotCount >> 1) + 16);
+        }
+        int slot = slotCount++;
+        city1[slot] = a;
+        city2[slot] = b;
+        distance[slot] = roadDistance;
+        ID[slot] = roadID;
+        alive[slot] = true;
+        slotByID.put(roadID, slot);
+        totalDistance += roadDistance;
+        position1[slot] = addIncident(a, slot);
+        position2[slot] = addIncident(b, slot);
+        return slot;
+    }
+
+    private void ensureSlots(int capacity) {
+        city1 = Arrays.copyOf(city1, capacity);
+        city2 = Arrays.copyOf(city2, capacity);
+        distance = Arrays.copyOf(distance, capacity);
+        ID = Arrays.copyOf(ID, capacity);
+        alive = Arrays.copyOf(alive, capacity);
+        position1 = Arrays.copyOf(position1, capacity);
+        position2 = Arrays.copyOf(position2, capacity);
+    }
+
+    private int addIncident(int city, int slot) {
+        if (degree[city] == incident[city].length) {
+            incident[city] = Arrays.copyOf(incident[city], 2 * degree[city] + 2);
+        }
+        incident[city][degree[city]] = slot;
+        return degree[city]++;
+    }
+
+    // Removes the road at the given position by moving the last road of the city into its place
+    private void removeIncident(int city, int position) {
+        int last = incident[city][--degree[city]];
+        incident[city][position] = last;
+        if (city1[last] == city && position1[last] == degree[city]) {
+            position1[last] = position;
+        } else {
+            position2[last] = position;
+        }
+    }
+
+    private void ensureCities(int count) {
+        if (count <= cityCount) {
+            return;
+        }
+        if (count > degree.length) {
+            int capacity = Math.max(count, degree.length + (degree.length >> 1) + 16);
+            incident = Arrays.copyOf(incident, capacity);
+            degree = Arrays.copyOf(degree, capacity);
+        }
+        for (int city = cityCount; city < count; city++) {
+            incident[city] = new int[0];
+        }
+        cityCount = count;
+    }
+}
@@ -0,0 +1,424 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The DynamicShortestPathTree class keeps the fastest roads from one starting city to every city of a DynamicRoadMap
+ * while roads change, repairing only the part of the tree a change affects, in the style of Ramalingam and Reps.
+ * <p>
+ * A road that gets shorter or is added can only bring cities closer, so a search starts from its far end and stops
+ * where no distance improves. A road of the tree that gets longer or is removed can only push away the cities below
+ * it, so their distances are dropped and found again from the cities around them. Among roads of equal distance, the
+ * tree keeps the one FastestRoadCalculate picks: every city hangs from the neighbour on a fastest road with the
+ * smallest (distance, ID of its own last road), and by the first such road in the order the roads were added. After
+ * the distances are repaired, that choice is made again for the changed cities and passed on only while it changes.
+ * <p>
+ * That choice relies on cities of equal distance being settled in the order of the ID of their last road, which only
+ * holds when every road has a positive distance. While the map has roads of 0 KM, the whole tree is found again after
+ * every change instead, the way FastestRoadCalculate finds it.
+ */
+public class DynamicShortestPathTree implements RoadChangeListener {
+    /**
+     * Distance of the cities that cannot be reached.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final DynamicRoadMap roads;
+    private final int source;
+    private int[] distance = new int[0];
+    private int[] predecessorRoad = new int[0];
+    private int cityCount = 0;
+    // Live roads of 0 KM; while there are any, changes are not repaired but found again
+    private int zeroDistanceRoads = 0;
+
+    // Scratch space of a repair, sized to the cities and reused by every change
+    private IndexedRoadHeap search = new IndexedRoadHeap(0);
+    private IndexedRoadHeap pending = new IndexedRoadHeap(0);
+    private int[] changed = new int[0];
+    private int changedCount = 0;
+    private int[] changedMark = new int[0];
+    private int[] subtreeMark = new int[0];
+    private int epoch = 0;
+    private long repairedCities = 0;
+
+    /**
+     * Constructs the fastest-road tree of a starting city and keeps it up to date under every following change.
+     *
+     * @param roads        the dynamic road map
+     * @param startingCity the starting city
+     * @throws NoSuchElementException if the starting city is not on the map
+     */
+    public DynamicShortestPathTree(DynamicRoadMap roads, String startingCity) {
+        this.roads = roads;
+        this.source = roads.getCities().indexOf(startingCity);
+        if (source < 0) {
+            throw new NoSuchElementException("No city named " + startingCity);
+        }
+        ensureCities(roads.getCityCount());
+        for (int slot = 0; slot < roads.getSlotCount(); slot++) {
+            if (roads.isAlive(slot) && roads.getDistance(slot) == 0) {
+                zeroDistanceRoads++;
+            }
+        }
+        if (zeroDistanceRoads > 0) {
+            recompute();
+        } else {
+            epoch++;
+            lower(source, 0);
+            propagate();
+            resolve(-1, -1);
+        }
+        roads.addListener(this);
+    }
+
+    @Override
+    public void roadAdded(int slot) {
+        ensureCities(roads.getCityCount());
+        if (roads.getDistance(slot) == 0) {
+            zeroDistanceRoads++;
+        }
+        if (zeroDistanceRoads > 0) {
+            recompute();
+            return;
+        }
+        epoch++;
+        shorten(slot);
+    }
+
+    @Override
+    public void roadRemoved(int slot) {
+        if (roads.getDistance(slot) == 0) {
+            zeroDistanceRoads--;
+        }
+        if (zeroDistanceRoads > 0 || roads.getDistance(slot) == 0) {
+            recompute();
+            return;
+        }
+        epoch++;
+        lengthen(slot);
+    }
+
+    @Override
+    public void distanceChanged(int slot, int oldDistance) {
+        if (oldDistance == 0) {
+            zeroDistanceRoads--;
+        }
+        if (roads.getDistance(slot) == 0) {
+            zeroDistanceRoads++;
+        }
+        if (zeroDistanceRoads > 0 || oldDistance == 0) {
+            recompute();
+            return;
+        }
+        epoch++;
+        if (roads.getDistance(slot) < oldDistance) {
+            shorten(slot);
+        } else {
+            lengthen(slot);
+        }
+    }
+
+    /**
+     * Returns the distance of the fastest road from the starting city to a city.
+     *
+     * @param city the city ID
+     * @return the distance, or UNREACHABLE if the city cannot be reached
+     */
+    public int getDistance(int city) {
+        return city < 0 || city >= cityCount ? UNREACHABLE : distance[city];
+    }
+
+    /**
+     * Returns the roads of the fastest road from the starting city to a city.
+     *
+     * @param city the destination city ID
+     * @return the slots of the roads, in order from the starting city
+     * @throws NoSuchElementException if the city cannot be reached
+     */
+    public int[] getRoute(int city) {
+        if (getDistance(city) == UNREACHABLE) {
+            throw new NoSuchElementException("No route to city " + city);
+        }
+        int hops = 0;
+        for (int c = city; c != source; hops++) {
+            c = roads.getOtherCity(predecessorRoad[c], c);
+        }
+        int[] route = new int[hops];
+        for (int c = city; c != source; c = roads.getOtherCity(predecessorRoad[c], c)) {
+            route[--hops] = predecessorRoad[c];
+        }
+        return route;
+    }
+
+    /**
+     * Reports the fastest road to a city like FastestRoadCalculate.
+     *
+     * @param destinationCity the destination city
+     * @param customMessage   the custom message to be written
+     * @param sink            the sink to report the output to
+     * @return the total distance of the fastest road
+     * @throws IOException            if an I/O error occurs
+     * @throws NoSuchElementException if the city cannot be reached
+     */
+    public int writeFastestRoad(String destinationCity, String customMessage, ResultSink sink) throws IOException {
+        int destination = roads.getCities().indexOf(destinationCity);
+        if (getDistance(destination) == UNREACHABLE) {
+            throw new NoSuchElementException("No route from " + roads.getCities().getName(source) + " to " + destinationCity);
+        }
+        int[] route = getRoute(destination);
+        sink.beginRoute(customMessage, distance[destination]);
+        for (int slot : route) {
+            sink.road(roads.getCities(), roads.getCity1(slot), roads.getCity2(slot), roads.getDistance(slot), roads.getID(slot));
+        }
+        return distance[destination];
+    }
+
+    /**
+     * Returns the number of cities whose distance or road was looked at again by the repairs so far.
+     *
+     * @return the number of repaired cities
+     */
+    public long getRepairedCities() {
+        return repairedCities;
+    }
+
+    // A shorter or new road can only lower distances beyond its farther end
+    private void shorten(int slot) {
+        int a = roads.getCity1(slot);
+        int b = roads.getCity2(slot);
+        if (a == b) {
+            return;
+        }
+        int near = distance[a] <= distance[b] ? a : b;
+        int far = near == a ? b : a;
+        if (distance[near] == UNREACHABLE) {
+            return;
+        }
+        long newDistance = (long) distance[near] + roads.getDistance(slot);
+        if (newDistance > distance[far]) {
+            return;
+        }
+        // An equal distance only gives the far end another road to pick from
+        if (newDistance < distance[far]) {
+            lower(far, (int) newDistance);
+            propagate();
+        }
+        resolve(far, -1);
+    }
+
+    // A longer or removed road only matters if a city hangs from it, and then only for the cities below that one
+    private void lengthen(int slot) {
+        int a = roads.getCity1(slot);
+        int b = roads.getCity2(slot);
+        int below = predecessorRoad[a] == slot ? a : predecessorRoad[b] == slot ? b : -1;
+        if (a == b || below < 0) {
+            return;
+        }
+
+        // Collect the subtree and forget its distances
+        int from = changedCount;
+        subtreeMark[below] = epoch;
+        markChanged(below);
+        for (int i = from; i < changedCount; i++) {
+            int city = changed[i];
+            for (int j = 0; j < roads.getDegree(city); j++) {
+                int road = roads.getIncident(city, j);
+                int child = roads.getOtherCity(road, city);
+                if (predecessorRoad[child] == road && subtreeMark[child] != epoch) {
+                    subtreeMark[child] = epoch;
+                    markChanged(child);
+                }
+            }
+        }
+        for (int i = from; i < changedCount; i++) {
+            distance[changed[i]] = UNREACHABLE;
+            predecessorRoad[changed[i]] = -1;
+        }
+
+        // Reach the subtree again from the cities around it
+        for (int i = from; i < changedCount; i++) {
+            int city = changed[i];
+            for (int j = 0; j < roads.getDegree(city); j++) {
+                int road = roads.getIncident(city, j);
+                int neighbour = roads.getOtherCity(road, city);
+                if (subtreeMark[neighbour] != epoch && distance[neighbour] != UNREACHABLE) {
+                    long newDistance = (long) distance[neighbour] + roads.getDistance(road);
+                    if (newDistance < distance[city]) {
+                        lower(city, (int) newDistance);
+                    }
+                }
+            }
+        }
+        propagate();
+        resolve(a, b);
+    }
+
+    private void lower(int city, int newDistance) {
+        distance[city] = newDistance;
+        search.push(city, newDistance, 0);
+        markChanged(city);
+    }
+
+    // Dijkstra's algorithm from the cities whose distances were lowered
+    private void propagate() {
+        while (!search.isEmpty()) {
+            int city = search.poll();
+            for (int j = 0; j < roads.getDegree(city); j++) {
+                int road = roads.getIncident(city, j);
+                int neighbour = roads.getOtherCity(road, city);
+                long newDistance = (long) distance[city] + roads.getDistance(road);
+                if (newDistance < distance[neighbour]) {
+                    lower(neighbour, (int) newDistance);
+                }
+            }
+        }
+    }
+
+    // Dijkstra's algorithm over the whole map from the starting city, exactly as FastestRoadCalculate runs it: the roads
+    // of every city are scanned in slot order, which is their row order in getRoads, cities are settled by (distance, ID
+    // of their last road), and only a strictly shorter distance replaces the road that reached a city first
+    private void recompute() {
+        int slotCount = roads.getSlotCount();
+        int[] offsets = new int[cityCount + 1];
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (roads.isAlive(slot)) {
+                offsets[roads.getCity1(slot) + 1]++;
+                offsets[roads.getCity2(slot) + 1]++;
+            }
+        }
+        for (int city = 0; city < cityCount; city++) {
+            offsets[city + 1] += offsets[city];
+        }
+        int[] slots = new int[offsets[cityCount]];
+        int[] next = Arrays.copyOf(offsets, cityCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (roads.isAlive(slot)) {
+                slots[next[roads.getCity1(slot)]++] = slot;
+                slots[next[roads.getCity2(slot)]++] = slot;
+            }
+        }
+
+        Arrays.fill(distance, 0, cityCount, UNREACHABLE);
+        Arrays.fill(predecessorRoad, 0, cityCount, -1);
+        boolean[] settled = new boolean[cityCount];
+        search.clear();
+        int city = source;
+        distance[source] = 0;
+        settled[source] = true;
+        while (true) {
+            for (int i = offsets[city]; i < offsets[city + 1]; i++) {
+                int slot = slots[i];
+                int neighbour = roads.getOtherCity(slot, city);
+                if (settled[neighbour]) {
+                    continue;
+                }
+                int newDistance = distance[city] + roads.getDistance(slot);
+                if (!search.contains(neighbour) || newDistance < search.getDistance(neighbour)) {
+                    search.push(neighbour, newDistance, roads.getID(slot));
+                    predecessorRoad[neighbour] = slot;
+                }
+            }
+            if (search.isEmpty()) {
+                break;
+            }
+            city = search.poll();
+            distance[city] = search.getDistance(city);
+            settled[city] = true;
+        }
+        changedCount = 0;
+        repairedCities += cityCount;
+    }
+
+    // Picks the road of every changed city again, by distance, and passes on every pick that changes
+    private void resolve(int a, int b) {
+        for (int i = 0; i < changedCount; i++) {
+            enqueue(changed[i]);
+        }
+        if (a >= 0) {
+            enqueue(a);
+        }
+        if (b >= 0) {
+            enqueue(b);
+        }
+        while (!pending.isEmpty()) {
+            int city = pending.poll();
+            repairedCities++;
+            if (city == source) {
+                continue;
+            }
+            int road = pickRoad(city);
+            if (road == predecessorRoad[city] && changedMark[city] != epoch) {
+                continue;
+            }
+            predecessorRoad[city] = road;
+            for (int j = 0; j < roads.getDegree(city); j++) {
+                int neighbour = roads.getOtherCity(roads.getIncident(city, j), city);
+                if (distance[neighbour] != UNREACHABLE && distance[neighbour] > distance[city]) {
+                    pending.push(neighbour, distance[neighbour], 0);
+                }
+            }
+        }
+        changedCount = 0;
+    }
+
+    private void enqueue(int city) {
+        if (distance[city] != UNREACHABLE) {
+            pending.push(city, distance[city], 0);
+        }
+    }
+
+    // The road FastestRoadCalculate settles the city by: the first road from the first settled neighbour on a fastest road
+    private int pickRoad(int city) {
+        int best = -1;
+        long bestKey = 0;
+        for (int j = 0; j < roads.getDegree(city); j++) {
+            int road = roads.getIncident(city, j);
+            int neighbour = roads.getOtherCity(road, city);
+            if (neighbour == city || distance[neighbour] == UNREACHABLE
+                    || (long) distance[neighbour] + roads.getDistance(road) != distance[city]) {
+                continue;
+            }
+            long key = settleKey(neighbour);
+            if (best < 0 || key < bestKey || (key == bestKey && road < best)) {
+                best = road;
+                bestKey = key;
+            }
+        }
+        return best;
+    }
+
+    // (distance, ID of the last road) as one long, in the order FastestRoadCalculate settles the cities
+    private long settleKey(int city) {
+        if (city == source) {
+            return Long.MIN_VALUE;
+        }
+        return ((long) distance[city] << 32) | ((roads.getID(predecessorRoad[city]) ^ Integer.MIN_VALUE) & 0xffffffffL);
+    }
+
+    private void markChanged(int city) {
+        if (changedMark[city] != epoch) {
+            changedMark[city] = epoch;
+            changed[changedCount++] = city;
+        }
+    }
+
+    private void ensureCities(int count) {
+        if (count <= cityCount) {
+            return;
+        }
+        if (count > distance.length) {
+            int capacity = Math.max(count, distance.length + (distance.length >> 1) + 16);
+            int old = distance.length;
+            distance = Arrays.copyOf(distance, capacity);
+            predecessorRoad = Arrays.copyOf(predecessorRoad, capacity);
+            Arrays.fill(distance, old, capacity, UNREACHABLE);
+            Arrays.fill(predecessorRoad, old, capacity, -1);
+            changed = Arrays.copyOf(changed, capacity);
+            changedMark = Arrays.copyOf(changedMark, capacity);
+            subtreeMark = Arrays.copyOf(subtreeMark, capacity);
+            search = new IndexedRoadHeap(capacity);
+            pending = new IndexedRoadHeap(capacity);
+        }
+        cityCount = count;
+    }
+}
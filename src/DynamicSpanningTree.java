@@ -0,0 +1,343 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The DynamicSpanningTree class keeps the barely connected map of a DynamicRoadMap while roads are added, removed and
+ * change distance, without building it again from scratch. Roads are ordered by (distance, ID), so the barely
+ * connected map is unique and always equal to the one BarelyConnectedMapCalculate finds for the current roads.
+ * <p>
+ * The map is kept in a LinkCutTree that holds a node per city and a node per road. A road that joins two cities
+ * already connected by the map replaces the longest road on the path between them if it is shorter, which is found in
+ * amortized O(log V). When a road on the map is removed or gets longer, the two sides it separated are walked together
+ * until the smaller one is finished, and the shortest road leaving that side reconnects them.
+ */
+public class DynamicSpanningTree implements RoadChangeListener {
+    private static final long NO_ROAD = Long.MAX_VALUE;
+
+    private final DynamicRoadMap roads;
+    private final LinkCutTree forest;
+
+    private boolean[] onMap = new boolean[0];
+    private int[] roadNode = new int[0];
+    private int[] cityNode = new int[0];
+    private int cityCount = 0;
+
+    private long totalDistance = 0;
+    private int roadCountOnMap = 0;
+
+    // Scratch space for reconnecting two sides after a road leaves the map
+    private int[] mark = new int[0];
+    private int epoch = 0;
+    private int[] queue = new int[0];
+
+    /**
+     * Constructs the barely connected map of the current roads and keeps it up to date under every following change.
+     *
+     * @param roads the dynamic road map
+     */
+    public DynamicSpanningTree(DynamicRoadMap roads) {
+        this.roads = roads;
+        int slotCount = roads.getSlotCount();
+        this.forest = new LinkCutTree(roads.getCityCount() + slotCount);
+        ensureSlots(slotCount);
+        ensureCities(roads.getCityCount());
+        for (int slot = 0; slot < slotCount; slot++) {
+            roadNode[slot] = forest.addNode(key(slot), roads.getDistance(slot));
+        }
+
+        // Start from Kruskal's algorithm over the sorted roads
+        long[] keys = new long[slotCount];
+        int count = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (roads.isAlive(slot)) {
+                keys[count++] = key(slot);
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        DisjointSet components = new DisjointSet(cityCount);
+        for (int i = 0; i < count; i++) {
+            int slot = slotOf(keys[i]);
+            if (components.union(roads.getCity1(slot), roads.getCity2(slot))) {
+                onMap[slot] = true;
+                totalDistance += roads.getDistance(slot);
+                roadCountOnMap++;
+            }
+        }
+
+        // Link the map breadth-first from a root per tree, so every link only touches a city that is still alone
+        boolean[] linked = new boolean[cityCount];
+        for (int root = 0; root < cityCount; root++) {
+            if (linked[root]) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = root;
+            linked[root] = true;
+            while (head < tail) {
+                int city = queue[head++];
+                for (int j = 0; j < roads.getDegree(city); j++) {
+                    int slot = roads.getIncident(city, j);
+                    int child = roads.getOtherCity(slot, city);
+                    if (onMap[slot] && !linked[child]) {
+                        linked[child] = true;
+                        forest.link(roadNode[slot], cityNode[city]);
+                        forest.link(cityNode[child], roadNode[slot]);
+                        queue[tail++] = child;
+                    }
+                }
+            }
+        }
+        roads.addListener(this);
+    }
+
+    @Override
+    public void roadAdded(int slot) {
+        ensureCities(roads.getCityCount());
+        if (slot >= roadNode.length) {
+            ensureSlots(slot + (slot >> 1) + 16);
+        }
+        roadNode[slot] = forest.addNode(key(slot), roads.getDistance(slot));
+        offer(slot);
+    }
+
+    @Override
+    public void roadRemoved(int slot) {
+        if (onMap[slot]) {
+            unlink(slot, roads.getDistance(slot));
+            reconnect(roads.getCity1(slot), roads.getCity2(slot));
+        }
+    }
+
+    @Override
+    public void distanceChanged(int slot, int oldDistance) {
+        int newDistance = roads.getDistance(slot);
+        if (!onMap[slot]) {
+            // A shorter road may now replace a road on the map; a longer one still cannot
+            forest.set(roadNode[slot], key(slot), newDistance);
+            if (newDistance < oldDistance) {
+                offer(slot);
+            }
+        } else if (newDistance < oldDistance) {
+            // A road on the map stays on it when it gets shorter
+            forest.set(roadNode[slot], key(slot), newDistance);
+            totalDistance += newDistance - oldDistance;
+        } else {
+            // A longer road competes with every other road across the gap it leaves
+            unlink(slot, oldDistance);
+            forest.set(roadNode[slot], key(slot), newDistance);
+            reconnect(roads.getCity1(slot), roads.getCity2(slot));
+        }
+    }
+
+    /**
+     * Returns the total distance of the barely connected map.
+     *
+     * @return the total distance
+     */
+    public int getBarelyConnectedMapTotalDistance() {
+        return (int) totalDistance;
+    }
+
+    /**
+     * Returns the number of roads on the barely connected map.
+     *
+     * @return the number of roads
+     */
+    public int getRoadCountOnMap() {
+        return roadCountOnMap;
+    }
+
+    /**
+     * Returns the distance of the route between two cities on the barely connected map.
+     *
+     * @param a the first city ID
+     * @param b the second city ID
+     * @return the distance of the route
+     * @throws NoSuchElementException if the map does not connect the cities
+     */
+    public int getDistance(int a, int b) {
+        if (a < 0 || b < 0 || a >= cityCount || b >= cityCount || !forest.connected(cityNode[a], cityNode[b])) {
+            throw new NoSuchElementException("No route on Barely Connected Map");
+        }
+        return (int) forest.pathSum(cityNode[a], cityNode[b]);
+    }
+
+    /**
+     * Returns the roads of the barely connected map, ordered by distance and ID.
+     *
+     * @return the barely connected map
+     */
+    public RoadTable getBarelyConnectedMap() {
+        long[] keys = new long[roadCountOnMap];
+        int count = 0;
+        for (int slot = 0; slot < roads.getSlotCount(); slot++) {
+            if (onMap[slot]) {
+                keys[count++] = key(slot);
+            }
+        }
+        Arrays.sort(keys);
+        RoadTable map = new RoadTable(roads.getCities(), count);
+        for (long key : keys) {
+            int slot = slotOf(key);
+            map.add(roads.getCity1(slot), roads.getCity2(slot), roads.getDistance(slot), roads.getID(slot));
+        }
+        return map;
+    }
+
+    /**
+     * Reports the roads of the barely connected map to the given sink, like BarelyConnectedMapCalculate.
+     *
+     * @param sink the sink to report the output to
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeBarelyConnectedMap(ResultSink sink) throws IOException {
+        RoadTable map = getBarelyConnectedMap();
+        sink.beginRoadList("Roads of Barely Connected Map");
+        for (int road = 0; road < map.size(); road++) {
+            sink.road(map, road);
+        }
+    }
+
+    // Puts a road that is not on the map on it if it connects two parts or beats the longest road on its cycle
+    private void offer(int slot) {
+        int a = roads.getCity1(slot);
+        int b = roads.getCity2(slot);
+        if (a == b) {
+            return;
+        }
+        if (!forest.connected(cityNode[a], cityNode[b])) {
+            link(slot);
+            return;
+        }
+        int longest = forest.pathMaximum(cityNode[a], cityNode[b]);
+        if (forest.getKey(longest) > key(slot)) {
+            int replaced = slotOf(forest.getKey(longest));
+            unlink(replaced, roads.getDistance(replaced));
+            link(slot);
+        }
+    }
+
+    // Finds the shortest road between the two sides of a removed road and puts it on the map
+    private void reconnect(int a, int b) {
+        if (a == b) {
+            return;
+        }
+        // Walk the map from both cities in turns; the side that runs out first is the smaller one
+        epoch += 2;
+        int sideA = epoch;
+        int sideB = epoch + 1;
+        int n = cityCount;
+        int headA = 0;
+        int tailA = 0;
+        int headB = n;
+        int tailB = n;
+        queue[tailA++] = a;
+        mark[a] = sideA;
+        queue[--tailB] = b;
+        mark[b] = sideB;
+        int smaller;
+        int from;
+        int to;
+        while (true) {
+            if (headA == tailA) {
+                smaller = sideA;
+                from = 0;
+                to = tailA;
+                break;
+            }
+            if (headB == tailB) {
+                smaller = sideB;
+                from = tailB;
+                to = n;
+                break;
+            }
+            tailA = visit(queue[headA++], sideA, true, tailA);
+            tailB = visit(queue[--headB], sideB, false, tailB);
+        }
+
+        // The shortest live road leaving the smaller side
+        long bestKey = NO_ROAD;
+        int bestSlot = -1;
+        for (int i = from; i < to; i++) {
+            int city = queue[i];
+            for (int j = 0; j < roads.getDegree(city); j++) {
+                int slot = roads.getIncident(city, j);
+                if (mark[roads.getOtherCity(slot, city)] != smaller && key(slot) < bestKey) {
+                    bestKey = key(slot);
+                    bestSlot = slot;
+                }
+            }
+        }
+        if (bestSlot >= 0) {
+            link(bestSlot);
+        }
+    }
+
+    // Marks the unmarked neighbours of a city on the map and queues them, from the front or from the back
+    private int visit(int city, int side, boolean forward, int tail) {
+        for (int j = 0; j < roads.getDegree(city); j++) {
+            int slot = roads.getIncident(city, j);
+            if (!onMap[slot]) {
+                continue;
+            }
+            int other = roads.getOtherCity(slot, city);
+            if (mark[other] != side) {
+                mark[other] = side;
+                if (forward) {
+                    queue[tail++] = other;
+                } else {
+                    queue[--tail] = other;
+                }
+            }
+        }
+        return tail;
+    }
+
+    private void link(int slot) {
+        forest.link(cityNode[roads.getCity1(slot)], roadNode[slot]);
+        forest.link(roadNode[slot], cityNode[roads.getCity2(slot)]);
+        onMap[slot] = true;
+        totalDistance += roads.getDistance(slot);
+        roadCountOnMap++;
+    }
+
+    private void unlink(int slot, int distance) {
+        forest.cut(cityNode[roads.getCity1(slot)], roadNode[slot]);
+        forest.cut(roadNode[slot], cityNode[roads.getCity2(slot)]);
+        onMap[slot] = false;
+        totalDistance -= distance;
+        roadCountOnMap--;
+    }
+
+    // (distance, ID) as one long, so comparing keys compares roads
+    private long key(int slot) {
+        return ((long) roads.getDistance(slot) << 32) | ((roads.getID(slot) ^ Integer.MIN_VALUE) & 0xffffffffL);
+    }
+
+    private int slotOf(long key) {
+        return roads.getSlot((int) key ^ Integer.MIN_VALUE);
+    }
+
+    private void ensureSlots(int capacity) {
+        onMap = Arrays.copyOf(onMap, capacity);
+        roadNode = Arrays.copyOf(roadNode, capacity);
+    }
+
+    private void ensureCities(int count) {
+        if (count <= cityCount) {
+            return;
+        }
+        if (count > cityNode.length) {
+            int capacity = Math.max(count, cityNode.length + (cityNode.length >> 1) + 16);
+            cityNode = Arrays.copyOf(cityNode, capacity);
+            mark = Arrays.copyOf(mark, capacity);
+            queue = Arrays.copyOf(queue, capacity);
+        }
+        for (int city = cityCount; city < count; city++) {
+            cityNode[city] = forest.addNode(Long.MIN_VALUE, 0);
+        }
+        cityCount = count;
+    }
+}
@@ -0,0 +1,290 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The ExternalSpanningTree class finds the barely connected map of a road file that does not fit in memory. The roads
+ * are read in one pass and collected into a buffer of bounded size; every time the buffer is full, it is sorted by
+ * distance and ID and spilled to a run file. The runs are then merged k at a time, in as many passes as the buffer
+ * requires, and the last merge streams the roads in (distance, ID) order through a union-find over the city IDs. The
+ * roads that join two components are written to the sink as they are found, so memory is the city dictionary and the
+ * union-find, both linear in the number of cities, plus the buffer. The roads and total distance are the same as those
+ * of {@link BarelyConnectedMapCalculate}.
+ * <p>
+ * Run files are little-endian records of the distance, ID and the two cities of every road.
+ */
+public class ExternalSpanningTree {
+    // Bytes of a road in a run file: distance, ID and the two cities
+    private static final int RECORD_BYTES = 16;
+    // Bytes of memory a buffered road takes: four int columns plus the two int arrays of the radix sort
+    private static final int BUFFERED_ROAD_BYTES = 24;
+    // Smallest read buffer of a run during a merge, which bounds how many runs are merged at once
+    private static final int MIN_READ_BUFFER = 1 << 16;
+    // Write buffer of a run
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    private final long bufferBytes;
+    private final Path directory;
+    private long roadCount = 0;
+    private int runCount = 0;
+    private int mergePasses = 0;
+    private long barelyConnectedMapTotalDistance = 0;
+    // Every run file written by the current build, deleted when it ends
+    private final List<Path> runFiles = new ArrayList<>();
+
+    /**
+     * Receives roads in (distance, ID) order during a merge.
+     */
+    private interface SortedRoadConsumer {
+        /**
+         * Receives one road.
+         *
+         * @return false to stop the merge
+         */
+        boolean road(int distance, int ID, int city1, int city2) throws IOException;
+    }
+
+    /**
+     * Constructs an ExternalSpanningTree.
+     *
+     * @param bufferBytes the memory used to sort and merge the roads, apart from the cities
+     * @param directory   the directory the run files are written to
+     */
+    public ExternalSpanningTree(long bufferBytes, Path directory) {
+        this.bufferBytes = Math.max(bufferBytes, 2L * MIN_READ_BUFFER);
+        this.directory = directory;
+    }
+
+    /**
+     * Finds the barely connected map of the roads in a text input file and reports its roads, in (distance, ID) order,
+     * followed by a message with its total distance.
+     *
+     * @param inputFileName path to the text input file
+     * @param sink          the sink to report the output to
+     * @throws IOException if the input cannot be read or a run file cannot be written
+     */
+    public void build(String inputFileName, ResultSink sink) throws IOException {
+        CityDictionary cities = new CityDictionary();
+        List<Path> runs = new ArrayList<>();
+        roadCount = 0;
+        mergePasses = 0;
+        try {
+            // Read the roads, spilling the buffer whenever it is full. The first buffer grows as needed, so small
+            // inputs do not allocate the whole buffer
+            RunMetrics.Timer parse = RunMetrics.start(RunMetrics.Phase.PARSE);
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, bufferBytes / BUFFERED_ROAD_BYTES);
+            RoadTable[] buffer = {new RoadTable(cities, Math.min(capacity, 1 << 16))};
+            MappedRoadInput.scan(inputFileName, cities, (city1, city2, distance, ID) -> {
+                if (buffer[0].size() == capacity) {
+                    runs.add(spill(buffer[0]));
+                    buffer[0] = null;
+                    buffer[0] = new RoadTable(cities, capacity);
+                }
+                buffer[0].add(city1, city2, distance, ID);
+                roadCount++;
+            });
+            parse.stop();
+
+            RunMetrics.Timer timer = RunMetrics.start(RunMetrics.Phase.BARELY_CONNECTED_MAP);
+            DisjointSet components = new DisjointSet(cities.size());
+            long[] scanned = new long[1];
+            barelyConnectedMapTotalDistance = 0;
+            sink.beginRoadList("Roads of Barely Connected Map");
+            SortedRoadConsumer kruskal = (distance, ID, city1, city2) -> {
+                scanned[0]++;
+                if (components.union(city1, city2)) {
+                    sink.road(cities, city1, city2, distance, ID);
+                    barelyConnectedMapTotalDistance += distance;
+                }
+                return components.getComponentCount() > 1;
+            };
+            if (runs.isEmpty()) {
+                // Everything fit in the buffer, so nothing is written to disk
+                runCount = 1;
+                RoadTable roads = buffer[0];
+                int[] order = roads.sortedOrder();
+                for (int i = 0; i < order.length; i++) {
+                    int road = order[i];
+                    if (!kruskal.road(roads.getDistance(road), roads.getID(road), roads.getCity1(road), roads.getCity2(road))) {
+                        break;
+                    }
+                }
+            } else {
+                if (buffer[0].size() > 0) {
+                    runs.add(spill(buffer[0]));
+                }
+                buffer[0] = null;
+                runCount = runs.size();
+                // Merge groups of runs into longer runs until the rest can be merged at once
+                int fanIn = (int) Math.max(2, Math.min(1 << 12, bufferBytes / MIN_READ_BUFFER));
+                while (runs.size() > fanIn) {
+                    List<Path> merged = new ArrayList<>();
+                    for (int first = 0; first < runs.size(); first += fanIn) {
+                        List<Path> group = runs.subList(first, Math.min(runs.size(), first + fanIn));
+                        merged.add(mergeToRun(group));
+                        for (Path run : group) {
+                            Files.deleteIfExists(run);
+                        }
+                    }
+                    runs.clear();
+                    runs.addAll(merged);
+                    mergePasses++;
+                }
+                merge(runs, kruskal);
+                mergePasses++;
+            }
+            timer.add(RunMetrics.Counter.ROADS_SCANNED, scanned[0]);
+            timer.add(RunMetrics.Counter.UNION_FIND_OPERATIONS, scanned[0]);
+            timer.stop();
+            sink.message("Total Distance of Barely Connected Map: " + barelyConnectedMapTotalDistance + " KM");
+        } finally {
+            for (Path run : runFiles) {
+                Files.deleteIfExists(run);
+            }
+            runFiles.clear();
+        }
+    }
+
+    /**
+     * Returns the total distance of the barely connected map found by the last build.
+     *
+     * @return the total distance of the barely connected map
+     */
+    public long getBarelyConnectedMapTotalDistance() {
+        return barelyConnectedMapTotalDistance;
+    }
+
+    /**
+     * Returns a one-line summary of the last build: the roads read, the runs spilled and the merge passes.
+     *
+     * @return the statistics
+     */
+    public String getStatistics() {
+        return "External spanning tree: " + roadCount + " roads, " + runCount + " sorted runs, " + mergePasses
+                + " merge passes, " + bufferBytes / (1 << 20) + " MB buffer";
+    }
+
+    // Sorts the buffered roads and writes them to a new run file
+    private Path spill(RoadTable roads) throws IOException {
+        Path run = createRun();
+        try (FileChannel channel = FileChannel.open(run, StandardOpenOption.WRITE)) {
+            ByteBuffer output = ByteBuffer.allocate(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            for (int road : roads.sortedOrder()) {
+                write(channel, output, roads.getDistance(road), roads.getID(road), roads.getCity1(road), roads.getCity2(road));
+            }
+            flush(channel, output);
+        }
+        return run;
+    }
+
+    // Merges runs into a new run file
+    private Path mergeToRun(List<Path> runs) throws IOException {
+        Path run = createRun();
+        try (FileChannel channel = FileChannel.open(run, StandardOpenOption.WRITE)) {
+            ByteBuffer output = ByteBuffer.allocate(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            merge(runs, (distance, ID, city1, city2) -> {
+                write(channel, output, distance, ID, city1, city2);
+                return true;
+            });
+            flush(channel, output);
+        }
+        return run;
+    }
+
+    // Streams the roads of the runs to the consumer in (distance, ID) order, the smallest head of any run first
+    private void merge(List<Path> runs, SortedRoadConsumer consumer) throws IOException {
+        int readBuffer = (int) Math.max(MIN_READ_BUFFER, Math.min(1 << 26, bufferBytes / runs.size())) / RECORD_BYTES * RECORD_BYTES;
+        PriorityQueue<RunReader> heads = new PriorityQueue<>(runs.size(), (a, b) -> Long.compare(a.key, b.key));
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run, readBuffer);
+                readers.add(reader);
+                if (reader.next()) {
+                    heads.add(reader);
+                }
+            }
+            while (!heads.isEmpty()) {
+                RunReader reader = heads.poll();
+                if (!consumer.road(reader.distance, reader.ID, reader.city1, reader.city2)) {
+                    return;
+                }
+                if (reader.next()) {
+                    heads.add(reader);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.channel.close();
+            }
+        }
+    }
+
+    private Path createRun() throws IOException {
+        Path run = Files.createTempFile(directory, "roads", ".run");
+        runFiles.add(run);
+        return run;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer output, int distance, int ID, int city1, int city2) throws IOException {
+        if (output.remaining() < RECORD_BYTES) {
+            flush(channel, output);
+        }
+        output.putInt(distance).putInt(ID).putInt(city1).putInt(city2);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer output) throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            channel.write(output);
+        }
+        output.clear();
+    }
+
+    /**
+     * Reads the roads of a run file one at a time.
+     */
+    private static final class RunReader {
+        final FileChannel channel;
+        final ByteBuffer input;
+        // Distance and ID packed so that comparing keys compares (distance, ID)
+        long key;
+        int distance;
+        int ID;
+        int city1;
+        int city2;
+
+        RunReader(Path run, int bufferSize) throws IOException {
+            channel = FileChannel.open(run, StandardOpenOption.READ);
+            input = ByteBuffer.allocate(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+            input.flip();
+        }
+
+        // Moves to the next road, returning false at the end of the run
+        boolean next() throws IOException {
+            if (input.remaining() < RECORD_BYTES) {
+                input.compact();
+                while (input.hasRemaining() && channel.read(input) > 0) {
+                    // Fill the buffer until the run ends
+                }
+                input.flip();
+                if (input.remaining() < RECORD_BYTES) {
+                    return false;
+                }
+            }
+            distance = input.getInt();
+            ID = input.getInt();
+            city1 = input.getInt();
+            city2 = input.getInt();
+            key = ((long) distance << 32) | ((ID ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+            return true;
+        }
+    }
+}
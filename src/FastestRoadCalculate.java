@@ -1,39 +1,55 @@
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.*;
+import java.util.NoSuchElementException;
 
 /**
  * The FastestRoadCalculate class calculates the fastest road between two cities
- * based on the given list of roads.
+ * based on the given road table.
  */
 public class FastestRoadCalculate {
-    List<Road> roads;
+    RoadTable roads;
     private String startingCity;
     private String destinationCity;
     private String customMessage;
     private int totalFastestRoadDistance = 0;
+    private ShortestPathTreeCache cache;
 
     /**
      * Constructs a FastestRoadCalculate object and finds the fastest road.
      *
-     * @param roads          the list of roads
+     * @param roads          the road table
      * @param startingCity   the starting city
      * @param destinationCity the destination city
      * @param customMessage  the custom message to be written
-     * @param writer         the FileWriter to write the output
+     * @param sink           the sink to report the output to
      * @throws IOException if an I/O error occurs
      */
-    public FastestRoadCalculate(List<Road> roads, String startingCity, String destinationCity, String customMessage, FileWriter writer) throws IOException {
+    public FastestRoadCalculate(RoadTable roads, String startingCity, String destinationCity, String customMessage, ResultSink sink) throws IOException {
         this.roads = roads;
         this.startingCity = startingCity;
         this.destinationCity = destinationCity;
         this.customMessage = customMessage;
-        findFastestRoad(writer);
+        findFastestRoad(sink);
     }
 
-    List<RoadSegment> roadSegments = new ArrayList<>();
-    Map<String, RoadSegment> roadSegmentMap = new HashMap<>();
+    /**
+     * Constructs a FastestRoadCalculate object and finds the fastest road using the cached shortest-path tree of the
+     * starting city. If the tree is not cached, the whole tree is found and added to the cache.
+     *
+     * @param cache           the shortest-path tree cache of the roads
+     * @param startingCity    the starting city
+     * @param destinationCity the destination city
+     * @param customMessage   the custom message to be written
+     * @param sink            the sink to report the output to
+     * @throws IOException if an I/O error occurs
+     */
+    public FastestRoadCalculate(ShortestPathTreeCache cache, String startingCity, String destinationCity, String customMessage, ResultSink sink) throws IOException {
+        this.roads = cache.getRoads();
+        this.cache = cache;
+        this.startingCity = startingCity;
+        this.destinationCity = destinationCity;
+        this.customMessage = customMessage;
+        findFastestRoad(sink);
+    }
 
     /**
      * Returns the total distance of the fastest road.
@@ -45,139 +61,120 @@ public class FastestRoadCalculate {
     }
 
     /**
-     * Finds the fastest road and writes the result to the given FileWriter.
+     * Finds the fastest road and reports the result to the given sink. Without a cache, the search stops as soon as
+     * the destination city is settled.
      *
-     * @param writer the FileWriter to write the output
+     * @param sink the sink to report the output to
      * @throws IOException if an I/O error occurs
      */
-    public void findFastestRoad(FileWriter writer) throws IOException {
-        HashSet<String> cities = new HashSet<>(); // HashSet to store unique city names
-        for (Road road : roads) {
-            cities.add(road.getCity1());
-            cities.add(road.getCity2());
+    public void findFastestRoad(ResultSink sink) throws IOException {
+        CityDictionary cities = roads.getCities();
+        int start = cities.indexOf(startingCity);
+        int destination = cities.indexOf(destinationCity);
+        // Cities in different components are rejected before anything is searched
+        if (!roads.getComponents().isConnected(start, destination)) {
+            throw new NoSuchElementException("No route from " + startingCity + " to " + destinationCity);
         }
 
-        // HashSet to store visited cities
-        HashSet<String> seen = new HashSet<>();
-        seen.add(startingCity);
-
-        // Initialize roadSegments list with roads starting from startingCity
-        for (Road road : roads) {
-            if (Objects.equals(road.getCity1(), startingCity) || (Objects.equals(road.getCity2(), startingCity))) {
-                String pointA = null;
-                String pointB = null;
-                if (Objects.equals(road.getCity1(), startingCity)) {
-                    pointA = road.getCity1();
-                    pointB = road.getCity2();
-                } else if (Objects.equals(road.getCity2(), startingCity)) {
-                    pointA = road.getCity2();
-                    pointB = road.getCity1();
-                }
-                RoadSegment roadSegment = new RoadSegment(road.getDistance(), road.getDistance(), pointA, pointB, road.getID());
-                roadSegments.add(roadSegment);
+        int[] fastestRoadFromStartingCityToDestinationCity;
+        RunMetrics.Timer timer = RunMetrics.start(RunMetrics.Phase.FASTEST_ROUTE);
+        if (cache != null) {
+            ShortestPathTreeCache.Tree tree = cache.get(start);
+            if (tree == null) {
+                int version = roads.getVersion();
+                SearchWorkspace workspace = search(start, -1, timer);
+                tree = workspace.toTree(start, version, roads.getAdjacency().getCityCount());
+                cache.put(tree);
             }
+            if (tree.getDistance(destination) == ShortestPathTreeCache.UNREACHABLE) {
+                throw new NoSuchElementException("No route from " + startingCity + " to " + destinationCity);
+            }
+            totalFastestRoadDistance = tree.getDistance(destination);
+            fastestRoadFromStartingCityToDestinationCity = tree.getRoute(roads, destination);
+        } else {
+            SearchWorkspace workspace = search(start, destination, timer);
+            totalFastestRoadDistance = workspace.getDistance(destination);
+            fastestRoadFromStartingCityToDestinationCity =
+                    ShortestPathTreeCache.Tree.getRoute(roads, start, workspace.getPredecessorRoads(), destination);
         }
 
-        // Sort roadSegments based on distance and ID
-        roadSegments.sort(Comparator.comparingInt(RoadSegment::getDistance)
-                .thenComparingInt(RoadSegment::getID));
-
-        // Initialize cityName with the destination city of the first road segment
-        String cityName = roadSegments.get(0).getPointB();
-        roadSegmentMap.put(cityName, roadSegments.get(0));
-        seen.add(cityName);
-        roadSegments.remove(roadSegments.get(0));
+        timer.stop();
 
+        // Report the custom message and total distance
+        RunMetrics.Timer output = RunMetrics.start(RunMetrics.Phase.OUTPUT);
+        sink.beginRoute(customMessage, totalFastestRoadDistance);
 
-        // Main loop to find the fastest road
-        while (!seen.equals(cities)) {
-            for (Road road : roads) {
-                if (Objects.equals(road.getCity1(), cityName) || (Objects.equals(road.getCity2(), cityName))) {
-                    String pointA = null;
-                    String pointB = null;
-                    if (Objects.equals(road.getCity1(), cityName)) {
-                        pointA = road.getCity1();
-                        pointB = road.getCity2();
-
-                    } else if (Objects.equals(road.getCity2(), cityName)) {
-                        pointA = road.getCity2();
-                        pointB = road.getCity1();
-                    }
-
-                    // Skip if pointB is already visited
-                    if (seen.contains(pointB)) {
-                        continue;
-                    }
-
-                    int currentDistance = roadSegmentMap.get(cityName).getDistance();
-
-                    // Create a new road segment and update the roadSegments list
-                    RoadSegment roadSegment = new RoadSegment(road.getDistance() + currentDistance, road.getDistance(), pointA, pointB, road.getID());
-
-                    boolean founded = false;
-
-                    // Check if the road segment with the same pointB already exists in roadSegments
-                    List<RoadSegment> copyRoadSegments = new ArrayList<>(roadSegments);
-                    for (RoadSegment rs : copyRoadSegments) {
-                        if (rs.getPointB().equals(roadSegment.getPointB())) {
-                            founded = true;
-                            // If the new road segment has a shorter distance, replace the existing one
-                            if (roadSegment.getDistance() < rs.getDistance()) {
-                                roadSegments.add(roadSegment);
-                                roadSegments.remove(rs);
-                            }
-                        }
-                    }
-                    // If the road segment doesn't exist in roadSegments, add it
-                    if (!founded) {
-                        roadSegments.add(roadSegment);
-                    }
-                }
-            }
-
-            // Sort roadSegments based on distance and ID
-            roadSegments.sort(Comparator.comparingInt(RoadSegment::getDistance)
-                    .thenComparingInt(RoadSegment::getID));
-
-            // Update cityName with the pointB of the road segment with the shortest distance
-            cityName = roadSegments.get(0).getPointB();
-            roadSegmentMap.put(cityName, roadSegments.get(0));
-            seen.add(cityName);
-            roadSegments.remove(roadSegments.get(0));
+        // Report the roads of the fastest road
+        for (int road : fastestRoadFromStartingCityToDestinationCity) {
+            sink.road(roads, road);
         }
+        output.stop();
+    }
 
-        // Get the total distance of the fastest road
-        totalFastestRoadDistance = roadSegmentMap.get(destinationCity).getDistance();
-        // Write the custom message and total distance to the FileWriter
-        writer.write(customMessage + " (" + totalFastestRoadDistance + " KM):\n");
-
-        // Traverse through the roadSegments map to find the fastest road from startingCity to destinationCity
-        List<RoadSegment> fastestRoadFromStartingCityToDestinationCity = new ArrayList<>();
-
-        String city2 = destinationCity;
-        String city1 = roadSegmentMap.get(destinationCity).getPointA();
+    /**
+     * Runs Dijkstra's algorithm from the starting city in the search workspace of the current thread, which then holds
+     * the distances and predecessor roads of the settled cities. The search stops when the destination is settled, or
+     * runs over the whole map if the destination is -1. Nothing is allocated and nothing is cleared for the whole map,
+     * so a search costs only the cities it reaches.
+     *
+     * @param start       the starting city ID
+     * @param destination the destination city ID, or -1 to find the whole tree
+     * @param timer       the timer the work of the search is counted on
+     * @return the workspace holding the results, valid until the next search on the thread
+     */
+    private SearchWorkspace search(int start, int destination, RunMetrics.Timer timer) {
+        RoadAdjacency adjacency = roads.getAdjacency();
+        SearchWorkspace workspace = SearchWorkspace.begin(adjacency.getCityCount());
+        IndexedRoadHeap heap = workspace.getHeap();
 
-        // Traverse from destinationCity to startingCity to build the fastest road
-        while (!city1.equals(startingCity)) {
-            fastestRoadFromStartingCityToDestinationCity.add(0, roadSegmentMap.get(city2));
-            city2 = city1;
-            city1 = roadSegmentMap.get(city2).getPointA();
+        // Work counters, kept in locals and added to the timer once
+        long roadsScanned = 0;
+        long relaxations = 0;
+        long heapPushes = 0;
+        long heapPolls = 0;
 
-        }
+        int cityName = start;
+        workspace.settle(start, 0);
+        workspace.setPredecessorRoad(start, -1);
 
-        // Add the road segment from the starting city to the list
-        fastestRoadFromStartingCityToDestinationCity.add(0, roadSegmentMap.get(city2));
+        // Main loop to find the fastest road
+        while (cityName != destination) {
+            int currentDistance = workspace.getDistance(cityName);
+            roadsScanned += adjacency.end(cityName) - adjacency.begin(cityName);
+            for (int slot = adjacency.begin(cityName); slot < adjacency.end(cityName); slot++) {
+                int pointB = adjacency.getNeighbour(slot);
+
+                // Skip if pointB is already visited
+                if (workspace.isSettled(pointB)) {
+                    continue;
+                }
 
-        // Write the details of the fastest road to the FileWriter
-        for (RoadSegment roadSegment : fastestRoadFromStartingCityToDestinationCity) {
-            for (Road road : roads) {
-                if (Objects.equals(roadSegment.getPointA(), road.getCity1()) && Objects.equals(roadSegment.getPointB(), road.getCity2())) {
-                    writer.write(road.getCity1() + "\t" + road.getCity2() + "\t" + road.getDistance() + "\t" + road.getID() + "\n");
-                } else if (Objects.equals(roadSegment.getPointA(), road.getCity2()) && Objects.equals(roadSegment.getPointB(), road.getCity1())) {
-                    writer.write(road.getCity1() + "\t" + road.getCity2() + "\t" + road.getDistance() + "\t" + road.getID() + "\n");
+                // Only a strictly shorter distance replaces the road that reached pointB first
+                int road = adjacency.getRoadIndex(slot);
+                int newDistance = currentDistance + roads.getDistance(road);
+                relaxations++;
+                if (!heap.contains(pointB) || newDistance < heap.getDistance(pointB)) {
+                    heapPushes++;
+                    heap.push(pointB, newDistance, roads.getID(road));
+                    workspace.setPredecessorRoad(pointB, road);
                 }
             }
+
+            // The whole tree is found once no city is left to settle
+            if (destination < 0 && heap.isEmpty()) {
+                break;
+            }
+
+            // Settle the city with the smallest (distance, ID)
+            cityName = heap.poll();
+            heapPolls++;
+            workspace.settle(cityName, heap.getDistance(cityName));
         }
+        timer.add(RunMetrics.Counter.ROADS_SCANNED, roadsScanned);
+        timer.add(RunMetrics.Counter.RELAXATIONS, relaxations);
+        timer.add(RunMetrics.Counter.HEAP_PUSHES, heapPushes);
+        timer.add(RunMetrics.Counter.HEAP_POLLS, heapPolls);
+        return workspace;
     }
 
 }
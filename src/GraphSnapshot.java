@@ -0,0 +1,322 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The GraphSnapshot class stores a parsed road map in a compact, versioned binary file so that later runs can
+ * skip parsing. A snapshot holds the query cities, the city dictionary, the road columns in input order, the
+ * rows in (distance, ID) order and the CSR adjacency index. All numbers are little-endian ints, and every section
+ * starts on a 4-byte boundary so it can be copied out of the mapped file in bulk.
+ */
+public class GraphSnapshot implements RoadInput {
+    private static final long MAGIC = 0x50414E53504D4452L; // "RDMPSNAP" read as little-endian
+    private static final int VERSION = 1;
+    // Size of the part of the file that is mapped or buffered at once
+    private static final int CHUNK_SIZE = 1 << 26;
+
+    private final String startingCity;
+    private final String destinationCity;
+    private final RoadTable roads;
+
+    /**
+     * The header of a snapshot file, up to the city dictionary.
+     */
+    private static final class Header {
+        final int cityCount;
+        final int roadCount;
+        final String startingCity;
+        final String destinationCity;
+        // Offset of the city dictionary
+        final long position;
+
+        Header(FileChannel channel, String snapshotPath) throws IOException {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), CHUNK_SIZE));
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.remaining() < 20 || header.getLong() != MAGIC) {
+                throw new IOException(snapshotPath + " is not a road map snapshot");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + snapshotPath);
+            }
+            cityCount = header.getInt();
+            roadCount = header.getInt();
+            startingCity = getString(header);
+            destinationCity = getString(header);
+            position = header.position();
+        }
+    }
+
+    private GraphSnapshot(String startingCity, String destinationCity, RoadTable roads) {
+        this.startingCity = startingCity;
+        this.destinationCity = destinationCity;
+        this.roads = roads;
+    }
+
+    @Override
+    public String getStartingCity() {
+        return startingCity;
+    }
+
+    @Override
+    public String getDestinationCity() {
+        return destinationCity;
+    }
+
+    @Override
+    public RoadTable getRoads() {
+        return roads;
+    }
+
+    /**
+     * Returns whether the file at the given path starts with the snapshot header.
+     *
+     * @param path path to the file
+     * @return true if the file is a snapshot
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isSnapshot(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the magic number is complete or the file ends
+            }
+            return !header.hasRemaining() && header.getLong(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Parses a text input file and writes it as a snapshot.
+     *
+     * @param inputPath    path to the text input file
+     * @param snapshotPath path to the snapshot that is going to be written
+     * @throws IOException if an I/O error occurs
+     */
+    public static void compile(String inputPath, String snapshotPath) throws IOException {
+        MappedRoadInput input = MappedRoadInput.read(inputPath);
+        write(input.getStartingCity(), input.getDestinationCity(), input.getRoads(), snapshotPath);
+    }
+
+    /**
+     * Writes the given road map as a snapshot.
+     *
+     * @param startingCity    the starting city
+     * @param destinationCity the destination city
+     * @param roads           the road table
+     * @param snapshotPath    path to the snapshot that is going to be written
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(String startingCity, String destinationCity, RoadTable roads, String snapshotPath) throws IOException {
+        CityDictionary cities = roads.getCities();
+        RoadAdjacency adjacency = roads.getAdjacency();
+        int[] sortedOrder = roads.getSortedOrder();
+        int cityCount = cities.size();
+        int roadCount = roads.size();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(snapshotPath), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            // Header and query cities
+            buffer.putLong(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(cityCount);
+            buffer.putInt(roadCount);
+            putString(channel, buffer, startingCity);
+            putString(channel, buffer, destinationCity);
+
+            // City dictionary as one block of UTF-8 bytes with an offset table
+            byte[][] names = new byte[cityCount][];
+            int nameBytes = 0;
+            for (int city = 0; city < cityCount; city++) {
+                names[city] = cities.getName(city).getBytes(StandardCharsets.UTF_8);
+                putInt(channel, buffer, nameBytes);
+                nameBytes += names[city].length;
+            }
+            putInt(channel, buffer, nameBytes);
+            for (byte[] name : names) {
+                putBytes(channel, buffer, name);
+            }
+            pad(channel, buffer, nameBytes);
+
+            // Road columns in input order, then the sorted rows and the adjacency index
+            for (int road = 0; road < roadCount; road++) {
+                putInt(channel, buffer, roads.getCity1(road));
+            }
+            for (int road = 0; road < roadCount; road++) {
+                putInt(channel, buffer, roads.getCity2(road));
+            }
+            for (int road = 0; road < roadCount; road++) {
+                putInt(channel, buffer, roads.getDistance(road));
+            }
+            for (int road = 0; road < roadCount; road++) {
+                putInt(channel, buffer, roads.getID(road));
+            }
+            for (int road : sortedOrder) {
+                putInt(channel, buffer, road);
+            }
+            for (int city = 0; city <= cityCount; city++) {
+                putInt(channel, buffer, city < cityCount ? adjacency.begin(city) : 2 * roadCount);
+            }
+            for (int slot = 0; slot < 2 * roadCount; slot++) {
+                putInt(channel, buffer, adjacency.getNeighbour(slot));
+            }
+            for (int slot = 0; slot < 2 * roadCount; slot++) {
+                putInt(channel, buffer, adjacency.getRoadIndex(slot));
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Loads a snapshot. The road columns and indexes are copied out of the mapped file in bulk, so the cost is
+     * close to that of paging the file in.
+     *
+     * @param snapshotPath path to the snapshot
+     * @return the loaded snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot of this version
+     */
+    public static GraphSnapshot load(String snapshotPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(snapshotPath), StandardOpenOption.READ)) {
+            Header header = new Header(channel, snapshotPath);
+            int cityCount = header.cityCount;
+            int roadCount = header.roadCount;
+            String startingCity = header.startingCity;
+            String destinationCity = header.destinationCity;
+            long position = header.position;
+
+            // City dictionary
+            int[] nameOffsets = readInts(channel, position, cityCount + 1);
+            position += 4L * (cityCount + 1);
+            int nameBytes = nameOffsets[cityCount];
+            MappedByteBuffer nameBlock = channel.map(FileChannel.MapMode.READ_ONLY, position, nameBytes);
+            CityDictionary cities = new CityDictionary();
+            for (int city = 0; city < cityCount; city++) {
+                cities.getOrAdd(nameBlock, nameOffsets[city], nameOffsets[city + 1]);
+            }
+            position += align(nameBytes);
+
+            // Road columns and indexes
+            int[] city1 = readInts(channel, position, roadCount);
+            position += 4L * roadCount;
+            int[] city2 = readInts(channel, position, roadCount);
+            position += 4L * roadCount;
+            int[] distance = readInts(channel, position, roadCount);
+            position += 4L * roadCount;
+            int[] ID = readInts(channel, position, roadCount);
+            position += 4L * roadCount;
+            int[] sortedOrder = readInts(channel, position, roadCount);
+            position += 4L * roadCount;
+            int[] offsets = readInts(channel, position, cityCount + 1);
+            position += 4L * (cityCount + 1);
+            int[] neighbours = readInts(channel, position, 2 * roadCount);
+            position += 8L * roadCount;
+            int[] roadIndices = readInts(channel, position, 2 * roadCount);
+
+            RoadTable roads = new RoadTable(cities, city1, city2, distance, ID);
+            roads.setIndexes(new RoadAdjacency(roads, offsets, neighbours, roadIndices), sortedOrder);
+            return new GraphSnapshot(startingCity, destinationCity, roads);
+        }
+    }
+
+    /**
+     * Opens a snapshot without copying it onto the heap: the road columns, the (distance, ID) order, the adjacency
+     * index and the city names are read from the mapped file whenever they are used, so the map can be larger than the
+     * heap. The returned road table is frozen.
+     *
+     * @param snapshotPath path to the snapshot
+     * @return the mapped snapshot
+     * @throws IOException if the file cannot be mapped or is not a snapshot of this version
+     */
+    public static GraphSnapshot map(String snapshotPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(snapshotPath), StandardOpenOption.READ)) {
+            Header header = new Header(channel, snapshotPath);
+            int cityCount = header.cityCount;
+            int roadCount = header.roadCount;
+            String startingCity = header.startingCity;
+            String destinationCity = header.destinationCity;
+            long position = header.position;
+
+            // City dictionary, then the road columns and indexes in the order they were written
+            CityDictionary cities = new MappedCityDictionary(channel, position, cityCount);
+            int nameBytes = readInts(channel, position + 4L * cityCount, 1)[0];
+            position += 4L * (cityCount + 1) + align(nameBytes);
+            OffHeapIntArray[] sections = new OffHeapIntArray[8];
+            int[] lengths = {roadCount, roadCount, roadCount, roadCount, roadCount, cityCount + 1, 2 * roadCount, 2 * roadCount};
+            for (int i = 0; i < sections.length; i++) {
+                sections[i] = OffHeapIntArray.map(channel, position, lengths[i]);
+                position += 4L * lengths[i];
+            }
+            RoadTable roads = new MappedRoadTable(cities, sections[0], sections[1], sections[2], sections[3], sections[4],
+                    sections[5], sections[6], sections[7]);
+            return new GraphSnapshot(startingCity, destinationCity, roads);
+        }
+    }
+
+    private static int[] readInts(FileChannel channel, long position, int count) throws IOException {
+        int[] values = new int[count];
+        int done = 0;
+        while (done < count) {
+            int chunk = Math.min(count - done, CHUNK_SIZE / 4);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position + 4L * done, 4L * chunk);
+            mapped.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, done, chunk);
+            done += chunk;
+        }
+        return values;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        buffer.position(buffer.position() + align(length) - length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putString(FileChannel channel, ByteBuffer buffer, String value) throws IOException {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        putInt(channel, buffer, bytes.length);
+        putBytes(channel, buffer, bytes);
+        pad(channel, buffer, bytes.length);
+    }
+
+    private static void putInt(FileChannel channel, ByteBuffer buffer, int value) throws IOException {
+        if (buffer.remaining() < 4) {
+            flush(channel, buffer);
+        }
+        buffer.putInt(value);
+    }
+
+    private static void putBytes(FileChannel channel, ByteBuffer buffer, byte[] bytes) throws IOException {
+        int done = 0;
+        while (done < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            int chunk = Math.min(bytes.length - done, buffer.remaining());
+            buffer.put(bytes, done, chunk);
+            done += chunk;
+        }
+    }
+
+    private static void pad(FileChannel channel, ByteBuffer buffer, int length) throws IOException {
+        putBytes(channel, buffer, new byte[align(length) - length]);
+    }
+
+    private static int align(int length) {
+        return (length + 3) & ~3;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
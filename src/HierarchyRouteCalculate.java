@@ -0,0 +1,66 @@
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+/**
+ * The HierarchyRouteCalculate class calculates the fastest road between two cities with a ContractionHierarchy and
+ * writes it in the same format as FastestRoadCalculate, with every shortcut unpacked into the roads it covers.
+ */
+public class HierarchyRouteCalculate {
+    private ContractionHierarchy hierarchy;
+    private String startingCity;
+    private String destinationCity;
+    private String customMessage;
+    private int totalFastestRoadDistance = 0;
+
+    /**
+     * Constructs a HierarchyRouteCalculate object and finds the fastest road.
+     *
+     * @param hierarchy       the contraction hierarchy of the roads
+     * @param startingCity    the starting city
+     * @param destinationCity the destination city
+     * @param customMessage   the custom message to be written
+     * @param sink            the sink to report the output to
+     * @throws IOException if an I/O error occurs
+     */
+    public HierarchyRouteCalculate(ContractionHierarchy hierarchy, String startingCity, String destinationCity, String customMessage, ResultSink sink) throws IOException {
+        this.hierarchy = hierarchy;
+        this.startingCity = startingCity;
+        this.destinationCity = destinationCity;
+        this.customMessage = customMessage;
+        findFastestRoad(sink);
+    }
+
+    /**
+     * Returns the total distance of the fastest road.
+     *
+     * @return the total distance of the fastest road
+     */
+    public int getTotalFastestRoadDistance() {
+        return totalFastestRoadDistance;
+    }
+
+    /**
+     * Finds the fastest road and reports the result to the given sink.
+     *
+     * @param sink the sink to report the output to
+     * @throws IOException if an I/O error occurs
+     */
+    public void findFastestRoad(ResultSink sink) throws IOException {
+        RoadTable roads = hierarchy.getRoads();
+        int start = roads.getCities().indexOf(startingCity);
+        int destination = roads.getCities().indexOf(destinationCity);
+        int[] route = start < 0 || destination < 0 ? null : hierarchy.findRoute(start, destination);
+        if (route == null) {
+            throw new NoSuchElementException("No route from " + startingCity + " to " + destinationCity);
+        }
+
+        totalFastestRoadDistance = 0;
+        for (int road : route) {
+            totalFastestRoadDistance += roads.getDistance(road);
+        }
+        sink.beginRoute(customMessage, totalFastestRoadDistance);
+        for (int road : route) {
+            sink.road(roads, road);
+        }
+    }
+}
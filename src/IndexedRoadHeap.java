@@ -0,0 +1,162 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The IndexedRoadHeap class is a binary min-heap over dense city indices. Each city appears at most once and
+ * is ordered by its tentative distance and then by the ID of the road that last reached it, which is the same
+ * (distance, ID) order the road lists are sorted by elsewhere.
+ */
+public class IndexedRoadHeap {
+    private final int[] heap;
+    private final int[] position;
+    private final int[] distance;
+    private final int[] roadID;
+    private int size = 0;
+
+    /**
+     * Constructs an empty heap that can hold the cities 0 to capacity - 1.
+     *
+     * @param capacity the number of cities
+     */
+    public IndexedRoadHeap(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        distance = new int[capacity];
+        roadID = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * Returns whether the heap has no cities left.
+     *
+     * @return true if the heap is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns whether the given city is currently in the heap.
+     *
+     * @param city the city index
+     * @return true if the city is in the heap
+     */
+    public boolean contains(int city) {
+        return position[city] >= 0;
+    }
+
+    /**
+     * Returns the tentative distance of a city that is in the heap, or its final distance once it has been
+     * polled.
+     *
+     * @param city the city index
+     * @return the tentative distance of the city
+     */
+    public int getDistance(int city) {
+        return distance[city];
+    }
+
+    /**
+     * Inserts a city, or moves it up if it is already in the heap. The caller decides whether the new
+     * distance is an improvement.
+     *
+     * @param city the city index
+     * @param newDistance the tentative distance of the city
+     * @param newRoadID the ID of the road that reached the city
+     */
+    public void push(int city, int newDistance, int newRoadID) {
+        distance[city] = newDistance;
+        roadID[city] = newRoadID;
+        if (position[city] < 0) {
+            heap[size] = city;
+            position[city] = size;
+            size++;
+        }
+        siftUp(position[city]);
+    }
+
+    /**
+     * Removes every city from the heap. The cost is proportional to the number of cities left in it.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the city with the smallest (distance, road ID) without removing it.
+     *
+     * @return the city index
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException("No reachable city left in the heap");
+        }
+        return heap[0];
+    }
+
+    /**
+     * Removes and returns the city with the smallest (distance, road ID).
+     *
+     * @return the city index
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int poll() {
+        if (size == 0) {
+            throw new NoSuchElementException("No reachable city left in the heap");
+        }
+        int top = heap[0];
+        size--;
+        position[top] = -1;
+        if (size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private boolean less(int a, int b) {
+        if (distance[a] != distance[b]) {
+            return distance[a] < distance[b];
+        }
+        return roadID[a] < roadID[b];
+    }
+
+    private void siftUp(int i) {
+        int city = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(city, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = city;
+        position[city] = i;
+    }
+
+    private void siftDown(int i) {
+        int city = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(heap[child], city)) {
+                break;
+            }
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = city;
+        position[city] = i;
+    }
+}
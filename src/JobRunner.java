@@ -0,0 +1,187 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The JobRunner class analyses many input files in one JVM, so start-up and warm-up are paid once instead of once per
+ * file. Every job is waited on by a thread of its own, a virtual thread where the runtime has them, while the parsing
+ * and the calculations run on a pool bounded by the number of cores. Every output file is written exactly as a
+ * single-file run writes it, a line of progress with the time of the job is printed as each job ends, and a job that
+ * fails is reported without stopping the others.
+ */
+public class JobRunner {
+    private final int threads;
+
+    /**
+     * One input file and the output file its results are written to.
+     */
+    public static final class Job {
+        private final String inputFileName;
+        private final String outputFileName;
+
+        /**
+         * Constructs a Job.
+         *
+         * @param inputFileName  path to the input file or snapshot
+         * @param outputFileName path to the output file
+         */
+        public Job(String inputFileName, String outputFileName) {
+            this.inputFileName = inputFileName;
+            this.outputFileName = outputFileName;
+        }
+
+        /**
+         * Returns the path to the input file.
+         *
+         * @return the input file path
+         */
+        public String getInputFileName() {
+            return inputFileName;
+        }
+
+        /**
+         * Returns the path to the output file.
+         *
+         * @return the output file path
+         */
+        public String getOutputFileName() {
+            return outputFileName;
+        }
+    }
+
+    /**
+     * Constructs a JobRunner.
+     *
+     * @param threads the number of jobs analysed at once
+     */
+    public JobRunner(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Reads the jobs of a manifest, one tab-separated input and output path per line. Relative paths are resolved
+     * against the directory of the manifest.
+     *
+     * @param manifest path to the manifest
+     * @return the jobs, in the order of the manifest
+     * @throws IOException if the manifest cannot be read or a line does not have two paths
+     */
+    public static List<Job> readManifest(Path manifest) throws IOException {
+        Path directory = manifest.toAbsolutePath().getParent();
+        List<Job> jobs = new ArrayList<>();
+        try (BufferedReader lines = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] paths = line.split("\t");
+                if (paths.length != 2) {
+                    throw new IOException("Expected an input and an output path: " + line);
+                }
+                jobs.add(new Job(directory.resolve(paths[0]).toString(), directory.resolve(paths[1]).toString()));
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Makes a job of every file of an input directory, writing to the file of the same name in an output directory,
+     * which is created if needed.
+     *
+     * @param inputDirectory  the directory of input files
+     * @param outputDirectory the directory of output files
+     * @return the jobs, in the order of the file names
+     * @throws IOException if a directory cannot be listed or created
+     */
+    public static List<Job> listDirectory(Path inputDirectory, Path outputDirectory) throws IOException {
+        Files.createDirectories(outputDirectory);
+        try (Stream<Path> files = Files.list(inputDirectory)) {
+            return files.filter(Files::isRegularFile).sorted()
+                    .map(file -> new Job(file.toString(), outputDirectory.resolve(file.getFileName()).toString()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Analyses every job and prints a line of progress as each one ends, followed by a summary.
+     *
+     * @param jobs     the jobs
+     * @param progress the stream progress is printed to
+     * @return the number of jobs that failed
+     */
+    public int run(List<Job> jobs, PrintStream progress) {
+        long start = System.nanoTime();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ExecutorService waiters = newThreadPerTaskExecutor();
+        try {
+            List<Future<?>> waiting = new ArrayList<>();
+            for (Job job : jobs) {
+                waiting.add(waiters.submit(() -> {
+                    // Timed from when a worker picks the job up, so time spent waiting for a worker is not counted
+                    long[] jobStart = {System.nanoTime()};
+                    String outcome;
+                    try {
+                        workers.submit(() -> {
+                            jobStart[0] = System.nanoTime();
+                            MapAnalyzer.analyse(job.inputFileName, job.outputFileName);
+                            return null;
+                        }).get();
+                        outcome = "done";
+                    } catch (ExecutionException e) {
+                        failed.incrementAndGet();
+                        outcome = "FAILED: " + e.getCause();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        failed.incrementAndGet();
+                        outcome = "FAILED: interrupted";
+                    }
+                    progress.println("[" + done.incrementAndGet() + "/" + jobs.size() + "] " + job.inputFileName + " -> "
+                            + job.outputFileName + ": " + outcome + " in " + (System.nanoTime() - jobStart[0]) / 1_000_000 + " ms");
+                }));
+            }
+            for (Future<?> job : waiting) {
+                try {
+                    job.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    // Every failure of a job is caught and reported by its own thread
+                }
+            }
+        } finally {
+            waiters.shutdownNow();
+            workers.shutdownNow();
+        }
+        progress.println(jobs.size() + " jobs, " + failed.get() + " failed, in " + (System.nanoTime() - start) / 1_000_000
+                + " ms on " + threads + " threads");
+        return failed.get();
+    }
+
+    // A virtual thread per task on runtimes that have them, found by reflection so the sources still build for Java 17,
+    // and a growing pool of platform threads otherwise. Either way the threads only wait on the workers
+    private static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            // Before Java 21, or on Java 19 and 20 without preview features
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
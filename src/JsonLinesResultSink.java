@@ -0,0 +1,109 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The JsonLinesResultSink class writes results as UTF-8 JSON lines, one object per route, listing, road, analysis and
+ * message, each with a "type" field:
+ * <pre>
+ * {"type":"route","title":"Fastest Route from Ankara to Bolu","km":4}
+ * {"type":"roads","title":"Roads of Barely Connected Map"}
+ * {"type":"road","city1":"Ankara","city2":"Bolu","km":4,"id":7}
+ * {"type":"analysis","barelyConnectedKm":9,"originalKm":14,"fastestKm":4,"fastestOnBarelyConnectedKm":4,"materialRatio":0.6428571428571429,"routeRatio":1.0}
+ * {"type":"message","text":"ERROR: No route from Ankara to Van"}
+ * {"type":"end"}
+ * </pre>
+ * A ratio that is not a number, because a distance is 0, is written as null.
+ */
+public class JsonLinesResultSink implements ResultSink {
+    private final Writer writer;
+
+    /**
+     * Constructs a JsonLinesResultSink writing to the given channel.
+     *
+     * @param channel the channel to write to
+     */
+    public JsonLinesResultSink(WritableByteChannel channel) {
+        this.writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    @Override
+    public void beginRoute(String title, int totalDistance) throws IOException {
+        writer.write("{\"type\":\"route\",\"title\":");
+        writeString(title);
+        writer.write(",\"km\":" + totalDistance + "}\n");
+    }
+
+    @Override
+    public void beginRoadList(String title) throws IOException {
+        writer.write("{\"type\":\"roads\",\"title\":");
+        writeString(title);
+        writer.write("}\n");
+    }
+
+    @Override
+    public void road(CityDictionary cities, int city1, int city2, int distance, int ID) throws IOException {
+        writer.write("{\"type\":\"road\",\"city1\":");
+        writeString(cities.getName(city1));
+        writer.write(",\"city2\":");
+        writeString(cities.getName(city2));
+        writer.write(",\"km\":" + distance + ",\"id\":" + ID + "}\n");
+    }
+
+    @Override
+    public void analysis(int barelyConnectedMapTotalDistance, int originalTotalDistance, int totalFastestRoadDistance,
+                         int totalFastestRoadDistanceOnBarelyConnectedMap) throws IOException {
+        writer.write("{\"type\":\"analysis\",\"barelyConnectedKm\":" + barelyConnectedMapTotalDistance
+                + ",\"originalKm\":" + originalTotalDistance
+                + ",\"fastestKm\":" + totalFastestRoadDistance
+                + ",\"fastestOnBarelyConnectedKm\":" + totalFastestRoadDistanceOnBarelyConnectedMap
+                + ",\"materialRatio\":" + ratio(barelyConnectedMapTotalDistance, originalTotalDistance)
+                + ",\"routeRatio\":" + ratio(totalFastestRoadDistanceOnBarelyConnectedMap, totalFastestRoadDistance) + "}\n");
+    }
+
+    @Override
+    public void message(String text) throws IOException {
+        writer.write("{\"type\":\"message\",\"text\":");
+        writeString(text);
+        writer.write("}\n");
+    }
+
+    @Override
+    public void endAnswer() throws IOException {
+        writer.write("{\"type\":\"end\"}\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private static String ratio(int numerator, int denominator) {
+        double ratio = 1.0 * numerator / denominator;
+        return Double.isFinite(ratio) ? Double.toString(ratio) : "null";
+    }
+
+    private void writeString(String text) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The LandmarkIndex class holds the preprocessing for landmark-based (ALT) route searches. A few landmark cities are
+ * picked far apart from each other, and the distance from every landmark to every city is stored. By the triangle
+ * inequality, |d(L, a) - d(L, b)| is then a lower bound on the distance between any two cities a and b.
+ */
+public class LandmarkIndex {
+    /**
+     * Distance used for cities that cannot be reached.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final RoadTable roads;
+    private final int[] landmarks;
+    // distances[l][city] is the distance from landmark l to the city
+    private final int[][] distances;
+
+    /**
+     * Constructs the landmark index of the given roads. The first landmark is the city farthest from city 0, and
+     * every following landmark is the city farthest from the landmarks picked so far.
+     *
+     * @param roads         the road table
+     * @param landmarkCount the number of landmarks to pick
+     */
+    public LandmarkIndex(RoadTable roads, int landmarkCount) {
+        this.roads = roads;
+        int cityCount = roads.getAdjacency().getCityCount();
+        landmarkCount = Math.max(0, Math.min(landmarkCount, cityCount));
+        landmarks = new int[landmarkCount];
+        distances = new int[landmarkCount][];
+        if (landmarkCount == 0) {
+            return;
+        }
+
+        // Distance from the nearest landmark so far, for picking the next one
+        int[] nearest = shortestDistances(roads, 0);
+        for (int l = 0; l < landmarkCount; l++) {
+            int farthest = 0;
+            for (int city = 1; city < cityCount; city++) {
+                if (nearest[city] != UNREACHABLE && (nearest[farthest] == UNREACHABLE || nearest[city] > nearest[farthest])) {
+                    farthest = city;
+                }
+            }
+            landmarks[l] = farthest;
+            distances[l] = shortestDistances(roads, farthest);
+            for (int city = 0; city < cityCount; city++) {
+                nearest[city] = Math.min(nearest[city], distances[l][city]);
+            }
+        }
+    }
+
+    /**
+     * Constructs the landmark index of the given roads for already chosen landmarks. The distance tables are computed
+     * in parallel.
+     *
+     * @param roads     the road table
+     * @param landmarks the landmark city IDs
+     */
+    public LandmarkIndex(RoadTable roads, int[] landmarks) {
+        this.roads = roads;
+        this.landmarks = landmarks.clone();
+        this.distances = new int[landmarks.length][];
+        IntStream.range(0, landmarks.length).parallel()
+                .forEach(l -> distances[l] = shortestDistances(roads, landmarks[l]));
+    }
+
+    /**
+     * Returns the road table the index was built for.
+     *
+     * @return the road table
+     */
+    public RoadTable getRoads() {
+        return roads;
+    }
+
+    /**
+     * Returns the landmark city IDs.
+     *
+     * @return the landmarks
+     */
+    public int[] getLandmarks() {
+        return landmarks.clone();
+    }
+
+    /**
+     * Returns a lower bound on the distance between two cities, or UNREACHABLE if the landmarks show that there is
+     * no route between them.
+     *
+     * @param a the first city ID
+     * @param b the second city ID
+     * @return the lower bound
+     */
+    public int lowerBound(int a, int b) {
+        int bound = 0;
+        for (int[] distance : distances) {
+            int fromA = distance[a];
+            int fromB = distance[b];
+            if (fromA == UNREACHABLE || fromB == UNREACHABLE) {
+                if (fromA != fromB) {
+                    return UNREACHABLE;
+                }
+                continue;
+            }
+            bound = Math.max(bound, Math.abs(fromA - fromB));
+        }
+        return bound;
+    }
+
+    /**
+     * Returns the distance from the given city to every city, using Dijkstra's algorithm on the whole map.
+     *
+     * @param roads  the road table
+     * @param source the source city ID
+     * @return the distance to every city, UNREACHABLE for cities that cannot be reached
+     */
+    static int[] shortestDistances(RoadTable roads, int source) {
+        RoadAdjacency adjacency = roads.getAdjacency();
+        int[] distance = new int[adjacency.getCityCount()];
+        Arrays.fill(distance, UNREACHABLE);
+        IndexedRoadHeap heap = new IndexedRoadHeap(distance.length);
+        distance[source] = 0;
+        heap.push(source, 0, 0);
+        while (!heap.isEmpty()) {
+            int city = heap.poll();
+            for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                int neighbour = adjacency.getNeighbour(slot);
+                int road = adjacency.getRoadIndex(slot);
+                int newDistance = distance[city] + roads.getDistance(road);
+                if (newDistance < distance[neighbour]) {
+                    distance[neighbour] = newDistance;
+                    heap.push(neighbour, newDistance, roads.getID(road));
+                }
+            }
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,279 @@
+import java.util.Arrays;
+
+/**
+ * The LinkCutTree class keeps a forest of rooted trees under link and cut operations, and answers which node on the
+ * path between two nodes has the largest key, or what the weights on the path add up to, all in amortized O(log n).
+ * Every tree is stored as a set of preferred paths, each one a splay tree ordered by depth, and the trees can be
+ * re-rooted by reversing a path.
+ * <p>
+ * Nodes are plain ints handed out by addNode, and their keys and weights are longs.
+ */
+public class LinkCutTree {
+    private int[] left;
+    private int[] right;
+    // The splay tree parent, or for the top of a splay tree the parent of its path
+    private int[] parent;
+    private boolean[] reversed;
+    private long[] key;
+    // The node with the largest key in the splay subtree
+    private int[] best;
+    private long[] weight;
+    // The total weight of the splay subtree
+    private long[] sum;
+    private int size = 0;
+    // Scratch stack for pushing reversals down before a splay
+    private int[] stack;
+
+    /**
+     * Constructs an empty forest with room for the given number of nodes. More nodes can be added later.
+     *
+     * @param capacity the expected number of nodes
+     */
+    public LinkCutTree(int capacity) {
+        left = new int[capacity];
+        right = new int[capacity];
+        parent = new int[capacity];
+        reversed = new boolean[capacity];
+        key = new long[capacity];
+        best = new int[capacity];
+        weight = new long[capacity];
+        sum = new long[capacity];
+        stack = new int[capacity];
+    }
+
+    /**
+     * Adds a node that is not connected to any other node.
+     *
+     * @param nodeKey    the key of the node
+     * @param nodeWeight the weight of the node
+     * @return the new node
+     */
+    public int addNode(long nodeKey, long nodeWeight) {
+        if (size == key.length) {
+            int capacity = size + (size >> 1) + 16;
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            reversed = Arrays.copyOf(reversed, capacity);
+            key = Arrays.copyOf(key, capacity);
+            best = Arrays.copyOf(best, capacity);
+            weight = Arrays.copyOf(weight, capacity);
+            sum = Arrays.copyOf(sum, capacity);
+            stack = Arrays.copyOf(stack, capacity);
+        }
+        int node = size++;
+        left[node] = -1;
+        right[node] = -1;
+        parent[node] = -1;
+        key[node] = nodeKey;
+        best[node] = node;
+        weight[node] = nodeWeight;
+        sum[node] = nodeWeight;
+        return node;
+    }
+
+    /**
+     * Changes the key and weight of a node.
+     *
+     * @param node       the node
+     * @param nodeKey    the new key
+     * @param nodeWeight the new weight
+     */
+    public void set(int node, long nodeKey, long nodeWeight) {
+        access(node);
+        key[node] = nodeKey;
+        weight[node] = nodeWeight;
+        update(node);
+    }
+
+    /**
+     * Returns the key of a node.
+     *
+     * @param node the node
+     * @return the key
+     */
+    public long getKey(int node) {
+        return key[node];
+    }
+
+    /**
+     * Returns whether two nodes are in the same tree.
+     *
+     * @param a the first node
+     * @param b the second node
+     * @return true if there is a path between the nodes
+     */
+    public boolean connected(int a, int b) {
+        return a == b || findRoot(a) == findRoot(b);
+    }
+
+    /**
+     * Connects two nodes in different trees with an edge.
+     *
+     * @param a the first node
+     * @param b the second node
+     */
+    public void link(int a, int b) {
+        makeRoot(a);
+        parent[a] = b;
+    }
+
+    /**
+     * Removes the edge between two nodes.
+     *
+     * @param a the first node
+     * @param b the second node
+     */
+    public void cut(int a, int b) {
+        makeRoot(a);
+        access(b);
+        // a is now the only node above b on the path, so it is b's left child
+        left[b] = -1;
+        parent[a] = -1;
+        update(b);
+    }
+
+    /**
+     * Returns the node with the largest key on the path between two nodes in the same tree, both included.
+     *
+     * @param a the first node
+     * @param b the second node
+     * @return the node with the largest key
+     */
+    public int pathMaximum(int a, int b) {
+        makeRoot(a);
+        access(b);
+        return best[b];
+    }
+
+    /**
+     * Returns the total weight of the nodes on the path between two nodes in the same tree, both included.
+     *
+     * @param a the first node
+     * @param b the second node
+     * @return the total weight
+     */
+    public long pathSum(int a, int b) {
+        makeRoot(a);
+        access(b);
+        return sum[b];
+    }
+
+    private void makeRoot(int node) {
+        access(node);
+        reversed[node] ^= true;
+    }
+
+    private int findRoot(int node) {
+        access(node);
+        while (true) {
+            push(node);
+            if (left[node] < 0) {
+                break;
+            }
+            node = left[node];
+        }
+        splay(node);
+        return node;
+    }
+
+    // Makes the path from the root to the node preferred, leaving the node at the top of its splay tree
+    private void access(int node) {
+        for (int last = -1, top = node; top >= 0; last = top, top = parent[top]) {
+            splay(top);
+            right[top] = last;
+            update(top);
+        }
+        splay(node);
+    }
+
+    private boolean isSplayRoot(int node) {
+        int p = parent[node];
+        return p < 0 || (left[p] != node && right[p] != node);
+    }
+
+    private void splay(int node) {
+        // Push pending reversals down from the top of the splay tree first
+        int depth = 0;
+        stack[depth++] = node;
+        for (int x = node; !isSplayRoot(x); x = parent[x]) {
+            stack[depth++] = parent[x];
+        }
+        while (depth > 0) {
+            push(stack[--depth]);
+        }
+
+        while (!isSplayRoot(node)) {
+            int p = parent[node];
+            if (!isSplayRoot(p)) {
+                int g = parent[p];
+                rotate((left[p] == node) == (left[g] == p) ? p : node);
+            }
+            rotate(node);
+        }
+    }
+
+    private void rotate(int node) {
+        int p = parent[node];
+        int g = parent[p];
+        if (!isSplayRoot(p)) {
+            if (left[g] == p) {
+                left[g] = node;
+            } else {
+                right[g] = node;
+            }
+        }
+        parent[node] = g;
+        if (left[p] == node) {
+            left[p] = right[node];
+            if (right[node] >= 0) {
+                parent[right[node]] = p;
+            }
+            right[node] = p;
+        } else {
+            right[p] = left[node];
+            if (left[node] >= 0) {
+                parent[left[node]] = p;
+            }
+            left[node] = p;
+        }
+        parent[p] = node;
+        update(p);
+        update(node);
+    }
+
+    private void push(int node) {
+        if (!reversed[node]) {
+            return;
+        }
+        int swap = left[node];
+        left[node] = right[node];
+        right[node] = swap;
+        if (left[node] >= 0) {
+            reversed[left[node]] ^= true;
+        }
+        if (right[node] >= 0) {
+            reversed[right[node]] ^= true;
+        }
+        reversed[node] = false;
+    }
+
+    private void update(int node) {
+        long total = weight[node];
+        int max = node;
+        if (left[node] >= 0) {
+            total += sum[left[node]];
+            if (key[best[left[node]]] > key[max]) {
+                max = best[left[node]];
+            }
+        }
+        if (right[node] >= 0) {
+            total += sum[right[node]];
+            if (key[best[right[node]]] > key[max]) {
+                max = best[right[node]];
+            }
+        }
+        best[node] = max;
+        sum[node] = total;
+    }
+}
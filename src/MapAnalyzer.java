@@ -1,23 +1,129 @@
 import java.io.File;
-import java.io.FileWriter;
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.util.ArrayList;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * The Main class is the entry point of the program and handles file reading, writing, and specific calculations.
  */
 public class MapAnalyzer {
+    // Road count from which the barely connected map is searched in parallel on multi-core machines
+    static final int PARALLEL_SPANNING_TREE_THRESHOLD = 100_000;
+    // Road count from which the barely connected map and the total distance are found next to the fastest route
+    static final int CONCURRENT_ANALYSES_THRESHOLD = 10_000;
+    // Road count from which the fastest route is searched with the parallel delta-stepping search on multi-core machines
+    static final int PARALLEL_ROUTE_THRESHOLD = 1_000_000;
+    // Snapshots larger than this fraction of the maximum heap are mapped instead of loaded, unless told otherwise
+    static final int OFF_HEAP_HEAP_FRACTION = 4;
+    // Cities per region of a region overlay, unless told otherwise
+    static final int DEFAULT_REGION_SIZE = 4096;
+    // Results of earlier runs on the same roads, or null if the "mapanalyzer.cache" system property is not set
+    private static final ResultCache RESULT_CACHE = ResultCache.fromSystemProperties();
 
     /**
      * The main method is the entry point of the program. It takes command line arguments for input and output file paths,
-     * reads the input file, performs operations, and writes the results to the output file.
+     * reads the input file, performs operations, and writes the results to the output file. The input file can be either
+     * the tab-separated text format or a snapshot written by the compile mode.
+     * <p>
+     * With "compile" as the first of three arguments, the text input file given second is compiled into a snapshot at the
+     * path given third instead. With "batch" as the first of four arguments, the roads are read from the second argument,
+     * starting/destination city pairs from the third ("-" for standard input), and the answers are written to the fourth. An
+     * optional fifth argument gives either the number of landmarks to preprocess for the landmark-based route search, the
+     * path of a contraction hierarchy file, or the directory of a region overlay to answer the routes with. With "hierarchy"
+     * as the first of three arguments, a contraction hierarchy of the input file given second is built and written to the
+     * path given third. With "regions" as the first of three or four arguments, the input file given second is split into
+     * regions and their overlay is written to the directory given third, one file per region; an optional fourth argument
+     * gives the number of cities per region, 4096 by default. With "update" as the
+     * first of four arguments, the roads are read from the second argument, the road changes from the third, and the barely
+     * connected map and fastest route are kept up to date under the changes, with the results after every change written
+     * to the fourth. With "stretch" as the first of three or four arguments, the roads are read from the second argument
+     * and the distribution of the stretch of fastest routes on the barely connected map over all city pairs is written to
+     * the third; an optional fourth argument gives the number of source cities to sample instead of using every city. With
+     * "external" as the first of three or four arguments, the barely connected map of the text input file given second is
+     * found by sorting the roads on disk and written with its total distance to the third, so the roads do not have to fit
+     * in memory; an optional fourth argument gives the sort buffer in megabytes, a quarter of the heap by default.
+     * With "jobs" as the first of two arguments, every line of the manifest given second names a tab-separated input
+     * and output file, and with "jobs" as the first of three arguments, every file of the directory given second is an
+     * input file whose output is written to the file of the same name in the directory given third. Each input file is
+     * analysed as a run with two arguments would, several at once on one JVM; see {@link JobRunner}.
+     * <p>
+     * Results are written as plain text, or as JSON lines or a binary stream if the output path ends with ".jsonl" or ".bin".
+     * With the system property "mapanalyzer.metrics" set to true, the phase times and work counters of the run are written
+     * next to the output file; see {@link RunMetrics}.
+     * <p>
+     * Snapshots larger than a quarter of the maximum heap are mapped rather than loaded, so the roads stay off the heap
+     * and the fastest route is searched with off-heap working arrays; see {@link MappedRoadTable}. The system property
+     * "mapanalyzer.offheap" set to true or false maps or loads every snapshot instead.
+     * <p>
+     * With the system property "mapanalyzer.cache" set to a directory, the barely connected map and the shortest-path
+     * tree of the starting city are kept there and reused by later runs on the same roads; see {@link ResultCache}.
      *
      * @param args command line arguments, expects exactly two arguments: the input file path and the output file path.
      */
     public static void main(String[] args) {
+        if (args.length == 3 && args[0].equals("compile")) {
+            try {
+                GraphSnapshot.compile(args[1], args[2]);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        if ((args.length == 4 || args.length == 5) && args[0].equals("batch")) {
+            runBatch(args[1], args[2], args[3], args.length == 5 ? args[4] : "0");
+            return;
+        }
+        if (args.length == 4 && args[0].equals("update")) {
+            runUpdates(args[1], args[2], args[3]);
+            return;
+        }
+        if ((args.length == 3 || args.length == 4) && args[0].equals("stretch")) {
+            runStretch(args[1], args[2], args.length == 4 ? Integer.parseInt(args[3]) : 0);
+            return;
+        }
+        if ((args.length == 3 || args.length == 4) && args[0].equals("external")) {
+            long bufferBytes = args.length == 4 ? Long.parseLong(args[3]) << 20 : Runtime.getRuntime().maxMemory() / 4;
+            runExternal(args[1], args[2], bufferBytes);
+            return;
+        }
+        if ((args.length == 2 || args.length == 3) && args[0].equals("jobs")) {
+            runJobs(args[1], args.length == 3 ? args[2] : null);
+            return;
+        }
+        if ((args.length == 3 || args.length == 4) && args[0].equals("regions")) {
+            try {
+                RoadInput input = readInput(args[1]);
+                int regionSize = args.length == 4 ? Integer.parseInt(args[3]) : DEFAULT_REGION_SIZE;
+                RegionOverlay overlay = RegionOverlay.build(input.getRoads(), regionSize, Runtime.getRuntime().availableProcessors());
+                overlay.write(args[2]);
+                System.out.println(overlay.getStatistics());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        if (args.length == 3 && args[0].equals("hierarchy")) {
+            try {
+                RoadInput input = readInput(args[1]);
+                ContractionHierarchy hierarchy = ContractionHierarchy.build(input.getRoads(), Runtime.getRuntime().availableProcessors());
+                hierarchy.write(args[2]);
+                System.out.println(hierarchy.getStatistics());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
         if (args.length != 2) {
             System.out.println("ERROR: This program works exactly with two command line arguments," +
                     " the first one is the path to the input file whereas the second one is the path to the output file." +
@@ -29,28 +135,240 @@ public class MapAnalyzer {
         String outputFileName = args[1];
 
         try {
-            FileWriter writer = new FileWriter(outputFileName);
-            String[] inputContent = FileInput.readFile(inputFileName, false, false);
+            analyse(inputFileName, outputFileName);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (RESULT_CACHE != null) {
+            System.out.println(RESULT_CACHE.getStatistics());
+        }
+        finishMetrics(outputFileName);
+    }
+
+    /**
+     * Reads an input file, performs operations and writes the results to an output file, as a run with two arguments
+     * does.
+     *
+     * @param inputFileName  path to the input file or snapshot
+     * @param outputFileName path to the output file
+     * @throws IOException if the input cannot be read or the output cannot be written
+     */
+    static void analyse(String inputFileName, String outputFileName) throws IOException {
+        try (ResultSink sink = ResultSink.open(outputFileName, Charset.defaultCharset())) {
+            RoadInput input = readInput(inputFileName);
+
+            operations(input.getStartingCity(), input.getDestinationCity(), input.getRoads(), sink);
+            RunMetrics.Timer output = RunMetrics.start(RunMetrics.Phase.OUTPUT);
+            sink.flush();
+            output.stop();
+        }
+    }
+
+    /**
+     * Reads the roads from a text input file or a snapshot, timed as the parse phase.
+     *
+     * @param inputFileName path to the input file or snapshot
+     * @return the parsed input
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    static RoadInput readInput(String inputFileName) throws IOException {
+        RunMetrics.Timer timer = RunMetrics.start(RunMetrics.Phase.PARSE);
+        RoadInput input;
+        if (!GraphSnapshot.isSnapshot(inputFileName)) {
+            input = MappedRoadInput.read(inputFileName);
+        } else if (isMappedOffHeap(inputFileName)) {
+            input = GraphSnapshot.map(inputFileName);
+        } else {
+            input = GraphSnapshot.load(inputFileName);
+        }
+        timer.stop();
+        return input;
+    }
+
+    /**
+     * Returns whether a snapshot is mapped off the heap rather than loaded onto it: as the "mapanalyzer.offheap" system
+     * property says, or if it is not set, when the snapshot is larger than a quarter of the maximum heap.
+     *
+     * @param snapshotFileName path to the snapshot
+     * @return true if the snapshot is mapped
+     * @throws IOException if the size of the snapshot cannot be read
+     */
+    private static boolean isMappedOffHeap(String snapshotFileName) throws IOException {
+        String offHeap = System.getProperty("mapanalyzer.offheap");
+        if (offHeap != null) {
+            return Boolean.parseBoolean(offHeap);
+        }
+        return Files.size(Paths.get(snapshotFileName)) > Runtime.getRuntime().maxMemory() / OFF_HEAP_HEAP_FRACTION;
+    }
+
+    /**
+     * Records the metrics of the run that wrote the given output file.
+     *
+     * @param outputFileName path to the output file
+     */
+    private static void finishMetrics(String outputFileName) {
+        try {
+            RunMetrics.finish(outputFileName);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Loads the roads once and answers every city pair of the pairs file on a worker pool sized to the machine's cores.
+     *
+     * @param inputFileName  path to the road input file or snapshot
+     * @param pairsFileName  path to the file of tab-separated city pairs, or "-" for standard input
+     * @param outputFileName path to the output file
+     * @param routeEngine    the number of landmarks for the landmark-based route search, 0 for the plain search, the
+     *                       path of a contraction hierarchy file, or the directory of a region overlay
+     */
+    private static void runBatch(String inputFileName, String pairsFileName, String outputFileName, String routeEngine) {
+        try (ResultSink sink = ResultSink.open(outputFileName, Charset.defaultCharset());
+             BufferedReader pairs = pairsFileName.equals("-")
+                     ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                     : Files.newBufferedReader(Paths.get(pairsFileName), StandardCharsets.UTF_8)) {
+            RoadInput input = readInput(inputFileName);
+            int threads = Runtime.getRuntime().availableProcessors();
+            BatchQueryRunner runner;
+            if (routeEngine.matches("\\d+")) {
+                runner = new BatchQueryRunner(input.getRoads(), threads, Integer.parseInt(routeEngine));
+            } else if (Files.isDirectory(Paths.get(routeEngine))) {
+                runner = new BatchQueryRunner(input.getRoads(), threads, RegionOverlay.load(routeEngine, input.getRoads()));
+            } else {
+                runner = new BatchQueryRunner(input.getRoads(), threads, ContractionHierarchy.load(routeEngine, input.getRoads()));
+            }
+            runner.run(pairs, sink);
+            if (runner.getTreeCache() != null) {
+                System.out.println(runner.getTreeCache().getStatistics());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        finishMetrics(outputFileName);
+    }
+
+    /**
+     * Loads the roads once and keeps their barely connected map and the fastest roads from the starting city up to date
+     * while the road changes are applied one by one. After every change, the total distance of the barely connected map,
+     * the fastest route between the starting and destination cities and the analysis are written; at the end, the roads of
+     * the barely connected map. A change that cannot be applied is reported with an error line and skipped.
+     *
+     * @param inputFileName   path to the road input file or snapshot
+     * @param changesFileName path to the file of road changes
+     * @param outputFileName  path to the output file
+     */
+    private static void runUpdates(String inputFileName, String changesFileName, String outputFileName) {
+        try (ResultSink sink = ResultSink.open(outputFileName, Charset.defaultCharset());
+             BufferedReader changes = Files.newBufferedReader(Paths.get(changesFileName), StandardCharsets.UTF_8)) {
+            RoadInput input = readInput(inputFileName);
+            String startingCity = input.getStartingCity();
+            String destinationCity = input.getDestinationCity();
+            DynamicRoadMap roads = new DynamicRoadMap(input.getRoads());
+            DynamicSpanningTree barelyConnectedMap = new DynamicSpanningTree(roads);
+            DynamicShortestPathTree fastestRoads = new DynamicShortestPathTree(roads, startingCity);
+            CityDictionary cities = roads.getCities();
+            String line;
+            while ((line = changes.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                RoadChange change = RoadChange.parse(line);
+                try {
+                    roads.apply(change);
+                } catch (IllegalArgumentException | NoSuchElementException e) {
+                    sink.message("ERROR: " + e.getMessage());
+                    continue;
+                }
+                sink.message("Barely Connected Map after " + change + " (" + barelyConnectedMap.getBarelyConnectedMapTotalDistance() + " KM)");
+                try {
+                    int totalFastestRoadDistance = fastestRoads.writeFastestRoad(destinationCity,
+                            "Fastest Route from " + startingCity + " to " + destinationCity, sink);
+                    int totalFastestRoadDistanceOnBarelyConnectedMap =
+                            barelyConnectedMap.getDistance(cities.indexOf(startingCity), cities.indexOf(destinationCity));
+                    sink.analysis(barelyConnectedMap.getBarelyConnectedMapTotalDistance(), roads.getTotalDistance(),
+                            totalFastestRoadDistance, totalFastestRoadDistanceOnBarelyConnectedMap);
+                    sink.endAnswer();
+                } catch (NoSuchElementException e) {
+                    sink.message("ERROR: No route from " + startingCity + " to " + destinationCity);
+                }
+            }
+            barelyConnectedMap.writeBarelyConnectedMap(sink);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        finishMetrics(outputFileName);
+    }
 
-            operations(inputContent, writer);
+    /**
+     * Loads the roads once and writes the distribution of the stretch of fastest routes on their barely connected map
+     * over every city pair, or over the pairs of a sample of source cities, searched on the common fork-join pool.
+     *
+     * @param inputFileName  path to the road input file or snapshot
+     * @param outputFileName path to the output file
+     * @param sampleCount    the number of source cities to sample, or 0 for every city
+     */
+    private static void runStretch(String inputFileName, String outputFileName, int sampleCount) {
+        try (ResultSink sink = ResultSink.open(outputFileName, Charset.defaultCharset())) {
+            RoadInput input = readInput(inputFileName);
+            StretchAnalysis analysis = new StretchAnalysis(input.getRoads(), ForkJoinPool.commonPool());
+            analysis.report(analysis.analyse(sampleCount), sink);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        finishMetrics(outputFileName);
+    }
 
-            FileOutput.writeToFile(outputFileName, "", false, false);
-            writer.close();
+    /**
+     * Analyses the input files of a manifest or a directory on a pool sized to the machine's cores, printing the progress
+     * of the jobs to standard output.
+     *
+     * @param source          path to the manifest, or to the directory of input files
+     * @param outputDirectory path to the directory of output files, or null if the source is a manifest
+     */
+    private static void runJobs(String source, String outputDirectory) {
+        try {
+            List<JobRunner.Job> jobs = outputDirectory == null
+                    ? JobRunner.readManifest(Paths.get(source))
+                    : JobRunner.listDirectory(Paths.get(source), Paths.get(outputDirectory));
+            new JobRunner(Runtime.getRuntime().availableProcessors()).run(jobs, System.out);
+            if (RESULT_CACHE != null) {
+                System.out.println(RESULT_CACHE.getStatistics());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
+    /**
+     * Finds the barely connected map of a text input file with the external sort of ExternalSpanningTree, spilling
+     * sorted runs under java.io.tmpdir, and writes its roads and total distance.
+     *
+     * @param inputFileName  path to the text input file
+     * @param outputFileName path to the output file
+     * @param bufferBytes    the memory used to sort the roads
+     */
+    private static void runExternal(String inputFileName, String outputFileName, long bufferBytes) {
+        try (ResultSink sink = ResultSink.open(outputFileName, Charset.defaultCharset())) {
+            ExternalSpanningTree tree = new ExternalSpanningTree(bufferBytes, Paths.get(System.getProperty("java.io.tmpdir")));
+            tree.build(inputFileName, sink);
+            System.out.println(tree.getStatistics());
         } catch (IOException e) {
             e.printStackTrace();
         }
+        finishMetrics(outputFileName);
     }
 
     /**
-     * Performs operations based on the input content and writes the results to the provided FileWriter.
+     * Performs operations based on the input content and reports the results to the provided sink.
      *
      * @param inputContent an array of strings containing the lines of the input file.
-     * @param writer the FileWriter object to write results to the output file.
+     * @param sink the sink to report results to.
      * @throws IOException if an I/O error occurs.
      */
-    public static void operations(String[] inputContent, FileWriter writer) throws IOException {
-        List<Road> roads = new ArrayList<>();
+    public static void operations(String[] inputContent, ResultSink sink) throws IOException {
+        CityDictionary cities = new CityDictionary();
+        RoadTable roads = new RoadTable(cities, inputContent.length);
 
         String startingCity = null;
         String destinationCity = null;
@@ -62,43 +380,204 @@ public class MapAnalyzer {
                 destinationCity = line[1];
             } else {
                 // Subsequent lines contain road data
-                Road road = new Road();
-                road.setCity1(line[0]);
-                road.setCity2(line[1]);
-                road.setDistance(Integer.parseInt(line[2]));
-                road.setID(Integer.parseInt(line[3]));
-                roads.add(road);
+                roads.add(cities.getOrAdd(line[0]), cities.getOrAdd(line[1]), Integer.parseInt(line[2]), Integer.parseInt(line[3]));
             }
         }
+        operations(startingCity, destinationCity, roads, sink);
+    }
 
+    /**
+     * Performs operations on already parsed roads and reports the results to the provided sink.
+     * <p>
+     * The table is frozen first, so it can be shared between threads. On multi-core machines and large maps, the
+     * barely connected map and the total distance of the roads are then found on their own threads while the fastest
+     * route is searched, and the results are still reported in the usual order: the fastest route, the barely connected
+     * map, its fastest route and the analysis.
+     * <p>
+     * If there is no route between the cities, which is known from the connected components of the roads before any
+     * search, an error line is reported instead of the routes, followed by the barely connected map, a forest with one
+     * tree per component, and the total distance of every component.
+     *
+     * @param startingCity    the starting city
+     * @param destinationCity the destination city
+     * @param roads           the road table, which can no longer be changed afterwards
+     * @param sink            the sink to report results to.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void operations(String startingCity, String destinationCity, RoadTable roads, ResultSink sink) throws IOException {
+        roads.freeze();
+        CityDictionary cities = roads.getCities();
+        if (!roads.getComponents().isConnected(cities.indexOf(startingCity), cities.indexOf(destinationCity))) {
+            writeUnreachable(startingCity, destinationCity, roads, sink);
+            return;
+        }
+        if (RESULT_CACHE != null && !roads.isOffHeap()) {
+            operations(startingCity, destinationCity, roads, RESULT_CACHE, sink);
+            return;
+        }
+        int processors = Runtime.getRuntime().availableProcessors();
+        boolean parallel = roads.size() >= PARALLEL_SPANNING_TREE_THRESHOLD && processors > 1;
         // Create a custom message for the fastest route calculation
         String customMessage = "Fastest Route from " + startingCity + " to " + destinationCity;
-        FastestRoadCalculate fastestRoadCalculate = new FastestRoadCalculate(roads, startingCity, destinationCity, customMessage, writer);
-        BarelyConnectedMapCalculate barelyConnectedMapCalculate = new BarelyConnectedMapCalculate(roads, startingCity, destinationCity, writer);
+        if (roads.size() < CONCURRENT_ANALYSES_THRESHOLD || processors < 2) {
+            int totalFastestRoadDistance = findFastestRoad(roads, startingCity, destinationCity, customMessage, sink);
+            BarelyConnectedMapCalculate barelyConnectedMapCalculate = new BarelyConnectedMapCalculate(roads, startingCity, destinationCity, parallel, sink);
 
-        int originalTotalDistance = 0;
-        // Calculate the total distance of the original road network
-        for (Road road : roads) {
-            originalTotalDistance += road.getDistance();
+            sink.analysis(barelyConnectedMapCalculate.getBarelyConnectedMapTotalDistance(), totalDistance(roads),
+                    totalFastestRoadDistance, barelyConnectedMapCalculate.getTotalFastestRoadDistanceOnBarelyConnectedMap());
+            return;
         }
 
-        writer.write("Analysis:\n");
+        ExecutorService pipeline = Executors.newFixedThreadPool(2);
+        try {
+            Future<BarelyConnectedMapCalculate> barelyConnectedMap = pipeline.submit(() -> {
+                BarelyConnectedMapCalculate calculate = new BarelyConnectedMapCalculate(roads, parallel);
+                calculate.getTreePathIndex();
+                return calculate;
+            });
+            Future<Integer> originalTotalDistance = pipeline.submit(() -> totalDistance(roads));
 
-        // Calculate and write the ratio of construction material usage between the barely connected and original maps
-        double ratio1 = 1.0 * barelyConnectedMapCalculate.getBarelyConnectedMapTotalDistance() / originalTotalDistance;
-        DecimalFormatSymbols symbols = new DecimalFormatSymbols();
-        symbols.setDecimalSeparator('.');
-        DecimalFormat decimalFormat = new DecimalFormat("0.00", symbols);
-        String formattedRatio1 = decimalFormat.format(ratio1);
+            // The fastest route comes first in the output, so it is searched and reported on this thread
+            int totalFastestRoadDistance = findFastestRoad(roads, startingCity, destinationCity, customMessage, sink);
+            BarelyConnectedMapCalculate barelyConnectedMapCalculate = await(barelyConnectedMap);
+            barelyConnectedMapCalculate.writeBarelyConnectedMap(sink);
+            int totalFastestRoadDistanceOnBarelyConnectedMap =
+                    barelyConnectedMapCalculate.findFastestRoadOnBarelyConnectedMap(startingCity, destinationCity, sink);
 
-        writer.write("Ratio of Construction Material Usage Between Barely Connected and Original Map: " + formattedRatio1 + "\n");
+            sink.analysis(barelyConnectedMapCalculate.getBarelyConnectedMapTotalDistance(), await(originalTotalDistance),
+                    totalFastestRoadDistance, totalFastestRoadDistanceOnBarelyConnectedMap);
+        } finally {
+            pipeline.shutdownNow();
+        }
+    }
 
-        // Calculate and write the ratio of the fastest route distances between the barely connected and original maps
-        int totalFastestRoadDistance = fastestRoadCalculate.getTotalFastestRoadDistance();
-        int totalFastestRoadDistanceOnBarelyConnectedMap = barelyConnectedMapCalculate.getTotalFastestRoadDistanceOnBarelyConnectedMap();
-        double ratio2 = 1.0 * totalFastestRoadDistanceOnBarelyConnectedMap / totalFastestRoadDistance;
-        String formattedRatio2 = decimalFormat.format(ratio2);
+    /**
+     * Reports that there is no route between two cities, followed by the barely connected map of the roads and the
+     * total distance of its tree in every connected component.
+     *
+     * @param startingCity    the starting city
+     * @param destinationCity the destination city
+     * @param roads           the frozen road table
+     * @param sink            the sink to report results to
+     * @throws IOException if an I/O error occurs
+     */
+    private static void writeUnreachable(String startingCity, String destinationCity, RoadTable roads, ResultSink sink) throws IOException {
+        sink.message("ERROR: No route from " + startingCity + " to " + destinationCity);
+        boolean parallel = roads.size() >= PARALLEL_SPANNING_TREE_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1;
+        BarelyConnectedMapCalculate barelyConnectedMapCalculate = new BarelyConnectedMapCalculate(roads, parallel);
+        barelyConnectedMapCalculate.writeBarelyConnectedMap(sink);
+        barelyConnectedMapCalculate.writeComponentTotalDistances(sink);
+    }
+
+    /**
+     * Performs operations on frozen roads with the results of earlier runs on the same roads. The fastest route is
+     * read from the cached shortest-path tree of the starting city, or from the whole tree, which is then cached, and
+     * the barely connected map and the total distance of the roads are taken from the cache, or found and cached. The
+     * results are reported as without the cache.
+     *
+     * @param startingCity    the starting city
+     * @param destinationCity the destination city
+     * @param roads           the frozen road table
+     * @param cache           the result cache
+     * @param sink            the sink to report results to
+     * @throws IOException if an I/O error occurs
+     */
+    private static void operations(String startingCity, String destinationCity, RoadTable roads, ResultCache cache,
+                                   ResultSink sink) throws IOException {
+        String key = ResultCache.key(roads);
+        int start = roads.getCities().indexOf(startingCity);
+        ShortestPathTreeCache trees = new ShortestPathTreeCache(roads, Long.MAX_VALUE);
+        ShortestPathTreeCache.Tree tree = start < 0 ? null : cache.getTree(key, roads, start);
+        if (tree != null) {
+            trees.put(tree);
+        }
+        String customMessage = "Fastest Route from " + startingCity + " to " + destinationCity;
+        int totalFastestRoadDistance = new FastestRoadCalculate(trees, startingCity, destinationCity, customMessage, sink).getTotalFastestRoadDistance();
+        if (tree == null) {
+            cache.putTree(key, trees.get(start));
+        }
 
-        writer.write("Ratio of Fastest Route Between Barely Connected and Original Map: " + formattedRatio2);
+        ResultCache.Analysis analysis = cache.getAnalysis(key, roads);
+        BarelyConnectedMapCalculate barelyConnectedMapCalculate;
+        int originalTotalDistance;
+        if (analysis != null) {
+            barelyConnectedMapCalculate = new BarelyConnectedMapCalculate(roads, analysis.getBarelyConnectedMapRows());
+            originalTotalDistance = analysis.getOriginalTotalDistance();
+        } else {
+            boolean parallel = roads.size() >= PARALLEL_SPANNING_TREE_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1;
+            barelyConnectedMapCalculate = new BarelyConnectedMapCalculate(roads, parallel);
+            originalTotalDistance = totalDistance(roads);
+            cache.putAnalysis(key, roads, barelyConnectedMapCalculate.getBarelyConnectedMapRows(), originalTotalDistance);
+        }
+        barelyConnectedMapCalculate.writeBarelyConnectedMap(sink);
+        int totalFastestRoadDistanceOnBarelyConnectedMap =
+                barelyConnectedMapCalculate.findFastestRoadOnBarelyConnectedMap(startingCity, destinationCity, sink);
+        sink.analysis(barelyConnectedMapCalculate.getBarelyConnectedMapTotalDistance(), originalTotalDistance,
+                totalFastestRoadDistance, totalFastestRoadDistanceOnBarelyConnectedMap);
+    }
+
+    /**
+     * Finds the fastest road and reports it to the sink: with off-heap working arrays on roads stored off the heap, with
+     * the parallel delta-stepping search on very large maps and multi-core machines, and with FastestRoadCalculate
+     * otherwise. All of them report the same route.
+     *
+     * @param roads           the road table
+     * @param startingCity    the starting city
+     * @param destinationCity the destination city
+     * @param customMessage   the custom message to be written
+     * @param sink            the sink to report results to
+     * @return the total distance of the fastest road
+     * @throws IOException if an I/O error occurs
+     */
+    private static int findFastestRoad(RoadTable roads, String startingCity, String destinationCity, String customMessage, ResultSink sink) throws IOException {
+        if (roads.isOffHeap()) {
+            return new OffHeapRouteCalculate(roads, startingCity, destinationCity, customMessage, sink).getTotalFastestRoadDistance();
+        }
+        if (roads.size() >= PARALLEL_ROUTE_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1) {
+            DeltaSteppingSearch search = new DeltaSteppingSearch(roads, ForkJoinPool.commonPool(), DeltaSteppingSearch.defaultDelta(roads));
+            return new DeltaSteppingRouteCalculate(search, startingCity, destinationCity, customMessage, sink).getTotalFastestRoadDistance();
+        }
+        return new FastestRoadCalculate(roads, startingCity, destinationCity, customMessage, sink).getTotalFastestRoadDistance();
+    }
+
+    /**
+     * Waits for the result of a pipeline task, passing on what it threw.
+     *
+     * @param task the task
+     * @param <T>  the type of the result
+     * @return the result of the task
+     * @throws IOException if the task failed with a checked exception or the wait was interrupted
+     */
+    private static <T> T await(Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the analyses", e);
+        } catch (ExecutionException e) {
+            // Runtime exceptions, such as a missing route, reach the caller as if the analysis ran on this thread
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the total distance of all roads.
+     *
+     * @param roads the road table
+     * @return the total distance of the roads
+     */
+    public static int totalDistance(RoadTable roads) {
+        int originalTotalDistance = 0;
+        // Calculate the total distance of the original road network
+        for (int road = 0; road < roads.size(); road++) {
+            originalTotalDistance += roads.getDistance(road);
+        }
+        return originalTotalDistance;
     }
 }
\ No newline at end of file
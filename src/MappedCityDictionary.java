@@ -0,0 +1,91 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The MappedCityDictionary class is a read-only CityDictionary over the city names of a snapshot, which stay in the
+ * mapped file. Names are decoded only when they are looked up, and cities are found by name through an off-heap hash
+ * table built when the dictionary is opened, so the heap holds nothing per city.
+ */
+public class MappedCityDictionary extends CityDictionary {
+    private final int cityCount;
+    private final OffHeapIntArray nameOffsets;
+    private final MappedByteBuffer names;
+    // Open-addressing table of city ID + 1 by hash of the UTF-8 name, 0 marks an empty slot
+    private final OffHeapIntArray table;
+
+    /**
+     * Maps the city dictionary section of a snapshot: the offset of every name in the name block followed by the size
+     * of the block, then the block of UTF-8 names.
+     *
+     * @param channel   the channel of the snapshot, which can be closed once mapped
+     * @param position  the offset of the name offsets in the file
+     * @param cityCount the number of cities
+     * @throws IOException if the section cannot be mapped
+     */
+    public MappedCityDictionary(FileChannel channel, long position, int cityCount) throws IOException {
+        this.cityCount = cityCount;
+        nameOffsets = OffHeapIntArray.map(channel, position, cityCount + 1);
+        names = channel.map(FileChannel.MapMode.READ_ONLY, position + 4L * (cityCount + 1), nameOffsets.get(cityCount));
+
+        // Keep the table at most half full
+        int capacity = (int) Math.min(1 << 30, Long.highestOneBit(Math.max(1, cityCount)) << 2);
+        table = OffHeapIntArray.allocate(capacity);
+        int mask = capacity - 1;
+        for (int city = 0; city < cityCount; city++) {
+            int slot = mix(hash(names, nameOffsets.get(city), nameOffsets.get(city + 1))) & mask;
+            while (table.get(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table.set(slot, city + 1);
+        }
+    }
+
+    /**
+     * Always throws, since the dictionary is read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public int getOrAdd(String cityName) {
+        throw new UnsupportedOperationException("Cities cannot be added to a mapped city dictionary");
+    }
+
+    /**
+     * Always throws, since the dictionary is read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public int getOrAdd(ByteBuffer buffer, int from, int to) {
+        throw new UnsupportedOperationException("Cities cannot be added to a mapped city dictionary");
+    }
+
+    @Override
+    public int indexOf(String cityName) {
+        byte[] bytes = cityName.getBytes(StandardCharsets.UTF_8);
+        int mask = table.length() - 1;
+        for (int slot = mix(hash(bytes, 0, bytes.length)) & mask; table.get(slot) != 0; slot = (slot + 1) & mask) {
+            int city = table.get(slot) - 1;
+            if (matches(bytes, names, nameOffsets.get(city), nameOffsets.get(city + 1))) {
+                return city;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String getName(int city) {
+        int from = nameOffsets.get(city);
+        byte[] bytes = new byte[nameOffsets.get(city + 1) - from];
+        names.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int size() {
+        return cityCount;
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * The MappedRoadAdjacency class is a RoadAdjacency whose CSR arrays stay in a mapped snapshot instead of on the heap.
+ */
+public class MappedRoadAdjacency extends RoadAdjacency {
+    private final OffHeapIntArray offsets;
+    private final OffHeapIntArray neighbours;
+    private final OffHeapIntArray roadIndices;
+
+    /**
+     * Constructs an adjacency index over mapped arrays.
+     *
+     * @param roads       the road table
+     * @param offsets     the first slot of every city, followed by the total number of slots
+     * @param neighbours  the neighbouring city of every slot
+     * @param roadIndices the road row of every slot
+     */
+    public MappedRoadAdjacency(RoadTable roads, OffHeapIntArray offsets, OffHeapIntArray neighbours, OffHeapIntArray roadIndices) {
+        super(roads, new int[1], new int[0], new int[0]);
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+        this.roadIndices = roadIndices;
+    }
+
+    @Override
+    public int getCityCount() {
+        return offsets.length() - 1;
+    }
+
+    @Override
+    public int begin(int city) {
+        return offsets.get(city);
+    }
+
+    @Override
+    public int end(int city) {
+        return offsets.get(city + 1);
+    }
+
+    @Override
+    public int getNeighbour(int slot) {
+        return neighbours.get(slot);
+    }
+
+    @Override
+    public int getRoadIndex(int slot) {
+        return roadIndices.get(slot);
+    }
+}
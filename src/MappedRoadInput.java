@@ -0,0 +1,211 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The MappedRoadInput class reads an input file by memory-mapping it and scanning its UTF-8 bytes for tabs and
+ * line breaks. Distances and IDs are parsed in place and city names go straight into a CityDictionary, so no
+ * String is created per line.
+ */
+public class MappedRoadInput implements RoadInput {
+    // Size of the part of the file that is mapped at once
+    private static final int WINDOW_SIZE = 1 << 30;
+
+    /**
+     * Receives every road of an input file as it is parsed.
+     */
+    public interface RoadConsumer {
+        /**
+         * Receives one road.
+         *
+         * @param city1    the ID of the first city
+         * @param city2    the ID of the second city
+         * @param distance the distance of the road
+         * @param ID       the unique identifier of the road
+         * @throws IOException if the road cannot be handled
+         */
+        void road(int city1, int city2, int distance, int ID) throws IOException;
+    }
+
+    private final CityDictionary cities;
+    private final RoadTable roads;
+    private final RoadConsumer consumer;
+    private String startingCity;
+    private String destinationCity;
+    private boolean firstLine = true;
+    private final int[] tabs = new int[3];
+
+    // Without a consumer, the roads are kept in the road table
+    private MappedRoadInput(CityDictionary cities, RoadConsumer consumer) {
+        this.cities = cities;
+        roads = new RoadTable(cities, consumer == null ? 1024 : 1);
+        this.consumer = consumer == null ? roads::add : consumer;
+    }
+
+    /**
+     * Reads the input file at the given path.
+     *
+     * @param path path to the input file
+     * @return the parsed input
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    public static MappedRoadInput read(String path) throws IOException {
+        MappedRoadInput input = new MappedRoadInput(new CityDictionary(), null);
+        input.parse(path);
+        return input;
+    }
+
+    /**
+     * Reads the input file at the given path and passes every road to the consumer instead of keeping it, so only the
+     * city dictionary grows with the file. The road table of the returned input stays empty.
+     *
+     * @param path     path to the input file
+     * @param cities   the dictionary the city IDs are assigned in
+     * @param consumer the consumer of the roads
+     * @return the parsed input, with the query cities
+     * @throws IOException if the file cannot be read, a line is malformed or the consumer fails
+     */
+    public static MappedRoadInput scan(String path, CityDictionary cities, RoadConsumer consumer) throws IOException {
+        MappedRoadInput input = new MappedRoadInput(cities, consumer);
+        input.parse(path);
+        return input;
+    }
+
+    private void parse(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long position = 0;
+            while (position < fileSize) {
+                long length = Math.min(WINDOW_SIZE, fileSize - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean lastWindow = position + length == fileSize;
+                int consumed = parseWindow(buffer, (int) length, lastWindow);
+                if (consumed == 0) {
+                    throw new IOException("Line longer than " + WINDOW_SIZE + " bytes at offset " + position);
+                }
+                // Continue from the start of the line that was cut off by the end of the window
+                position += consumed;
+            }
+        }
+    }
+
+    /**
+     * Returns the starting city from the first line.
+     *
+     * @return the starting city
+     */
+    @Override
+    public String getStartingCity() {
+        return startingCity;
+    }
+
+    /**
+     * Returns the destination city from the first line.
+     *
+     * @return the destination city
+     */
+    @Override
+    public String getDestinationCity() {
+        return destinationCity;
+    }
+
+    /**
+     * Returns the roads read from the file.
+     *
+     * @return the road table
+     */
+    @Override
+    public RoadTable getRoads() {
+        return roads;
+    }
+
+    /**
+     * Parses every complete line in the window and returns the number of bytes consumed.
+     */
+    private int parseWindow(MappedByteBuffer buffer, int length, boolean lastWindow) throws IOException {
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(i) == '\n') {
+                parseLine(buffer, lineStart, i);
+                lineStart = i + 1;
+            }
+        }
+        if (lastWindow && lineStart < length) {
+            // The last line does not have to end with a line break
+            parseLine(buffer, lineStart, length);
+            lineStart = length;
+        }
+        return lineStart;
+    }
+
+    private void parseLine(MappedByteBuffer buffer, int from, int to) throws IOException {
+        if (to > from && buffer.get(to - 1) == '\r') {
+            to--;
+        }
+        if (to == from) {
+            return;
+        }
+
+        // Find the tabs between the fields
+        int tabCount = 0;
+        for (int i = from; i < to && tabCount < 3; i++) {
+            if (buffer.get(i) == '\t') {
+                tabs[tabCount++] = i;
+            }
+        }
+
+        if (firstLine) {
+            // First line contains starting and destination cities
+            firstLine = false;
+            int end = tabCount > 1 ? tabs[1] : to;
+            if (tabCount == 0) {
+                throw new IOException("Expected starting and destination cities on the first line");
+            }
+            startingCity = decode(buffer, from, tabs[0]);
+            destinationCity = decode(buffer, tabs[0] + 1, end);
+            return;
+        }
+
+        // Subsequent lines contain road data
+        if (tabCount < 3) {
+            throw new IOException("Expected four tab-separated fields in road line");
+        }
+        int city1 = cities.getOrAdd(buffer, from, tabs[0]);
+        int city2 = cities.getOrAdd(buffer, tabs[0] + 1, tabs[1]);
+        int distance = parseInt(buffer, tabs[1] + 1, tabs[2]);
+        int fieldEnd = tabs[2] + 1;
+        while (fieldEnd < to && buffer.get(fieldEnd) != '\t') {
+            fieldEnd++;
+        }
+        int ID = parseInt(buffer, tabs[2] + 1, fieldEnd);
+        consumer.road(city1, city2, distance, ID);
+    }
+
+    private static String decode(MappedByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            bytes[i - from] = buffer.get(i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int parseInt(MappedByteBuffer buffer, int from, int to) throws IOException {
+        boolean negative = from < to && buffer.get(from) == '-';
+        int i = negative ? from + 1 : from;
+        if (i == to) {
+            throw new IOException("Expected a number in road line");
+        }
+        int value = 0;
+        for (; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IOException("Expected a number in road line");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * The MappedRoadTable class is a frozen RoadTable whose columns, (distance, ID) order and adjacency index stay in a
+ * mapped snapshot instead of on the heap, so maps larger than the heap can be analysed and the garbage collector has
+ * nothing to scan per road. It is opened with {@link GraphSnapshot#map(String)}.
+ */
+public class MappedRoadTable extends RoadTable {
+    private final OffHeapIntArray city1;
+    private final OffHeapIntArray city2;
+    private final OffHeapIntArray distance;
+    private final OffHeapIntArray ID;
+    private final OffHeapIntArray sortedOrder;
+    private final MappedRoadAdjacency adjacency;
+
+    /**
+     * Constructs a road table over mapped columns and indexes.
+     *
+     * @param cities      the dictionary the city IDs refer to
+     * @param city1       the ID of the first city of every road
+     * @param city2       the ID of the second city of every road
+     * @param distance    the distance of every road
+     * @param ID          the unique identifier of every road
+     * @param sortedOrder the rows in (distance, ID) order
+     * @param offsets     the first adjacency slot of every city, followed by the total number of slots
+     * @param neighbours  the neighbouring city of every adjacency slot
+     * @param roadIndices the road row of every adjacency slot
+     */
+    public MappedRoadTable(CityDictionary cities, OffHeapIntArray city1, OffHeapIntArray city2, OffHeapIntArray distance,
+                           OffHeapIntArray ID, OffHeapIntArray sortedOrder, OffHeapIntArray offsets,
+                           OffHeapIntArray neighbours, OffHeapIntArray roadIndices) {
+        super(cities, new int[0], new int[0], new int[0], new int[0]);
+        this.city1 = city1;
+        this.city2 = city2;
+        this.distance = distance;
+        this.ID = ID;
+        this.sortedOrder = sortedOrder;
+        this.adjacency = new MappedRoadAdjacency(this, offsets, neighbours, roadIndices);
+        freeze();
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return city1.length();
+    }
+
+    @Override
+    public int getCity1(int road) {
+        return city1.get(road);
+    }
+
+    @Override
+    public int getCity2(int road) {
+        return city2.get(road);
+    }
+
+    @Override
+    public int getDistance(int road) {
+        return distance.get(road);
+    }
+
+    @Override
+    public int getID(int road) {
+        return ID.get(road);
+    }
+
+    @Override
+    public RoadAdjacency getAdjacency() {
+        return adjacency;
+    }
+
+    @Override
+    public int getSortedRoad(int rank) {
+        return sortedOrder.get(rank);
+    }
+
+    /**
+     * Returns the rows of the table ordered by distance and then by ID, copied onto the heap. Prefer
+     * {@link #getSortedRoad(int)}, which reads the mapped order in place.
+     *
+     * @return the rows in (distance, ID) order
+     */
+    @Override
+    public int[] getSortedOrder() {
+        return sortedOrder.toArray();
+    }
+
+    @Override
+    public int[] sortedOrder() {
+        return sortedOrder.toArray();
+    }
+}
@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The OffHeapIntArray class is an int array that lives outside the Java heap, in memory-mapped segments of a file.
+ * It either maps a section of an existing file read-only, such as a column of a snapshot, or a scratch file that is
+ * deleted as soon as it is mapped, so working arrays can grow past the heap and are paged by the operating system
+ * instead of being scanned by the garbage collector. Values are read and written at absolute positions, so any number
+ * of threads can read at once.
+ */
+public final class OffHeapIntArray {
+    // Ints per mapped segment, 1 GiB, which keeps every segment under the 2 GiB limit of a mapped buffer
+    private static final int SEGMENT_SHIFT = 28;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final IntBuffer[] segments;
+    private final int length;
+
+    private OffHeapIntArray(IntBuffer[] segments, int length) {
+        this.segments = segments;
+        this.length = length;
+    }
+
+    /**
+     * Maps a section of little-endian ints of a file read-only.
+     *
+     * @param channel  the channel of the file, which can be closed once mapped
+     * @param position the offset of the first int in the file
+     * @param length   the number of ints
+     * @return the mapped array
+     * @throws IOException if the section cannot be mapped
+     */
+    public static OffHeapIntArray map(FileChannel channel, long position, int length) throws IOException {
+        return new OffHeapIntArray(mapSegments(channel, FileChannel.MapMode.READ_ONLY, position, length, ByteOrder.LITTLE_ENDIAN), length);
+    }
+
+    /**
+     * Allocates a zero-filled array in a scratch file under java.io.tmpdir. The file is deleted right away and its
+     * space is given back once the array is no longer reachable.
+     *
+     * @param length the number of ints
+     * @return the new array
+     * @throws IOException if the scratch file cannot be created or mapped
+     */
+    public static OffHeapIntArray allocate(int length) throws IOException {
+        return allocate(1, length)[0];
+    }
+
+    /**
+     * Allocates several zero-filled arrays of the same length in one scratch file under java.io.tmpdir, which is
+     * cheaper than a file per array. The file is deleted right away and its space is given back once none of the arrays
+     * is reachable.
+     *
+     * @param count  the number of arrays
+     * @param length the number of ints of every array
+     * @return the new arrays
+     * @throws IOException if the scratch file cannot be created or mapped
+     */
+    public static OffHeapIntArray[] allocate(int count, int length) throws IOException {
+        Path file = Files.createTempFile("road-map", ".ints");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Mapping past the end grows the file, which stays sparse until pages are written
+            OffHeapIntArray[] arrays = new OffHeapIntArray[count];
+            for (int i = 0; i < count; i++) {
+                arrays[i] = new OffHeapIntArray(mapSegments(channel, FileChannel.MapMode.READ_WRITE, 4L * i * length, length,
+                        ByteOrder.nativeOrder()), length);
+            }
+            return arrays;
+        } finally {
+            try {
+                Files.delete(file);
+            } catch (IOException e) {
+                // Some platforms cannot delete a mapped file
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    private static IntBuffer[] mapSegments(FileChannel channel, FileChannel.MapMode mode, long position, int length,
+                                           ByteOrder order) throws IOException {
+        IntBuffer[] segments = new IntBuffer[Math.max(1, (int) (((long) length + SEGMENT_MASK) >>> SEGMENT_SHIFT))];
+        for (int s = 0; s < segments.length; s++) {
+            long first = (long) s << SEGMENT_SHIFT;
+            long count = Math.min(length - first, 1L << SEGMENT_SHIFT);
+            segments[s] = channel.map(mode, position + 4 * first, 4 * count).order(order).asIntBuffer();
+        }
+        return segments;
+    }
+
+    /**
+     * Returns the number of ints in the array.
+     *
+     * @return the length of the array
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the int at the given index.
+     *
+     * @param index the index
+     * @return the value at the index
+     */
+    public int get(int index) {
+        return segments[index >>> SEGMENT_SHIFT].get(index & SEGMENT_MASK);
+    }
+
+    /**
+     * Sets the int at the given index.
+     *
+     * @param index the index
+     * @param value the new value
+     * @throws java.nio.ReadOnlyBufferException if the array maps a file read-only
+     */
+    public void set(int index, int value) {
+        segments[index >>> SEGMENT_SHIFT].put(index & SEGMENT_MASK, value);
+    }
+
+    /**
+     * Copies the array onto the heap.
+     *
+     * @return the values of the array
+     */
+    public int[] toArray() {
+        int[] values = new int[length];
+        for (int s = 0; s < segments.length; s++) {
+            segments[s].get(0, values, s << SEGMENT_SHIFT, segments[s].limit());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,156 @@
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+/**
+ * The OffHeapRoadHeap class is the IndexedRoadHeap with its arrays in scratch files outside the Java heap, for
+ * searches on maps larger than the heap. Cities are ordered the same way, by tentative distance and then by the ID of
+ * the road that last reached them. A polled city keeps its final distance and is remembered as settled, so the search
+ * needs no separate distance or settled arrays.
+ */
+public class OffHeapRoadHeap {
+    // Marks a city that has been polled in the position array, where 0 marks a city that was never pushed
+    private static final int POLLED = -1;
+
+    private final OffHeapIntArray heap;
+    // Position of every city in the heap plus one
+    private final OffHeapIntArray position;
+    private final OffHeapIntArray distance;
+    private final OffHeapIntArray roadID;
+    private int size = 0;
+
+    /**
+     * Constructs an empty heap that can hold the cities 0 to capacity - 1.
+     *
+     * @param capacity the number of cities
+     * @throws IOException if the scratch files cannot be created
+     */
+    public OffHeapRoadHeap(int capacity) throws IOException {
+        OffHeapIntArray[] arrays = OffHeapIntArray.allocate(4, capacity);
+        heap = arrays[0];
+        position = arrays[1];
+        distance = arrays[2];
+        roadID = arrays[3];
+    }
+
+    /**
+     * Returns whether the heap has no cities left.
+     *
+     * @return true if the heap is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns whether the given city is currently in the heap.
+     *
+     * @param city the city index
+     * @return true if the city is in the heap
+     */
+    public boolean contains(int city) {
+        return position.get(city) > 0;
+    }
+
+    /**
+     * Returns whether the given city has been polled from the heap.
+     *
+     * @param city the city index
+     * @return true if the city is settled
+     */
+    public boolean isPolled(int city) {
+        return position.get(city) == POLLED;
+    }
+
+    /**
+     * Returns the tentative distance of a city that is in the heap, or its final distance once it has been
+     * polled.
+     *
+     * @param city the city index
+     * @return the tentative distance of the city
+     */
+    public int getDistance(int city) {
+        return distance.get(city);
+    }
+
+    /**
+     * Inserts a city, or moves it up if it is already in the heap. The caller decides whether the new distance is an
+     * improvement.
+     *
+     * @param city        the city index
+     * @param newDistance the tentative distance of the city
+     * @param newRoadID   the ID of the road that reached the city
+     */
+    public void push(int city, int newDistance, int newRoadID) {
+        distance.set(city, newDistance);
+        roadID.set(city, newRoadID);
+        int i = position.get(city) - 1;
+        if (i < 0) {
+            i = size++;
+        }
+        siftUp(i, city);
+    }
+
+    /**
+     * Removes and returns the city with the smallest (distance, road ID).
+     *
+     * @return the city index
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int poll() {
+        if (size == 0) {
+            throw new NoSuchElementException("No reachable city left in the heap");
+        }
+        int top = heap.get(0);
+        size--;
+        position.set(top, POLLED);
+        if (size > 0) {
+            siftDown(0, heap.get(size));
+        }
+        return top;
+    }
+
+    private boolean less(int a, int b) {
+        int distanceA = distance.get(a);
+        int distanceB = distance.get(b);
+        if (distanceA != distanceB) {
+            return distanceA < distanceB;
+        }
+        return roadID.get(a) < roadID.get(b);
+    }
+
+    private void siftUp(int i, int city) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int parentCity = heap.get(parent);
+            if (!less(city, parentCity)) {
+                break;
+            }
+            place(i, parentCity);
+            i = parent;
+        }
+        place(i, city);
+    }
+
+    private void siftDown(int i, int city) {
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int childCity = heap.get(child);
+            if (child + 1 < size && less(heap.get(child + 1), childCity)) {
+                child++;
+                childCity = heap.get(child);
+            }
+            if (!less(childCity, city)) {
+                break;
+            }
+            place(i, childCity);
+            i = child;
+        }
+        place(i, city);
+    }
+
+    private void place(int i, int city) {
+        heap.set(i, city);
+        position.set(city, i + 1);
+    }
+}
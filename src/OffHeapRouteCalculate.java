@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+/**
+ * The OffHeapRouteCalculate class calculates the fastest road between two cities like FastestRoadCalculate, with the
+ * same search and the same route, but keeps the heap, the distances and the predecessor roads of the search in scratch
+ * files outside the Java heap. Together with a MappedRoadTable, the heap then holds nothing per city or road, so maps
+ * larger than the heap can be searched without the garbage collector slowing down as the map grows.
+ */
+public class OffHeapRouteCalculate {
+    RoadTable roads;
+    private String startingCity;
+    private String destinationCity;
+    private String customMessage;
+    private int totalFastestRoadDistance = 0;
+
+    /**
+     * Constructs an OffHeapRouteCalculate object and finds the fastest road.
+     *
+     * @param roads           the road table
+     * @param startingCity    the starting city
+     * @param destinationCity the destination city
+     * @param customMessage   the custom message to be written
+     * @param sink            the sink to report the output to
+     * @throws IOException if an I/O error occurs or the scratch files cannot be created
+     */
+    public OffHeapRouteCalculate(RoadTable roads, String startingCity, String destinationCity, String customMessage, ResultSink sink) throws IOException {
+        this.roads = roads;
+        this.startingCity = startingCity;
+        this.destinationCity = destinationCity;
+        this.customMessage = customMessage;
+        findFastestRoad(sink);
+    }
+
+    /**
+     * Returns the total distance of the fastest road.
+     *
+     * @return the total distance of the fastest road
+     */
+    public int getTotalFastestRoadDistance() {
+        return totalFastestRoadDistance;
+    }
+
+    /**
+     * Finds the fastest road and reports the result to the given sink, in the same format as FastestRoadCalculate.
+     *
+     * @param sink the sink to report the output to
+     * @throws IOException if an I/O error occurs or the scratch files cannot be created
+     */
+    public void findFastestRoad(ResultSink sink) throws IOException {
+        CityDictionary cities = roads.getCities();
+        int start = cities.indexOf(startingCity);
+        int destination = cities.indexOf(destinationCity);
+        if (start < 0 || destination < 0) {
+            throw new NoSuchElementException("No route from " + startingCity + " to " + destinationCity);
+        }
+
+        RunMetrics.Timer timer = RunMetrics.start(RunMetrics.Phase.FASTEST_ROUTE);
+        RoadAdjacency adjacency = roads.getAdjacency();
+        int cityCount = adjacency.getCityCount();
+        OffHeapRoadHeap heap = new OffHeapRoadHeap(cityCount);
+        // Row of the last road on the fastest road to every city reached
+        OffHeapIntArray predecessorRoads = OffHeapIntArray.allocate(cityCount);
+
+        // Work counters, kept in locals and added to the timer once
+        long roadsScanned = 0;
+        long relaxations = 0;
+        long heapPushes = 0;
+        long heapPolls = 0;
+
+        // The starting city goes through the heap too, which settles it with distance 0
+        heap.push(start, 0, Integer.MIN_VALUE);
+        int cityName;
+        while ((cityName = heap.poll()) != destination) {
+            heapPolls++;
+            int currentDistance = heap.getDistance(cityName);
+            int end = adjacency.end(cityName);
+            roadsScanned += end - adjacency.begin(cityName);
+            for (int slot = adjacency.begin(cityName); slot < end; slot++) {
+                int pointB = adjacency.getNeighbour(slot);
+                if (heap.isPolled(pointB)) {
+                    continue;
+                }
+
+                // Only a strictly shorter distance replaces the road that reached pointB first
+                int road = adjacency.getRoadIndex(slot);
+                int newDistance = currentDistance + roads.getDistance(road);
+                relaxations++;
+                if (!heap.contains(pointB) || newDistance < heap.getDistance(pointB)) {
+                    heapPushes++;
+                    heap.push(pointB, newDistance, roads.getID(road));
+                    predecessorRoads.set(pointB, road);
+                }
+            }
+        }
+        timer.add(RunMetrics.Counter.ROADS_SCANNED, roadsScanned);
+        timer.add(RunMetrics.Counter.RELAXATIONS, relaxations);
+        timer.add(RunMetrics.Counter.HEAP_PUSHES, heapPushes);
+        timer.add(RunMetrics.Counter.HEAP_POLLS, heapPolls);
+        totalFastestRoadDistance = heap.getDistance(destination);
+
+        // Follow the predecessor roads back to the starting city
+        int hops = 0;
+        for (int city = destination; city != start; hops++) {
+            city = otherCity(predecessorRoads.get(city), city);
+        }
+        int[] route = new int[hops];
+        for (int city = destination; city != start; ) {
+            int road = predecessorRoads.get(city);
+            route[--hops] = road;
+            city = otherCity(road, city);
+        }
+        timer.stop();
+
+        RunMetrics.Timer output = RunMetrics.start(RunMetrics.Phase.OUTPUT);
+        sink.beginRoute(customMessage, totalFastestRoadDistance);
+        for (int road : route) {
+            sink.road(roads, road);
+        }
+        output.stop();
+    }
+
+    private int otherCity(int road, int city) {
+        return roads.getCity1(road) == city ? roads.getCity2(road) : roads.getCity1(road);
+    }
+}
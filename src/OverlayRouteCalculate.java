@@ -0,0 +1,66 @@
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+/**
+ * The OverlayRouteCalculate class calculates the fastest road between two cities with a RegionOverlay and writes it
+ * in the same format as FastestRoadCalculate, with every clique edge expanded into the roads of its region.
+ */
+public class OverlayRouteCalculate {
+    private RegionOverlay overlay;
+    private String startingCity;
+    private String destinationCity;
+    private String customMessage;
+    private int totalFastestRoadDistance = 0;
+
+    /**
+     * Constructs a OverlayRouteCalculate object and finds the fastest road.
+     *
+     * @param overlay         the region overlay of the roads
+     * @param startingCity    the starting city
+     * @param destinationCity the destination city
+     * @param customMessage   the custom message to be written
+     * @param sink            the sink to report the output to
+     * @throws IOException if an I/O error occurs
+     */
+    public OverlayRouteCalculate(RegionOverlay overlay, String startingCity, String destinationCity, String customMessage, ResultSink sink) throws IOException {
+        this.overlay = overlay;
+        this.startingCity = startingCity;
+        this.destinationCity = destinationCity;
+        this.customMessage = customMessage;
+        findFastestRoad(sink);
+    }
+
+    /**
+     * Returns the total distance of the fastest road.
+     *
+     * @return the total distance of the fastest road
+     */
+    public int getTotalFastestRoadDistance() {
+        return totalFastestRoadDistance;
+    }
+
+    /**
+     * Finds the fastest road and reports the result to the given sink.
+     *
+     * @param sink the sink to report the output to
+     * @throws IOException if an I/O error occurs
+     */
+    public void findFastestRoad(ResultSink sink) throws IOException {
+        RoadTable roads = overlay.getRoads();
+        int start = roads.getCities().indexOf(startingCity);
+        int destination = roads.getCities().indexOf(destinationCity);
+        int[] route = start < 0 || destination < 0 ? null : overlay.findRoute(start, destination);
+        if (route == null) {
+            throw new NoSuchElementException("No route from " + startingCity + " to " + destinationCity);
+        }
+
+        totalFastestRoadDistance = 0;
+        for (int road : route) {
+            totalFastestRoadDistance += roads.getDistance(road);
+        }
+        sink.beginRoute(customMessage, totalFastestRoadDistance);
+        for (int road : route) {
+            sink.road(roads, road);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The PhaseEvent class is the JFR event recorded for every timed phase of a run, with the work the phase did. It is
+ * only written while a flight recording has it enabled.
+ */
+@Name("roadmapanalyzer.Phase")
+@Label("Phase")
+@Category("Road Map Analyzer")
+@Description("A parse, search, spanning-tree or output phase of a run")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Roads Scanned")
+    long roadsScanned;
+
+    @Label("Heap Pushes")
+    long heapPushes;
+
+    @Label("Heap Polls")
+    long heapPolls;
+
+    @Label("Relaxations")
+    long relaxations;
+
+    @Label("Union-Find Operations")
+    long unionFindOperations;
+}
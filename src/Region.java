@@ -0,0 +1,290 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The Region class holds the roads of one region of a {@link RegionPartition} on their own and answers the searches
+ * inside it, as the in-process {@link RegionShard}. Cities are numbered locally in the order of their IDs, and the
+ * roads between them are kept in a local adjacency index together with their distance, ID and row in the whole road
+ * table, so a region can be written to its own file and served without the rest of the map. Searches inside the
+ * region settle cities in the same (distance, ID) order as FastestRoadCalculate.
+ */
+public class Region implements RegionShard {
+    private static final int MAGIC = 0x52445247; // "RDRG"
+    private static final int VERSION = 1;
+
+    private final int region;
+    // City IDs of the local cities, in ascending order
+    private final int[] cities;
+    // Local indices of the boundary cities, in ascending order
+    private final int[] boundary;
+    private final int[] offsets;
+    private final int[] neighbours;
+    private final int[] distances;
+    private final int[] IDs;
+    private final int[] rows;
+
+    private Region(int region, int[] cities, int[] boundary, int[] offsets, int[] neighbours, int[] distances, int[] IDs, int[] rows) {
+        this.region = region;
+        this.cities = cities;
+        this.boundary = boundary;
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+        this.distances = distances;
+        this.IDs = IDs;
+        this.rows = rows;
+    }
+
+    /**
+     * Splits the roads of a table into the regions of a partition. Roads between two regions belong to neither.
+     *
+     * @param roads     the road table
+     * @param partition the partition of the cities of the roads
+     * @return the regions, indexed by region
+     */
+    public static Region[] split(RoadTable roads, RegionPartition partition) {
+        RoadAdjacency adjacency = roads.getAdjacency();
+        int cityCount = roads.getCities().size();
+        int regionCount = partition.getRegionCount();
+
+        // Cities of every region in ascending order, and the local index of every city in its region
+        int[] cityOffsets = new int[regionCount + 1];
+        for (int city = 0; city < cityCount; city++) {
+            cityOffsets[partition.getRegion(city) + 1]++;
+        }
+        for (int r = 0; r < regionCount; r++) {
+            cityOffsets[r + 1] += cityOffsets[r];
+        }
+        int[] next = Arrays.copyOf(cityOffsets, regionCount);
+        int[] byRegion = new int[cityCount];
+        int[] local = new int[cityCount];
+        for (int city = 0; city < cityCount; city++) {
+            int r = partition.getRegion(city);
+            local[city] = next[r] - cityOffsets[r];
+            byRegion[next[r]++] = city;
+        }
+
+        Region[] regions = new Region[regionCount];
+        for (int r = 0; r < regionCount; r++) {
+            int[] cities = Arrays.copyOfRange(byRegion, cityOffsets[r], cityOffsets[r + 1]);
+            int[] offsets = new int[cities.length + 1];
+            int[] boundary = new int[cities.length];
+            int boundaryCount = 0;
+            for (int i = 0; i < cities.length; i++) {
+                int inside = 0;
+                for (int slot = adjacency.begin(cities[i]); slot < adjacency.end(cities[i]); slot++) {
+                    if (partition.getRegion(adjacency.getNeighbour(slot)) == r) {
+                        inside++;
+                    }
+                }
+                offsets[i + 1] = offsets[i] + inside;
+                if (inside < adjacency.end(cities[i]) - adjacency.begin(cities[i])) {
+                    boundary[boundaryCount++] = i;
+                }
+            }
+            int[] neighbours = new int[offsets[cities.length]];
+            int[] distances = new int[neighbours.length];
+            int[] IDs = new int[neighbours.length];
+            int[] rows = new int[neighbours.length];
+            int slots = 0;
+            for (int city : cities) {
+                for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                    int neighbour = adjacency.getNeighbour(slot);
+                    if (partition.getRegion(neighbour) == r) {
+                        int road = adjacency.getRoadIndex(slot);
+                        neighbours[slots] = local[neighbour];
+                        distances[slots] = roads.getDistance(road);
+                        IDs[slots] = roads.getID(road);
+                        rows[slots++] = road;
+                    }
+                }
+            }
+            regions[r] = new Region(r, cities, Arrays.copyOf(boundary, boundaryCount), offsets, neighbours, distances, IDs, rows);
+        }
+        return regions;
+    }
+
+    /**
+     * Reads a region written by write.
+     *
+     * @param path path to the region file
+     * @return the region
+     * @throws IOException if the file cannot be read or is not a region
+     */
+    public static Region load(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(path + " is not a region");
+            }
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported region version " + version + " in " + path);
+            }
+            int region = input.readInt();
+            int[] cities = readInts(input);
+            int[] boundary = readInts(input);
+            int[] offsets = readInts(input);
+            int[] neighbours = readInts(input);
+            int[] distances = readInts(input);
+            int[] IDs = readInts(input);
+            int[] rows = readInts(input);
+            return new Region(region, cities, boundary, offsets, neighbours, distances, IDs, rows);
+        }
+    }
+
+    /**
+     * Writes the region to its own file.
+     *
+     * @param path path to the region file
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(region);
+            writeInts(output, cities);
+            writeInts(output, boundary);
+            writeInts(output, offsets);
+            writeInts(output, neighbours);
+            writeInts(output, distances);
+            writeInts(output, IDs);
+            writeInts(output, rows);
+        }
+    }
+
+    /**
+     * Returns the number of cities in the region.
+     *
+     * @return the number of cities
+     */
+    public int getCityCount() {
+        return cities.length;
+    }
+
+    /**
+     * Returns the distance between every pair of boundary cities of the region, over the roads of the region.
+     *
+     * @return distances[i][j] from the i-th to the j-th boundary city, UNREACHABLE if there is no route inside the
+     * region
+     */
+    public int[][] getBoundaryClique() {
+        int[][] clique = new int[boundary.length][];
+        int[] distance = new int[cities.length];
+        int[] predecessorCities = new int[cities.length];
+        int[] predecessorRows = new int[cities.length];
+        for (int i = 0; i < boundary.length; i++) {
+            search(boundary[i], -1, distance, predecessorCities, predecessorRows);
+            clique[i] = new int[boundary.length];
+            for (int j = 0; j < boundary.length; j++) {
+                clique[i][j] = distance[boundary[j]];
+            }
+        }
+        return clique;
+    }
+
+    @Override
+    public int getRegion() {
+        return region;
+    }
+
+    @Override
+    public int[] getBoundaryCities() {
+        int[] boundaryCities = new int[boundary.length];
+        for (int i = 0; i < boundary.length; i++) {
+            boundaryCities[i] = cities[boundary[i]];
+        }
+        return boundaryCities;
+    }
+
+    @Override
+    public int[] getBoundaryDistances(int city) {
+        int[] distance = new int[cities.length];
+        search(localIndex(city), -1, distance, new int[cities.length], new int[cities.length]);
+        int[] boundaryDistances = new int[boundary.length];
+        for (int i = 0; i < boundary.length; i++) {
+            boundaryDistances[i] = distance[boundary[i]];
+        }
+        return boundaryDistances;
+    }
+
+    @Override
+    public int[] findRoute(int from, int to) {
+        int start = localIndex(from);
+        int destination = localIndex(to);
+        int[] distance = new int[cities.length];
+        int[] predecessorCities = new int[cities.length];
+        int[] predecessorRows = new int[cities.length];
+        search(start, destination, distance, predecessorCities, predecessorRows);
+        if (distance[destination] == UNREACHABLE) {
+            return null;
+        }
+        int hops = 0;
+        for (int city = destination; city != start; city = predecessorCities[city]) {
+            hops++;
+        }
+        int[] route = new int[hops];
+        for (int city = destination; city != start; city = predecessorCities[city]) {
+            route[--hops] = predecessorRows[city];
+        }
+        return route;
+    }
+
+    private int localIndex(int city) {
+        int index = Arrays.binarySearch(cities, city);
+        if (index < 0) {
+            throw new IllegalArgumentException("City " + city + " is not in region " + region);
+        }
+        return index;
+    }
+
+    // Dijkstra's algorithm over the roads of the region, stopping once the destination is settled, or running over the
+    // whole region if the destination is -1. As in FastestRoadCalculate, only a strictly shorter distance replaces the
+    // road that reached a city first
+    private void search(int start, int destination, int[] distance, int[] predecessorCities, int[] predecessorRows) {
+        Arrays.fill(distance, UNREACHABLE);
+        boolean[] settled = new boolean[cities.length];
+        IndexedRoadHeap heap = new IndexedRoadHeap(cities.length);
+        heap.push(start, 0, 0);
+        while (!heap.isEmpty()) {
+            int city = heap.poll();
+            distance[city] = heap.getDistance(city);
+            settled[city] = true;
+            if (city == destination) {
+                return;
+            }
+            for (int slot = offsets[city]; slot < offsets[city + 1]; slot++) {
+                int neighbour = neighbours[slot];
+                if (settled[neighbour]) {
+                    continue;
+                }
+                int newDistance = distance[city] + distances[slot];
+                if (!heap.contains(neighbour) || newDistance < heap.getDistance(neighbour)) {
+                    heap.push(neighbour, newDistance, IDs[slot]);
+                    predecessorCities[neighbour] = city;
+                    predecessorRows[neighbour] = rows[slot];
+                }
+            }
+        }
+    }
+
+    private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+        output.writeInt(values.length);
+        for (int value : values) {
+            output.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream input) throws IOException {
+        int[] values = new int[input.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = input.readInt();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,454 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * The RegionOverlay class answers fastest-route queries over a map split into regions, in the manner of customizable
+ * route planning. The cities are partitioned by {@link RegionPartition}, and for every region the distance between
+ * every pair of its boundary cities, over the roads of the region, is precomputed into a clique. The overlay graph
+ * holds only the boundary cities, joined by these cliques and by the roads between regions, and keeps the distances
+ * between boundary cities of the whole map.
+ * <p>
+ * A query asks the {@link RegionShard} of the starting city for the distances to the boundary of its region, searches
+ * the overlay from there, and asks the shard of the destination for the distances from the boundary of its region to
+ * the destination; when both cities are in the same region, the route inside the region is a candidate too. The
+ * cliques on the route found are expanded back into roads by the shards of their regions, so only the source region,
+ * the overlay and the destination region are searched, and every region can be served by a separate process.
+ * <p>
+ * The overlay always finds the same distance as FastestRoadCalculate. When several routes share the fastest distance,
+ * it may return a different one of them.
+ */
+public class RegionOverlay {
+    private static final int MAGIC = 0x5244564F; // "RDOV"
+    private static final int VERSION = 1;
+    private static final int INFINITY = Integer.MAX_VALUE;
+    // Name of the overlay file in an overlay directory; region r is written to region-r.bin next to it
+    private static final String OVERLAY_FILE = "overlay.bin";
+
+    /**
+     * Opens the shard of a region written to an overlay directory.
+     */
+    public interface ShardOpener {
+        /**
+         * Opens the shard of a region.
+         *
+         * @param region the region
+         * @param file   the file the region was written to
+         * @return the shard of the region
+         * @throws IOException if the shard cannot be opened
+         */
+        RegionShard open(int region, Path file) throws IOException;
+    }
+
+    private final RoadTable roads;
+    private final RegionPartition partition;
+    private final RegionShard[] shards;
+    // Overlay node of every city, -1 for cities that are not boundary cities
+    private final int[] nodes;
+    // City of every overlay node
+    private final int[] nodeCities;
+    // Overlay edges from every node; an edge is a road between regions if its row is not -1, and a clique edge otherwise
+    private final int[] edgeOffsets;
+    private final int[] edgeTargets;
+    private final int[] edgeWeights;
+    private final int[] edgeRows;
+    private long buildMillis = 0;
+
+    private RegionOverlay(RoadTable roads, RegionPartition partition, RegionShard[] shards, int[] nodeCities,
+                          int[] edgeOffsets, int[] edgeTargets, int[] edgeWeights, int[] edgeRows) {
+        this.roads = roads;
+        this.partition = partition;
+        this.shards = shards;
+        this.nodeCities = nodeCities;
+        this.nodes = new int[roads.getCities().size()];
+        Arrays.fill(nodes, -1);
+        for (int node = 0; node < nodeCities.length; node++) {
+            nodes[nodeCities[node]] = node;
+        }
+        this.edgeOffsets = edgeOffsets;
+        this.edgeTargets = edgeTargets;
+        this.edgeWeights = edgeWeights;
+        this.edgeRows = edgeRows;
+    }
+
+    /**
+     * Partitions the given roads and builds their overlay, with the regions as in-process shards.
+     *
+     * @param roads      the road table
+     * @param regionSize the target number of cities per region
+     * @param threads    the number of threads the cliques of the regions are computed with
+     * @return the region overlay
+     */
+    public static RegionOverlay build(RoadTable roads, int regionSize, int threads) {
+        long startTime = System.nanoTime();
+        RegionPartition partition = new RegionPartition(roads, regionSize);
+        Region[] regions = Region.split(roads, partition);
+        int[][][] cliques = new int[regions.length][][];
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            pool.submit(() -> IntStream.range(0, regions.length).parallel()
+                    .forEach(r -> cliques[r] = regions[r].getBoundaryClique())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the region overlay", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Building the region overlay failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        // Boundary cities become the overlay nodes, in ascending order of their IDs
+        RoadAdjacency adjacency = roads.getAdjacency();
+        int cityCount = roads.getCities().size();
+        int[] nodes = new int[cityCount];
+        int nodeCount = 0;
+        for (int city = 0; city < cityCount; city++) {
+            nodes[city] = partition.isBoundary(adjacency, city) ? nodeCount++ : -1;
+        }
+        int[] nodeCities = new int[nodeCount];
+        for (int city = 0; city < cityCount; city++) {
+            if (nodes[city] >= 0) {
+                nodeCities[nodes[city]] = city;
+            }
+        }
+
+        // Every node has its roads into other regions and the clique edges to the other boundary cities of its region
+        int[][] boundaries = new int[regions.length][];
+        int[] boundaryIndex = new int[cityCount];
+        for (Region region : regions) {
+            boundaries[region.getRegion()] = region.getBoundaryCities();
+            for (int i = 0; i < boundaries[region.getRegion()].length; i++) {
+                boundaryIndex[boundaries[region.getRegion()][i]] = i;
+            }
+        }
+        int[] edgeOffsets = new int[nodeCount + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            int city = nodeCities[node];
+            int r = partition.getRegion(city);
+            int edges = 0;
+            for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                if (partition.getRegion(adjacency.getNeighbour(slot)) != r) {
+                    edges++;
+                }
+            }
+            int[] clique = cliques[r][boundaryIndex[city]];
+            for (int j = 0; j < clique.length; j++) {
+                if (clique[j] != INFINITY && j != boundaryIndex[city]) {
+                    edges++;
+                }
+            }
+            edgeOffsets[node + 1] = edgeOffsets[node] + edges;
+        }
+        int[] edgeTargets = new int[edgeOffsets[nodeCount]];
+        int[] edgeWeights = new int[edgeTargets.length];
+        int[] edgeRows = new int[edgeTargets.length];
+        int edge = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            int city = nodeCities[node];
+            int r = partition.getRegion(city);
+            for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                int neighbour = adjacency.getNeighbour(slot);
+                if (partition.getRegion(neighbour) != r) {
+                    int road = adjacency.getRoadIndex(slot);
+                    edgeTargets[edge] = nodes[neighbour];
+                    edgeWeights[edge] = roads.getDistance(road);
+                    edgeRows[edge++] = road;
+                }
+            }
+            int[] clique = cliques[r][boundaryIndex[city]];
+            for (int j = 0; j < clique.length; j++) {
+                if (clique[j] != INFINITY && j != boundaryIndex[city]) {
+                    edgeTargets[edge] = nodes[boundaries[r][j]];
+                    edgeWeights[edge] = clique[j];
+                    edgeRows[edge++] = -1;
+                }
+            }
+        }
+        RegionOverlay overlay = new RegionOverlay(roads, partition, regions, nodeCities, edgeOffsets, edgeTargets, edgeWeights, edgeRows);
+        overlay.buildMillis = (System.nanoTime() - startTime) / 1_000_000;
+        return overlay;
+    }
+
+    /**
+     * Writes the overlay and every region to their own files in a directory, which is created if needed. The roads
+     * themselves are not written; they are given again when loading.
+     *
+     * @param directory path to the overlay directory
+     * @throws IOException if an I/O error occurs, or a shard is not an in-process region
+     */
+    public void write(String directory) throws IOException {
+        Path path = Paths.get(directory);
+        Files.createDirectories(path);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path.resolve(OVERLAY_FILE)), 1 << 16))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(nodes.length);
+            output.writeInt(roads.size());
+            output.writeInt(partition.getRegionCount());
+            writeInts(output, partition.getRegions());
+            writeInts(output, nodeCities);
+            writeInts(output, edgeOffsets);
+            writeInts(output, edgeTargets);
+            writeInts(output, edgeWeights);
+            writeInts(output, edgeRows);
+        }
+        for (RegionShard shard : shards) {
+            if (!(shard instanceof Region)) {
+                throw new IOException("Region " + shard.getRegion() + " is not held by this process");
+            }
+            ((Region) shard).write(regionFile(path, shard.getRegion()));
+        }
+    }
+
+    /**
+     * Loads an overlay written by write for the same roads, with every region read into this process.
+     *
+     * @param directory path to the overlay directory
+     * @param roads     the road table the overlay was built for
+     * @return the region overlay
+     * @throws IOException if a file cannot be read or the overlay does not belong to the roads
+     */
+    public static RegionOverlay load(String directory, RoadTable roads) throws IOException {
+        return load(directory, roads, (region, file) -> Region.load(file));
+    }
+
+    /**
+     * Loads an overlay written by write for the same roads, with the shards of the regions opened by the given opener,
+     * for example clients of worker processes that each serve some of the region files.
+     *
+     * @param directory path to the overlay directory
+     * @param roads     the road table the overlay was built for
+     * @param opener    opens the shard of every region
+     * @return the region overlay
+     * @throws IOException if a file cannot be read or the overlay does not belong to the roads
+     */
+    public static RegionOverlay load(String directory, RoadTable roads, ShardOpener opener) throws IOException {
+        Path path = Paths.get(directory);
+        Path overlayFile = path.resolve(OVERLAY_FILE);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(overlayFile), 1 << 16))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(overlayFile + " is not a region overlay");
+            }
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported region overlay version " + version + " in " + overlayFile);
+            }
+            int cityCount = input.readInt();
+            int roadCount = input.readInt();
+            if (cityCount != roads.getCities().size() || roadCount != roads.size()) {
+                throw new IOException(overlayFile + " was built for a different road map");
+            }
+            int regionCount = input.readInt();
+            RegionPartition partition = new RegionPartition(readInts(input), regionCount);
+            int[] nodeCities = readInts(input);
+            int[] edgeOffsets = readInts(input);
+            int[] edgeTargets = readInts(input);
+            int[] edgeWeights = readInts(input);
+            int[] edgeRows = readInts(input);
+            RegionShard[] shards = new RegionShard[regionCount];
+            for (int r = 0; r < regionCount; r++) {
+                shards[r] = opener.open(r, regionFile(path, r));
+            }
+            return new RegionOverlay(roads, partition, shards, nodeCities, edgeOffsets, edgeTargets, edgeWeights, edgeRows);
+        }
+    }
+
+    /**
+     * Returns the road table the overlay was built for.
+     *
+     * @return the road table
+     */
+    public RoadTable getRoads() {
+        return roads;
+    }
+
+    /**
+     * Returns the partition of the cities into regions.
+     *
+     * @return the partition
+     */
+    public RegionPartition getPartition() {
+        return partition;
+    }
+
+    /**
+     * Returns a one-line summary of the size and build time of the overlay.
+     *
+     * @return the statistics
+     */
+    public String getStatistics() {
+        return String.format("Region overlay: %d cities, %d regions, %d boundary cities, %d overlay edges, built in %d ms",
+                nodes.length, shards.length, nodeCities.length, edgeTargets.length, buildMillis);
+    }
+
+    /**
+     * Returns the roads of a fastest road between two cities, with every clique edge expanded into the roads of its
+     * region.
+     *
+     * @param start       the starting city ID
+     * @param destination the destination city ID
+     * @return the rows of the roads in order from the starting city, or null if there is no road between the cities
+     */
+    public int[] findRoute(int start, int destination) {
+        if (start == destination) {
+            return new int[0];
+        }
+        RegionShard source = shards[partition.getRegion(start)];
+        RegionShard target = shards[partition.getRegion(destination)];
+
+        // The route inside the region is a candidate when both cities share it, and is kept on ties
+        int[] direct = source == target ? source.findRoute(start, destination) : null;
+        long best = direct == null ? INFINITY : distance(direct);
+
+        // Distance left to the destination from every boundary city of its region
+        int[] targetBoundary = target.getBoundaryCities();
+        int[] toDestination = target.getBoundaryDistances(destination);
+        int[] remaining = new int[nodeCities.length];
+        Arrays.fill(remaining, INFINITY);
+        for (int i = 0; i < targetBoundary.length; i++) {
+            remaining[nodes[targetBoundary[i]]] = toDestination[i];
+        }
+
+        // Search the overlay from the boundary of the starting region, stopping once nothing closer can be found
+        int[] predecessorEdges = new int[nodeCities.length];
+        int[] predecessorNodes = new int[nodeCities.length];
+        boolean[] settled = new boolean[nodeCities.length];
+        IndexedRoadHeap heap = new IndexedRoadHeap(nodeCities.length);
+        int[] sourceBoundary = source.getBoundaryCities();
+        int[] fromStart = source.getBoundaryDistances(start);
+        for (int i = 0; i < sourceBoundary.length; i++) {
+            if (fromStart[i] != INFINITY) {
+                int node = nodes[sourceBoundary[i]];
+                heap.push(node, fromStart[i], -1);
+                predecessorEdges[node] = -1;
+            }
+        }
+        int meeting = -1;
+        while (!heap.isEmpty() && heap.getDistance(heap.peek()) < best) {
+            int node = heap.poll();
+            settled[node] = true;
+            int distance = heap.getDistance(node);
+            if (remaining[node] != INFINITY && (long) distance + remaining[node] < best) {
+                best = (long) distance + remaining[node];
+                meeting = node;
+            }
+            for (int edge = edgeOffsets[node]; edge < edgeOffsets[node + 1]; edge++) {
+                int neighbour = edgeTargets[edge];
+                if (settled[neighbour]) {
+                    continue;
+                }
+                int newDistance = distance + edgeWeights[edge];
+                if (!heap.contains(neighbour) || newDistance < heap.getDistance(neighbour)) {
+                    heap.push(neighbour, newDistance, edge);
+                    predecessorEdges[neighbour] = edge;
+                    predecessorNodes[neighbour] = node;
+                }
+            }
+        }
+        if (meeting < 0) {
+            return direct;
+        }
+
+        // Overlay edges back from the meeting node to the node the search entered the overlay at
+        int[] edges = new int[16];
+        int[] from = new int[16];
+        int count = 0;
+        int node = meeting;
+        for (; predecessorEdges[node] >= 0; node = predecessorNodes[node]) {
+            if (count == edges.length) {
+                edges = Arrays.copyOf(edges, 2 * count);
+                from = Arrays.copyOf(from, 2 * count);
+            }
+            edges[count] = predecessorEdges[node];
+            from[count++] = predecessorNodes[node];
+        }
+
+        // The route inside the starting region, the overlay edges expanded in order, then the route to the destination
+        RouteBuilder route = new RouteBuilder();
+        route.add(source.findRoute(start, nodeCities[node]));
+        for (int i = count - 1; i >= 0; i--) {
+            int edge = edges[i];
+            if (edgeRows[edge] >= 0) {
+                route.add(edgeRows[edge]);
+            } else {
+                int city = nodeCities[from[i]];
+                route.add(shards[partition.getRegion(city)].findRoute(city, nodeCities[edgeTargets[edge]]));
+            }
+        }
+        route.add(target.findRoute(nodeCities[meeting], destination));
+        return route.toArray();
+    }
+
+    /**
+     * Returns the distance of the fastest road between two cities.
+     *
+     * @param start       the starting city ID
+     * @param destination the destination city ID
+     * @return the distance, or Integer.MAX_VALUE if there is no road between the cities
+     */
+    public int findDistance(int start, int destination) {
+        int[] route = findRoute(start, destination);
+        return route == null ? INFINITY : (int) distance(route);
+    }
+
+    private long distance(int[] route) {
+        long distance = 0;
+        for (int road : route) {
+            distance += roads.getDistance(road);
+        }
+        return distance;
+    }
+
+    private static Path regionFile(Path directory, int region) {
+        return directory.resolve("region-" + region + ".bin");
+    }
+
+    private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+        output.writeInt(values.length);
+        for (int value : values) {
+            output.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream input) throws IOException {
+        int[] values = new int[input.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = input.readInt();
+        }
+        return values;
+    }
+
+    /**
+     * Collects the rows of the roads of a route.
+     */
+    private static final class RouteBuilder {
+        private int[] rows = new int[16];
+        private int size = 0;
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, 2 * size);
+            }
+            rows[size++] = row;
+        }
+
+        void add(int[] route) {
+            for (int row : route) {
+                add(row);
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(rows, size);
+        }
+    }
+}
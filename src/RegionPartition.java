@@ -0,0 +1,275 @@
+import java.util.Arrays;
+
+/**
+ * The RegionPartition class splits the cities of a road table into regions of about the same number of cities, with
+ * few boundary cities, those with a road into another region. Regions are grown one after the other by a
+ * breadth-first search over the cities not yet taken, seeded in the breadth-first order of the whole map, so every
+ * region is a compact patch next to the ones grown before it. A few passes then move every city to the region most of
+ * its roads lead to, as long as that region does not grow past a quarter over the target size, which smooths the
+ * borders the growth left ragged.
+ */
+public class RegionPartition {
+    // Passes of moving cities to the region most of their roads lead to
+    private static final int REFINE_PASSES = 3;
+
+    private final int[] regions;
+    private final int regionCount;
+
+    /**
+     * Partitions the cities of the given roads.
+     *
+     * @param roads      the road table
+     * @param regionSize the target number of cities per region
+     */
+    public RegionPartition(RoadTable roads, int regionSize) {
+        RoadAdjacency adjacency = roads.getAdjacency();
+        int cityCount = roads.getCities().size();
+        regionSize = Math.max(1, regionSize);
+        regions = new int[cityCount];
+        Arrays.fill(regions, -1);
+
+        // Seeds are tried in the breadth-first order of the whole map, component by component
+        int[] order = breadthFirstOrder(adjacency, cityCount);
+        int[] queue = new int[cityCount];
+        int[] queued = new int[cityCount];
+        Arrays.fill(queued, -1);
+        int[] sizes = new int[Math.max(1, cityCount)];
+        int count = 0;
+        for (int seed : order) {
+            if (regions[seed] >= 0) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            int size = 0;
+            queue[tail++] = seed;
+            queued[seed] = count;
+            while (head < tail && size < regionSize) {
+                int city = queue[head++];
+                regions[city] = count;
+                size++;
+                for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                    int neighbour = adjacency.getNeighbour(slot);
+                    if (regions[neighbour] < 0 && queued[neighbour] != count) {
+                        queued[neighbour] = count;
+                        queue[tail++] = neighbour;
+                    }
+                }
+            }
+            sizes[count++] = size;
+        }
+        count = mergeSmall(adjacency, sizes, count, regionSize);
+        refine(adjacency, order, sizes, count, regionSize + regionSize / 4);
+        regionCount = compact(sizes, count);
+    }
+
+    /**
+     * Constructs a partition from region numbers found before, for example read from a file.
+     *
+     * @param regions     the region of every city
+     * @param regionCount the number of regions
+     */
+    public RegionPartition(int[] regions, int regionCount) {
+        this.regions = regions;
+        this.regionCount = regionCount;
+    }
+
+    /**
+     * Returns the number of regions.
+     *
+     * @return the number of regions
+     */
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    /**
+     * Returns the region of a city.
+     *
+     * @param city the city ID
+     * @return the region, from 0 to the number of regions - 1
+     */
+    public int getRegion(int city) {
+        return regions[city];
+    }
+
+    /**
+     * Returns the region of every city. The array must not be modified.
+     *
+     * @return the region of every city
+     */
+    int[] getRegions() {
+        return regions;
+    }
+
+    /**
+     * Returns whether a city has a road into another region.
+     *
+     * @param adjacency the adjacency index of the roads
+     * @param city      the city ID
+     * @return true if the city is a boundary city
+     */
+    public boolean isBoundary(RoadAdjacency adjacency, int city) {
+        for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+            if (regions[adjacency.getNeighbour(slot)] != regions[city]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Merges the small regions the growth left in the gaps between full ones into the neighbouring region most of their
+    // roads lead to, smallest first, as long as the merged region stays under one and a half times the target size.
+    // Returns the number of regions, which are numbered densely again
+    private int mergeSmall(RoadAdjacency adjacency, int[] sizes, int count, int regionSize) {
+        int[] cityOffsets = new int[count + 1];
+        for (int region : regions) {
+            cityOffsets[region + 1]++;
+        }
+        for (int r = 0; r < count; r++) {
+            cityOffsets[r + 1] += cityOffsets[r];
+        }
+        int[] next = Arrays.copyOf(cityOffsets, count);
+        int[] byRegion = new int[regions.length];
+        for (int city = 0; city < regions.length; city++) {
+            byRegion[next[regions[city]]++] = city;
+        }
+        Integer[] bySize = new Integer[count];
+        Arrays.setAll(bySize, r -> r);
+        Arrays.sort(bySize, (a, b) -> sizes[a] != sizes[b] ? Integer.compare(sizes[a], sizes[b]) : Integer.compare(a, b));
+
+        DisjointSet merged = new DisjointSet(count);
+        int[] mergedSizes = Arrays.copyOf(sizes, count);
+        int[] tally = new int[count];
+        int[] touched = new int[16];
+        for (int r : bySize) {
+            if (sizes[r] >= regionSize / 2) {
+                break;
+            }
+            int own = merged.find(r);
+            int touchedCount = 0;
+            for (int i = cityOffsets[r]; i < cityOffsets[r + 1]; i++) {
+                int city = byRegion[i];
+                for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                    int region = merged.find(regions[adjacency.getNeighbour(slot)]);
+                    if (region != own && tally[region]++ == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, 2 * touchedCount);
+                        }
+                        touched[touchedCount++] = region;
+                    }
+                }
+            }
+            int best = -1;
+            for (int i = 0; i < touchedCount; i++) {
+                int region = touched[i];
+                if (mergedSizes[own] + mergedSizes[region] <= regionSize + regionSize / 2 && (best < 0 || tally[region] > tally[best])) {
+                    best = region;
+                }
+                tally[region] = 0;
+            }
+            if (best >= 0) {
+                int size = mergedSizes[own] + mergedSizes[best];
+                merged.union(own, best);
+                mergedSizes[merged.find(own)] = size;
+            }
+        }
+
+        // Number the merged regions by their smallest original region
+        int[] renumbered = new int[count];
+        Arrays.fill(renumbered, -1);
+        int mergedCount = 0;
+        for (int r = 0; r < count; r++) {
+            int root = merged.find(r);
+            if (renumbered[root] < 0) {
+                renumbered[root] = mergedCount++;
+            }
+            renumbered[r] = renumbered[root];
+        }
+        Arrays.fill(sizes, 0);
+        for (int city = 0; city < regions.length; city++) {
+            regions[city] = renumbered[regions[city]];
+            sizes[regions[city]]++;
+        }
+        return mergedCount;
+    }
+
+    // Moves cities to the region most of their roads lead to, keeping every region non-empty and under the size limit
+    private void refine(RoadAdjacency adjacency, int[] order, int[] sizes, int count, int maxSize) {
+        int[] tally = new int[count];
+        int[] touched = new int[16];
+        for (int pass = 0; pass < REFINE_PASSES; pass++) {
+            boolean moved = false;
+            for (int city : order) {
+                int own = regions[city];
+                int touchedCount = 0;
+                for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                    int region = regions[adjacency.getNeighbour(slot)];
+                    if (tally[region]++ == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, 2 * touchedCount);
+                        }
+                        touched[touchedCount++] = region;
+                    }
+                }
+                int best = own;
+                for (int i = 0; i < touchedCount; i++) {
+                    int region = touched[i];
+                    if (tally[region] > tally[best] && sizes[region] < maxSize) {
+                        best = region;
+                    }
+                }
+                if (best != own && sizes[own] > 1) {
+                    regions[city] = best;
+                    sizes[own]--;
+                    sizes[best]++;
+                    moved = true;
+                }
+                for (int i = 0; i < touchedCount; i++) {
+                    tally[touched[i]] = 0;
+                }
+            }
+            if (!moved) {
+                break;
+            }
+        }
+    }
+
+    // Renumbers the regions left non-empty in order, returning how many there are
+    private int compact(int[] sizes, int count) {
+        int[] renumbered = new int[count];
+        int regionCount = 0;
+        for (int region = 0; region < count; region++) {
+            renumbered[region] = sizes[region] > 0 ? regionCount++ : -1;
+        }
+        for (int city = 0; city < regions.length; city++) {
+            regions[city] = renumbered[regions[city]];
+        }
+        return regionCount;
+    }
+
+    private static int[] breadthFirstOrder(RoadAdjacency adjacency, int cityCount) {
+        int[] order = new int[cityCount];
+        boolean[] visited = new boolean[cityCount];
+        int tail = 0;
+        for (int root = 0; root < cityCount; root++) {
+            if (visited[root]) {
+                continue;
+            }
+            int head = tail;
+            visited[root] = true;
+            order[tail++] = root;
+            while (head < tail) {
+                int city = order[head++];
+                for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                    int neighbour = adjacency.getNeighbour(slot);
+                    if (!visited[neighbour]) {
+                        visited[neighbour] = true;
+                        order[tail++] = neighbour;
+                    }
+                }
+            }
+        }
+        return order;
+    }
+}
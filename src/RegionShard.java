@@ -0,0 +1,45 @@
+/**
+ * The RegionShard interface answers the searches a {@link RegionOverlay} needs inside one region of the map: the
+ * distances from a city of the region to its boundary cities and the roads of the fastest route between two of its
+ * cities, both over the roads of the region only. Cities and roads are named by their IDs and rows in the whole road
+ * table, so a shard can be served by another process that only holds its region, with {@link Region} as the
+ * in-process implementation.
+ */
+public interface RegionShard {
+    /**
+     * Distance returned for cities that cannot be reached inside the region.
+     */
+    int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * Returns the region this shard serves.
+     *
+     * @return the region
+     */
+    int getRegion();
+
+    /**
+     * Returns the boundary cities of the region, the cities with a road into another region, in ascending order.
+     *
+     * @return the city IDs of the boundary cities
+     */
+    int[] getBoundaryCities();
+
+    /**
+     * Returns the distance from a city of the region to every boundary city, over the roads of the region.
+     *
+     * @param city the city ID
+     * @return the distance to every boundary city, in the order of getBoundaryCities, UNREACHABLE for those that
+     * cannot be reached inside the region
+     */
+    int[] getBoundaryDistances(int city);
+
+    /**
+     * Returns the roads of the fastest route between two cities of the region, over the roads of the region.
+     *
+     * @param from the starting city ID
+     * @param to   the destination city ID
+     * @return the rows of the roads in order from the starting city, or null if there is no route inside the region
+     */
+    int[] findRoute(int from, int to);
+}
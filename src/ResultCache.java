@@ -0,0 +1,399 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ResultCache class keeps the results of earlier runs in a directory, so a run on the same roads skips the work
+ * already done, whatever the starting and destination cities. Entries are named after a SHA-256 hash of the parsed
+ * roads: the city names in dictionary order and the road columns in input order, so a text file and the snapshot
+ * compiled from it share their entries. For every road map, the cache holds the rows of the barely connected map and
+ * the total distance of all roads, and for every starting city searched, its shortest-path tree.
+ * <p>
+ * Entries are written to a temporary file and moved into place, so other processes sharing the directory never read a
+ * partial entry, and an entry that is missing or does not match the roads is a miss. Once the directory grows past its
+ * size limit, the least recently used entries are deleted under a lock on the directory. Entries are little-endian ints
+ * like those of {@link GraphSnapshot}.
+ */
+public final class ResultCache {
+    private static final long MAGIC = 0x48434143504D4452L; // "RDMPCACH" read as little-endian
+    private static final int VERSION = 1;
+    private static final String MAP_SUFFIX = ".map";
+    private static final String TREE_SUFFIX = ".tree";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final String LOCK_FILE = "cache.lock";
+    // Age after which a temporary file is taken to be left by a process that died while writing
+    private static final long STALE_TEMPORARY_MILLIS = 60 * 60 * 1000;
+    // Size limit when the "mapanalyzer.cache.size" system property is not set, in megabytes
+    private static final long DEFAULT_SIZE_MB = 1024;
+    // Writes after which the directory is listed again even if the size estimate is under the limit, to take in the
+    // entries other processes wrote
+    private static final int RESCAN_WRITES = 256;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    // Bytes of entries found by the last listing of the directory plus the bytes written since, -1 before the first
+    private long estimatedBytes = -1;
+    private int writesSinceScan = 0;
+
+    /**
+     * The cached analysis of a road map.
+     */
+    public static final class Analysis {
+        private final int[] barelyConnectedMapRows;
+        private final int originalTotalDistance;
+
+        Analysis(int[] barelyConnectedMapRows, int originalTotalDistance) {
+            this.barelyConnectedMapRows = barelyConnectedMapRows;
+            this.originalTotalDistance = originalTotalDistance;
+        }
+
+        /**
+         * Returns the rows of the roads of the barely connected map, in (distance, ID) order.
+         *
+         * @return the rows of the roads
+         */
+        public int[] getBarelyConnectedMapRows() {
+            return barelyConnectedMapRows;
+        }
+
+        /**
+         * Returns the total distance of all roads.
+         *
+         * @return the total distance of the original map
+         */
+        public int getOriginalTotalDistance() {
+            return originalTotalDistance;
+        }
+    }
+
+    /**
+     * Constructs a ResultCache. The directory is created when the first entry is written.
+     *
+     * @param directory the directory of the entries, which can be shared by any number of processes
+     * @param maxBytes  the size the entries are kept under
+     */
+    public ResultCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cache in the directory named by the "mapanalyzer.cache" system property, limited to the number of
+     * megabytes in the "mapanalyzer.cache.size" system property, 1024 if it is not set.
+     *
+     * @return the cache, or null if the "mapanalyzer.cache" system property is not set
+     */
+    public static ResultCache fromSystemProperties() {
+        String directory = System.getProperty("mapanalyzer.cache");
+        if (directory == null || directory.isEmpty()) {
+            return null;
+        }
+        return new ResultCache(Paths.get(directory), Long.getLong("mapanalyzer.cache.size", DEFAULT_SIZE_MB) << 20);
+    }
+
+    /**
+     * Returns the key of the given roads, the hexadecimal SHA-256 hash of the city names and road columns.
+     *
+     * @param roads the road table
+     * @return the key
+     */
+    public static String key(RoadTable roads) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        CityDictionary cities = roads.getCities();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(VERSION).putInt(cities.size()).putInt(roads.size());
+        for (int city = 0; city < cities.size(); city++) {
+            byte[] name = cities.getName(city).getBytes(StandardCharsets.UTF_8);
+            update(digest, buffer, 4 + name.length);
+            buffer.putInt(name.length);
+            if (name.length <= buffer.remaining()) {
+                buffer.put(name);
+            } else {
+                update(digest, buffer, buffer.capacity());
+                digest.update(name);
+            }
+        }
+        for (int road = 0; road < roads.size(); road++) {
+            update(digest, buffer, 16);
+            buffer.putInt(roads.getCity1(road)).putInt(roads.getCity2(road)).putInt(roads.getDistance(road)).putInt(roads.getID(road));
+        }
+        digest.update(buffer.flip());
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the cached analysis of a road map.
+     *
+     * @param key   the key of the roads
+     * @param roads the road table
+     * @return the analysis, or null if it is not cached
+     */
+    public Analysis getAnalysis(String key, RoadTable roads) {
+        ByteBuffer entry = read(directory.resolve(key + MAP_SUFFIX));
+        if (entry == null || entry.remaining() < 12 || entry.getInt() != roads.size()) {
+            return miss();
+        }
+        int originalTotalDistance = entry.getInt();
+        int count = entry.getInt();
+        if (count < 0 || count > roads.size() || entry.remaining() != 4L * count) {
+            return miss();
+        }
+        int[] rows = new int[count];
+        entry.asIntBuffer().get(rows);
+        hits.incrementAndGet();
+        return new Analysis(rows, originalTotalDistance);
+    }
+
+    /**
+     * Caches the analysis of a road map.
+     *
+     * @param key                    the key of the roads
+     * @param roads                  the road table
+     * @param barelyConnectedMapRows the rows of the roads of the barely connected map, in (distance, ID) order
+     * @param originalTotalDistance  the total distance of all roads
+     * @throws IOException if the entry cannot be written
+     */
+    public void putAnalysis(String key, RoadTable roads, int[] barelyConnectedMapRows, int originalTotalDistance) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(24 + 4 * barelyConnectedMapRows.length).order(ByteOrder.LITTLE_ENDIAN);
+        entry.putLong(MAGIC).putInt(VERSION);
+        entry.putInt(roads.size()).putInt(originalTotalDistance).putInt(barelyConnectedMapRows.length);
+        entry.asIntBuffer().put(barelyConnectedMapRows);
+        entry.position(entry.limit());
+        write(key + MAP_SUFFIX, entry.flip());
+    }
+
+    /**
+     * Returns the cached shortest-path tree of a starting city.
+     *
+     * @param key    the key of the roads
+     * @param roads  the road table
+     * @param source the starting city ID
+     * @return the tree, or null if it is not cached
+     */
+    public ShortestPathTreeCache.Tree getTree(String key, RoadTable roads, int source) {
+        int cityCount = roads.getCities().size();
+        ByteBuffer entry = read(directory.resolve(key + "-" + source + TREE_SUFFIX));
+        if (entry == null || entry.remaining() != 8 + 8L * cityCount || entry.getInt() != cityCount || entry.getInt() != source) {
+            return miss();
+        }
+        int[] distances = new int[cityCount];
+        int[] predecessorRoads = new int[cityCount];
+        entry.asIntBuffer().get(distances).get(predecessorRoads);
+        hits.incrementAndGet();
+        return new ShortestPathTreeCache.Tree(source, roads.getVersion(), distances, predecessorRoads);
+    }
+
+    /**
+     * Caches the shortest-path tree of a starting city.
+     *
+     * @param key  the key of the roads
+     * @param tree the tree, which must be complete
+     * @throws IOException if the entry cannot be written
+     */
+    public void putTree(String key, ShortestPathTreeCache.Tree tree) throws IOException {
+        int[] distances = tree.getDistances();
+        int[] predecessorRoads = tree.getPredecessorRoads();
+        ByteBuffer entry = ByteBuffer.allocate(20 + 8 * distances.length).order(ByteOrder.LITTLE_ENDIAN);
+        entry.putLong(MAGIC).putInt(VERSION).putInt(distances.length).putInt(tree.getSource());
+        entry.asIntBuffer().put(distances).put(predecessorRoads);
+        entry.position(entry.limit());
+        write(key + "-" + tree.getSource() + TREE_SUFFIX, entry.flip());
+    }
+
+    /**
+     * Returns the number of lookups that found an entry.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that did not find an entry.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of entries this process deleted to keep the directory under its size limit.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns a one-line summary of the counters.
+     *
+     * @return the summary
+     */
+    public String getStatistics() {
+        return "Result cache: " + hits.get() + " hits, " + misses.get() + " misses, " + evictions.get() + " evictions, "
+                + maxBytes / (1 << 20) + " MB limit in " + directory;
+    }
+
+    private <T> T miss() {
+        misses.incrementAndGet();
+        return null;
+    }
+
+    // Flushes the buffer into the digest if fewer than the given number of bytes are left
+    private static void update(MessageDigest digest, ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() < bytes) {
+            digest.update(buffer.flip());
+            buffer.clear();
+        }
+    }
+
+    // Reads an entry and checks its header, returning the rest of it, or null if it is missing or not an entry
+    private ByteBuffer read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < 12 || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer entry = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (entry.hasRemaining() && channel.read(entry) >= 0) {
+                // Keep reading until the entry is complete or the file ends
+            }
+            entry.flip();
+            if (entry.getLong() != MAGIC || entry.getInt() != VERSION) {
+                return null;
+            }
+            // Entries used lately are the last to be evicted
+            touch(file);
+            return entry;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // An entry that cannot be read, for example one evicted by another process while open, is a miss
+            return null;
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Evicted in the meantime
+        }
+    }
+
+    // Writes an entry under a temporary name and moves it into place in one step, then evicts entries if needed
+    private void write(String name, ByteBuffer entry) throws IOException {
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, name, TEMPORARY_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (entry.hasRemaining()) {
+                    channel.write(entry);
+                }
+            }
+            Files.move(temporary, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        evict(entry.limit());
+    }
+
+    // Deletes the least recently used entries until the directory is under its size limit. The directory is only listed
+    // when the estimate of its size may be over the limit, or every RESCAN_WRITES writes, so a write does not pay for
+    // every entry of a large cache. The file lock keeps other processes from evicting at the same time, and the monitor
+    // keeps other threads of this one out, since the lock is held by the whole process
+    private synchronized void evict(long written) throws IOException {
+        if (estimatedBytes >= 0) {
+            estimatedBytes += written;
+            if (estimatedBytes <= maxBytes && ++writesSinceScan < RESCAN_WRITES) {
+                return;
+            }
+        }
+        try (FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = lockChannel.lock();
+            try {
+                estimatedBytes = evictLocked();
+                writesSinceScan = 0;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    // Lists the directory and deletes the least recently used entries while it is over its size limit, returning the
+    // bytes of the entries left
+    private long evictLocked() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        List<FileTime> used = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        long totalBytes = 0;
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    FileTime modified = Files.getLastModifiedTime(file);
+                    if (name.endsWith(TEMPORARY_SUFFIX)) {
+                        if (now - modified.toMillis() > STALE_TEMPORARY_MILLIS) {
+                            Files.deleteIfExists(file);
+                        }
+                    } else if (name.endsWith(MAP_SUFFIX) || name.endsWith(TREE_SUFFIX)) {
+                        long size = Files.size(file);
+                        entries.add(file);
+                        used.add(modified);
+                        sizes.add(size);
+                        totalBytes += size;
+                    }
+                } catch (NoSuchFileException e) {
+                    // Replaced by another process while listing
+                }
+            }
+        }
+        if (totalBytes <= maxBytes) {
+            return totalBytes;
+        }
+        Integer[] order = new Integer[entries.size()];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparing(used::get));
+        for (int i = 0; i < order.length && totalBytes > maxBytes; i++) {
+            if (Files.deleteIfExists(entries.get(order[i]))) {
+                evictions.incrementAndGet();
+            }
+            totalBytes -= sizes.get(order[i]);
+        }
+        return totalBytes;
+    }
+}
@@ -0,0 +1,70 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ResultRecorder class is a ResultSink that keeps everything reported to it, so results found on a worker thread
+ * can be replayed into the real sink later, in order.
+ */
+public class ResultRecorder implements ResultSink {
+    /**
+     * One recorded call.
+     */
+    private interface Record {
+        void replay(ResultSink sink) throws IOException;
+    }
+
+    private final List<Record> records = new ArrayList<>();
+
+    @Override
+    public void beginRoute(String title, int totalDistance) {
+        records.add(sink -> sink.beginRoute(title, totalDistance));
+    }
+
+    @Override
+    public void beginRoadList(String title) {
+        records.add(sink -> sink.beginRoadList(title));
+    }
+
+    @Override
+    public void road(CityDictionary cities, int city1, int city2, int distance, int ID) {
+        records.add(sink -> sink.road(cities, city1, city2, distance, ID));
+    }
+
+    @Override
+    public void analysis(int barelyConnectedMapTotalDistance, int originalTotalDistance, int totalFastestRoadDistance,
+                         int totalFastestRoadDistanceOnBarelyConnectedMap) {
+        records.add(sink -> sink.analysis(barelyConnectedMapTotalDistance, originalTotalDistance, totalFastestRoadDistance,
+                totalFastestRoadDistanceOnBarelyConnectedMap));
+    }
+
+    @Override
+    public void message(String text) {
+        records.add(sink -> sink.message(text));
+    }
+
+    @Override
+    public void endAnswer() {
+        records.add(ResultSink::endAnswer);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Reports everything recorded so far to the given sink, in the same order.
+     *
+     * @param sink the sink to replay into
+     * @throws IOException if an I/O error occurs
+     */
+    public void replay(ResultSink sink) throws IOException {
+        for (Record record : records) {
+            record.replay(sink);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The ResultSink interface receives everything the calculators report: routes, listings of roads, the analysis and
+ * free-form messages. Each implementation decides how the results are written, so the same run can produce the plain
+ * text output, JSON lines or a binary stream.
+ * <p>
+ * A route or a listing starts with its title and is followed by its roads. An answer ends with the analysis, and
+ * endAnswer separates the answers of a batch.
+ */
+public interface ResultSink extends Closeable {
+    /**
+     * Starts a route.
+     *
+     * @param title         the title of the route, such as "Fastest Route from Ankara to Bolu"
+     * @param totalDistance the total distance of the route
+     * @throws IOException if an I/O error occurs
+     */
+    void beginRoute(String title, int totalDistance) throws IOException;
+
+    /**
+     * Starts a listing of roads.
+     *
+     * @param title the title of the listing, such as "Roads of Barely Connected Map"
+     * @throws IOException if an I/O error occurs
+     */
+    void beginRoadList(String title) throws IOException;
+
+    /**
+     * Reports one road of the current route or listing.
+     *
+     * @param cities   the city dictionary the city IDs belong to
+     * @param city1    the ID of the first city
+     * @param city2    the ID of the second city
+     * @param distance the distance of the road
+     * @param ID       the unique identifier of the road
+     * @throws IOException if an I/O error occurs
+     */
+    void road(CityDictionary cities, int city1, int city2, int distance, int ID) throws IOException;
+
+    /**
+     * Reports the analysis comparing the barely connected map with the original map.
+     *
+     * @param barelyConnectedMapTotalDistance              the total distance of the barely connected map
+     * @param originalTotalDistance                        the total distance of the original map
+     * @param totalFastestRoadDistance                     the distance of the fastest route on the original map
+     * @param totalFastestRoadDistanceOnBarelyConnectedMap the distance of the fastest route on the barely connected map
+     * @throws IOException if an I/O error occurs
+     */
+    void analysis(int barelyConnectedMapTotalDistance, int originalTotalDistance, int totalFastestRoadDistance,
+                  int totalFastestRoadDistanceOnBarelyConnectedMap) throws IOException;
+
+    /**
+     * Reports a line of text that is not part of a route, such as an error.
+     *
+     * @param text the text
+     * @throws IOException if an I/O error occurs
+     */
+    void message(String text) throws IOException;
+
+    /**
+     * Ends the answer of one query in a batch.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void endAnswer() throws IOException;
+
+    /**
+     * Writes out everything reported so far.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void flush() throws IOException;
+
+    /**
+     * Reports one road of a road table.
+     *
+     * @param roads the road table
+     * @param road  the row of the road
+     * @throws IOException if an I/O error occurs
+     */
+    default void road(RoadTable roads, int road) throws IOException {
+        road(roads.getCities(), roads.getCity1(road), roads.getCity2(road), roads.getDistance(road), roads.getID(road));
+    }
+
+    /**
+     * Opens a sink writing to the file at the given path, picking the format from its extension: ".jsonl" for JSON lines,
+     * ".bin" for the binary format, and the plain text output in the given charset for anything else.
+     *
+     * @param path    the path of the output file
+     * @param charset the charset of the plain text output
+     * @return the sink
+     * @throws IOException if the file cannot be opened
+     */
+    static ResultSink open(String path, Charset charset) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        if (path.endsWith(".jsonl")) {
+            return new JsonLinesResultSink(channel);
+        }
+        if (path.endsWith(".bin")) {
+            return new BinaryResultSink(channel);
+        }
+        return new TextResultSink(channel, charset);
+    }
+}
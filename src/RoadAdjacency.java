@@ -0,0 +1,116 @@
+/**
+ * The RoadAdjacency class indexes a road table by city. The roads touching each city are stored in one flat
+ * array, in the same order as they appear in the road table.
+ */
+public class RoadAdjacency {
+    private final RoadTable roads;
+    private final int[] offsets;
+    private final int[] neighbours;
+    private final int[] roadIndices;
+
+    /**
+     * Constructs the adjacency index of the given roads.
+     *
+     * @param roads the road table
+     */
+    public RoadAdjacency(RoadTable roads) {
+        this.roads = roads;
+        int cityCount = roads.getCities().size();
+        int roadCount = roads.size();
+
+        // Count the degree of every city, then fill the slots in road order
+        offsets = new int[cityCount + 1];
+        for (int i = 0; i < roadCount; i++) {
+            offsets[roads.getCity1(i) + 1]++;
+            offsets[roads.getCity2(i) + 1]++;
+        }
+        for (int c = 0; c < cityCount; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        neighbours = new int[2 * roadCount];
+        roadIndices = new int[2 * roadCount];
+        int[] next = new int[cityCount];
+        System.arraycopy(offsets, 0, next, 0, cityCount);
+        for (int i = 0; i < roadCount; i++) {
+            int slot = next[roads.getCity1(i)]++;
+            neighbours[slot] = roads.getCity2(i);
+            roadIndices[slot] = i;
+            slot = next[roads.getCity2(i)]++;
+            neighbours[slot] = roads.getCity1(i);
+            roadIndices[slot] = i;
+        }
+    }
+
+    /**
+     * Constructs an adjacency index from arrays that were built earlier, for example read from a snapshot.
+     *
+     * @param roads       the road table
+     * @param offsets     the first slot of every city, followed by the total number of slots
+     * @param neighbours  the neighbouring city of every slot
+     * @param roadIndices the road row of every slot
+     */
+    public RoadAdjacency(RoadTable roads, int[] offsets, int[] neighbours, int[] roadIndices) {
+        this.roads = roads;
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+        this.roadIndices = roadIndices;
+    }
+
+    /**
+     * Returns the road table this index was built from.
+     *
+     * @return the road table
+     */
+    public RoadTable getRoads() {
+        return roads;
+    }
+
+    /**
+     * Returns the number of cities, including the ones no road touches.
+     *
+     * @return the number of cities
+     */
+    public int getCityCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Returns the first adjacency slot of the given city.
+     *
+     * @param city the city ID
+     * @return the first slot (inclusive)
+     */
+    public int begin(int city) {
+        return offsets[city];
+    }
+
+    /**
+     * Returns the slot after the last adjacency slot of the given city.
+     *
+     * @param city the city ID
+     * @return the last slot (exclusive)
+     */
+    public int end(int city) {
+        return offsets[city + 1];
+    }
+
+    /**
+     * Returns the city on the other end of the road in the given slot.
+     *
+     * @param slot the adjacency slot
+     * @return the neighbouring city ID
+     */
+    public int getNeighbour(int slot) {
+        return neighbours[slot];
+    }
+
+    /**
+     * Returns the row in the road table of the road in the given slot.
+     *
+     * @param slot the adjacency slot
+     * @return the row of the road
+     */
+    public int getRoadIndex(int slot) {
+        return roadIndices[slot];
+    }
+}
@@ -0,0 +1,125 @@
+import java.io.IOException;
+
+/**
+ * The RoadChange class is one change to a road map, read from a tab-separated line of a changes file:
+ * <pre>
+ * add      city1  city2  distance  ID
+ * remove   ID
+ * distance ID     distance
+ * </pre>
+ * Roads are identified by their ID, like in the road map itself.
+ */
+public class RoadChange {
+    /**
+     * The kinds of change.
+     */
+    public enum Type {
+        ADD, REMOVE, CHANGE_DISTANCE
+    }
+
+    private final Type type;
+    private final String city1;
+    private final String city2;
+    private final int distance;
+    private final int ID;
+
+    private RoadChange(Type type, String city1, String city2, int distance, int ID) {
+        this.type = type;
+        this.city1 = city1;
+        this.city2 = city2;
+        this.distance = distance;
+        this.ID = ID;
+    }
+
+    /**
+     * Parses one line of a changes file.
+     *
+     * @param line the line
+     * @return the change
+     * @throws IOException if the line is malformed
+     */
+    public static RoadChange parse(String line) throws IOException {
+        String[] fields = line.split("\t");
+        try {
+            switch (fields[0]) {
+                case "add":
+                    if (fields.length == 5) {
+                        return new RoadChange(Type.ADD, fields[1], fields[2], Integer.parseInt(fields[3]), Integer.parseInt(fields[4]));
+                    }
+                    break;
+                case "remove":
+                    if (fields.length == 2) {
+                        return new RoadChange(Type.REMOVE, null, null, 0, Integer.parseInt(fields[1]));
+                    }
+                    break;
+                case "distance":
+                    if (fields.length == 3) {
+                        return new RoadChange(Type.CHANGE_DISTANCE, null, null, Integer.parseInt(fields[2]), Integer.parseInt(fields[1]));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed road change: " + line, e);
+        }
+        throw new IOException("Malformed road change: " + line);
+    }
+
+    /**
+     * Returns the kind of change.
+     *
+     * @return the type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the first city of an added road.
+     *
+     * @return the first city, or null for other changes
+     */
+    public String getCity1() {
+        return city1;
+    }
+
+    /**
+     * Returns the second city of an added road.
+     *
+     * @return the second city, or null for other changes
+     */
+    public String getCity2() {
+        return city2;
+    }
+
+    /**
+     * Returns the distance of an added road or the new distance of a changed one.
+     *
+     * @return the distance
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * Returns the ID of the road that changes.
+     *
+     * @return the ID
+     */
+    public int getID() {
+        return ID;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case ADD:
+                return "add\t" + city1 + "\t" + city2 + "\t" + distance + "\t" + ID;
+            case REMOVE:
+                return "remove\t" + ID;
+            default:
+                return "distance\t" + ID + "\t" + distance;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * The RoadChangeListener interface is implemented by everything that keeps results of a DynamicRoadMap up to date.
+ * The map has already changed when a listener is called.
+ */
+public interface RoadChangeListener {
+    /**
+     * Called after a road was added.
+     *
+     * @param slot the slot of the new road
+     */
+    void roadAdded(int slot);
+
+    /**
+     * Called after a road was removed. The slot keeps the cities and distance of the road.
+     *
+     * @param slot the slot of the removed road
+     */
+    void roadRemoved(int slot);
+
+    /**
+     * Called after the distance of a road changed.
+     *
+     * @param slot        the slot of the road
+     * @param oldDistance the distance before the change
+     */
+    void distanceChanged(int slot, int oldDistance);
+}
@@ -0,0 +1,26 @@
+/**
+ * The RoadInput interface is implemented by everything MapAnalyzer can read a road map from: the starting and
+ * destination cities of the query and the roads themselves.
+ */
+public interface RoadInput {
+    /**
+     * Returns the starting city of the query.
+     *
+     * @return the starting city
+     */
+    String getStartingCity();
+
+    /**
+     * Returns the destination city of the query.
+     *
+     * @return the destination city
+     */
+    String getDestinationCity();
+
+    /**
+     * Returns the roads of the map.
+     *
+     * @return the road table
+     */
+    RoadTable getRoads();
+}
@@ -0,0 +1,332 @@
+import java.util.Arrays;
+
+/**
+ * The RoadTable class stores roads column by column: the two city IDs, the distance and the road ID each live in
+ * their own int array. City IDs refer to a shared CityDictionary, and names are only looked up for output.
+ */
+public class RoadTable {
+    private final CityDictionary cities;
+    private int[] city1;
+    private int[] city2;
+    private int[] distance;
+    private int[] ID;
+    private int size = 0;
+    private RoadAdjacency adjacency;
+    private int[] sortedOrder;
+    private ConnectedComponents components;
+    // Bumped on every change to the roads, so derived data can tell it is stale
+    private int version = 0;
+    // Set once the table is shared between threads, after which no road can be added
+    private volatile boolean frozen = false;
+    // The indexes are built under separate locks, so threads building different indexes do not wait for each other
+    private final Object adjacencyLock = new Object();
+    private final Object sortedOrderLock = new Object();
+    private final Object componentsLock = new Object();
+
+    /**
+     * Constructs an empty road table.
+     *
+     * @param cities the dictionary the city IDs refer to
+     */
+    public RoadTable(CityDictionary cities) {
+        this(cities, 16);
+    }
+
+    /**
+     * Constructs an empty road table with room for the given number of roads.
+     *
+     * @param cities   the dictionary the city IDs refer to
+     * @param capacity the initial number of roads
+     */
+    public RoadTable(CityDictionary cities, int capacity) {
+        this.cities = cities;
+        capacity = Math.max(capacity, 1);
+        city1 = new int[capacity];
+        city2 = new int[capacity];
+        distance = new int[capacity];
+        ID = new int[capacity];
+    }
+
+    /**
+     * Constructs a road table that takes ownership of the given columns.
+     *
+     * @param cities   the dictionary the city IDs refer to
+     * @param city1    the ID of the first city of every road
+     * @param city2    the ID of the second city of every road
+     * @param distance the distance of every road
+     * @param ID       the unique identifier of every road
+     */
+    public RoadTable(CityDictionary cities, int[] city1, int[] city2, int[] distance, int[] ID) {
+        this.cities = cities;
+        this.city1 = city1;
+        this.city2 = city2;
+        this.distance = distance;
+        this.ID = ID;
+        this.size = city1.length;
+    }
+
+    /**
+     * Appends a road to the table.
+     *
+     * @param city1    the ID of the first city
+     * @param city2    the ID of the second city
+     * @param distance the distance of the road
+     * @param ID       the unique identifier of the road
+     * @throws IllegalStateException if the table is frozen
+     */
+    public void add(int city1, int city2, int distance, int ID) {
+        if (frozen) {
+            throw new IllegalStateException("Roads cannot be added to a frozen road table");
+        }
+        if (size == this.city1.length) {
+            int capacity = size + (size >> 1) + 1;
+            this.city1 = Arrays.copyOf(this.city1, capacity);
+            this.city2 = Arrays.copyOf(this.city2, capacity);
+            this.distance = Arrays.copyOf(this.distance, capacity);
+            this.ID = Arrays.copyOf(this.ID, capacity);
+        }
+        this.city1[size] = city1;
+        this.city2[size] = city2;
+        this.distance[size] = distance;
+        this.ID[size] = ID;
+        size++;
+        version++;
+        adjacency = null;
+        sortedOrder = null;
+        components = null;
+    }
+
+    /**
+     * Freezes the table: no road can be added afterwards, so the table and the indexes built from it can be read by
+     * any number of threads at once.
+     *
+     * @return this table
+     */
+    public RoadTable freeze() {
+        frozen = true;
+        return this;
+    }
+
+    /**
+     * Returns whether the table is frozen.
+     *
+     * @return true if no road can be added to the table
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Returns the version of the table, which changes every time the roads change.
+     *
+     * @return the version of the table
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the number of roads in the table.
+     *
+     * @return the number of roads
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the columns and indexes of the table live outside the Java heap. Calculators then keep their
+     * working arrays off the heap too.
+     *
+     * @return true if the table is stored off the heap
+     */
+    public boolean isOffHeap() {
+        return false;
+    }
+
+    /**
+     * Returns the dictionary the city IDs refer to.
+     *
+     * @return the city dictionary
+     */
+    public CityDictionary getCities() {
+        return cities;
+    }
+
+    /**
+     * Returns the ID of the first city of the road at the given row.
+     *
+     * @param road the row of the road
+     * @return the ID of the first city
+     */
+    public int getCity1(int road) {
+        return city1[road];
+    }
+
+    /**
+     * Returns the ID of the second city of the road at the given row.
+     *
+     * @param road the row of the road
+     * @return the ID of the second city
+     */
+    public int getCity2(int road) {
+        return city2[road];
+    }
+
+    /**
+     * Returns the distance of the road at the given row.
+     *
+     * @param road the row of the road
+     * @return the distance of the road
+     */
+    public int getDistance(int road) {
+        return distance[road];
+    }
+
+    /**
+     * Returns the unique identifier of the road at the given row.
+     *
+     * @param road the row of the road
+     * @return the unique identifier of the road
+     */
+    public int getID(int road) {
+        return ID[road];
+    }
+
+    /**
+     * Returns the road at the given row in the tab-separated input format, without a line break.
+     *
+     * @param road the row of the road
+     * @return the road as a line of text
+     */
+    public String toLine(int road) {
+        return cities.getName(getCity1(road)) + "\t" + cities.getName(getCity2(road)) + "\t" + getDistance(road) + "\t" + getID(road);
+    }
+
+    /**
+     * Returns a new table holding the given rows of this one, in the given order. Both tables share the same
+     * city dictionary.
+     *
+     * @param roads the rows to copy
+     * @param count the number of rows to copy from the start of the array
+     * @return the new road table
+     */
+    public RoadTable select(int[] roads, int count) {
+        RoadTable table = new RoadTable(cities, count);
+        for (int i = 0; i < count; i++) {
+            int road = roads[i];
+            table.add(getCity1(road), getCity2(road), getDistance(road), getID(road));
+        }
+        return table;
+    }
+
+    /**
+     * Returns the adjacency index of the table. It is built on first use and kept until a road is added.
+     *
+     * @return the adjacency index
+     */
+    public RoadAdjacency getAdjacency() {
+        synchronized (adjacencyLock) {
+            if (adjacency == null) {
+                adjacency = new RoadAdjacency(this);
+            }
+            return adjacency;
+        }
+    }
+
+    /**
+     * Returns the connected components of the table. They are labelled on first use and kept until a road is added.
+     *
+     * @return the connected components
+     */
+    public ConnectedComponents getComponents() {
+        synchronized (componentsLock) {
+            if (components == null) {
+                components = new ConnectedComponents(this);
+            }
+            return components;
+        }
+    }
+
+    /**
+     * Returns the rows of the table ordered by distance and then by ID. The order is computed on first use and
+     * kept until a road is added, so the returned array must not be modified.
+     *
+     * @return the rows in (distance, ID) order
+     */
+    public int[] getSortedOrder() {
+        synchronized (sortedOrderLock) {
+            if (sortedOrder == null) {
+                sortedOrder = sortedOrder();
+            }
+            return sortedOrder;
+        }
+    }
+
+    /**
+     * Returns the row of the road at the given rank in (distance, ID) order.
+     *
+     * @param rank the rank of the road, from 0 for the shortest
+     * @return the row of the road
+     */
+    public int getSortedRoad(int rank) {
+        return getSortedOrder()[rank];
+    }
+
+    /**
+     * Replaces the cached indexes with ones that were computed earlier, for example read from a snapshot.
+     *
+     * @param adjacency   the adjacency index of this table
+     * @param sortedOrder the rows in (distance, ID) order
+     */
+    void setIndexes(RoadAdjacency adjacency, int[] sortedOrder) {
+        synchronized (adjacencyLock) {
+            this.adjacency = adjacency;
+        }
+        synchronized (sortedOrderLock) {
+            this.sortedOrder = sortedOrder;
+        }
+    }
+
+    /**
+     * Returns the rows of the table ordered by distance and then by ID, without changing the table. The rows are
+     * sorted with a stable radix sort, so the cost is linear in the number of roads.
+     *
+     * @return the rows in (distance, ID) order
+     */
+    public int[] sortedOrder() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        // Least significant key first: ID, then distance
+        order = radixSort(order, ID);
+        return radixSort(order, distance);
+    }
+
+    private int[] radixSort(int[] order, int[] key) {
+        int[] buffer = new int[size];
+        int[] count = new int[(1 << 16) + 1];
+        for (int shift = 0; shift < 32; shift += 16) {
+            Arrays.fill(count, 0);
+            for (int i = 0; i < size; i++) {
+                count[digit(key[order[i]], shift) + 1]++;
+            }
+            for (int d = 0; d < 1 << 16; d++) {
+                count[d + 1] += count[d];
+            }
+            for (int i = 0; i < size; i++) {
+                buffer[count[digit(key[order[i]], shift)]++] = order[i];
+            }
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+
+    private static int digit(int value, int shift) {
+        // Flip the sign bit so negative values sort before positive ones
+        return ((value ^ Integer.MIN_VALUE) >>> shift) & 0xFFFF;
+    }
+}
@@ -0,0 +1,57 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The RunEvent class is the JFR event recorded when a run has written its output, with the time spent in every
+ * phase and the counters summed over the run.
+ */
+@Name("roadmapanalyzer.Run")
+@Label("Run")
+@Category("Road Map Analyzer")
+@Description("Phase times and counters of a whole run")
+@StackTrace(false)
+public class RunEvent extends Event {
+    @Label("Output File")
+    String outputFile;
+
+    @Label("Parse Time")
+    @Timespan
+    long parseTime;
+
+    @Label("Fastest Route Time")
+    @Timespan
+    long fastestRouteTime;
+
+    @Label("Barely Connected Map Time")
+    @Timespan
+    long barelyConnectedMapTime;
+
+    @Label("Output Time")
+    @Timespan
+    long outputTime;
+
+    @Label("Roads Scanned")
+    long roadsScanned;
+
+    @Label("Heap Pushes")
+    long heapPushes;
+
+    @Label("Heap Polls")
+    long heapPolls;
+
+    @Label("Relaxations")
+    long relaxations;
+
+    @Label("Union-Find Operations")
+    long unionFindOperations;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytesWritten;
+}
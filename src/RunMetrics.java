@@ -0,0 +1,219 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The RunMetrics class times the phases of a run (parsing, the fastest route search, the barely connected map and
+ * writing the output) and counts the work done in them: roads scanned, heap pushes and polls, relaxations, union-find
+ * operations and bytes written.
+ * <p>
+ * Every phase is recorded as a {@link PhaseEvent} and every run as a {@link RunEvent} when a flight recording enables
+ * them. With the system property "mapanalyzer.metrics" set to true, the totals are also written as JSON next to the
+ * output file, in a file with ".metrics.json" appended to its name. When neither is on, starting a phase returns a
+ * timer that does nothing, and the calculators only count in local variables.
+ */
+public final class RunMetrics {
+    /**
+     * The timed phases of a run.
+     */
+    public enum Phase {
+        PARSE("parse"), FASTEST_ROUTE("fastestRoute"), BARELY_CONNECTED_MAP("barelyConnectedMap"), OUTPUT("output");
+
+        private final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * The counted kinds of work.
+     */
+    public enum Counter {
+        ROADS_SCANNED("roadsScanned"), HEAP_PUSHES("heapPushes"), HEAP_POLLS("heapPolls"), RELAXATIONS("relaxations"),
+        UNION_FIND_OPERATIONS("unionFindOperations"), BYTES_WRITTEN("bytesWritten");
+
+        private final String key;
+
+        Counter(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * A phase being timed. Counts added to it are summed into the run totals when it stops.
+     */
+    public static final class Timer {
+        // Returned while metrics are off, ignores everything
+        private static final Timer DISABLED = new Timer(null, null);
+
+        private final Phase phase;
+        private final PhaseEvent event;
+        private final long start;
+        private final long[] counts;
+
+        private Timer(Phase phase, PhaseEvent event) {
+            this.phase = phase;
+            this.event = event;
+            this.counts = phase == null ? null : new long[Counter.values().length];
+            if (event != null) {
+                event.begin();
+            }
+            this.start = phase == null ? 0 : System.nanoTime();
+        }
+
+        /**
+         * Adds to a counter of the phase.
+         *
+         * @param counter the counter
+         * @param amount  the amount to add
+         */
+        public void add(Counter counter, long amount) {
+            if (counts != null) {
+                counts[counter.ordinal()] += amount;
+            }
+        }
+
+        /**
+         * Stops the phase, adds its time and counts to the run totals and records its event.
+         */
+        public void stop() {
+            if (phase == null) {
+                return;
+            }
+            PHASE_NANOS[phase.ordinal()].add(System.nanoTime() - start);
+            PHASE_COUNTS[phase.ordinal()].increment();
+            for (Counter counter : Counter.values()) {
+                if (counts[counter.ordinal()] != 0) {
+                    COUNTERS[counter.ordinal()].add(counts[counter.ordinal()]);
+                }
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = phase.key;
+                event.roadsScanned = counts[Counter.ROADS_SCANNED.ordinal()];
+                event.heapPushes = counts[Counter.HEAP_PUSHES.ordinal()];
+                event.heapPolls = counts[Counter.HEAP_POLLS.ordinal()];
+                event.relaxations = counts[Counter.RELAXATIONS.ordinal()];
+                event.unionFindOperations = counts[Counter.UNION_FIND_OPERATIONS.ordinal()];
+                event.commit();
+            }
+        }
+    }
+
+    private static final boolean DUMP_ENABLED = Boolean.getBoolean("mapanalyzer.metrics");
+    private static final LongAdder[] PHASE_NANOS = adders(Phase.values().length);
+    private static final LongAdder[] PHASE_COUNTS = adders(Phase.values().length);
+    private static final LongAdder[] COUNTERS = adders(Counter.values().length);
+
+    private RunMetrics() {
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @param phase the phase
+     * @return the timer of the phase, which does nothing if neither the metrics dump nor the JFR event is enabled
+     */
+    public static Timer start(Phase phase) {
+        PhaseEvent event = new PhaseEvent();
+        if (!DUMP_ENABLED && !event.isEnabled()) {
+            return Timer.DISABLED;
+        }
+        return new Timer(phase, event);
+    }
+
+    /**
+     * Returns the total time spent in a phase so far.
+     *
+     * @param phase the phase
+     * @return the total time in nanoseconds
+     */
+    public static long getNanos(Phase phase) {
+        return PHASE_NANOS[phase.ordinal()].sum();
+    }
+
+    /**
+     * Returns the total of a counter so far.
+     *
+     * @param counter the counter
+     * @return the total
+     */
+    public static long getCount(Counter counter) {
+        return COUNTERS[counter.ordinal()].sum();
+    }
+
+    /**
+     * Ends a run whose output was written to the given file: counts the bytes of the file, records the run event and,
+     * if enabled, writes the metrics dump next to the file.
+     *
+     * @param outputFileName path to the output file, which must be closed
+     * @throws IOException if the dump cannot be written
+     */
+    public static void finish(String outputFileName) throws IOException {
+        RunEvent event = new RunEvent();
+        if (!DUMP_ENABLED && !event.isEnabled()) {
+            return;
+        }
+        Path output = Paths.get(outputFileName);
+        if (Files.exists(output)) {
+            COUNTERS[Counter.BYTES_WRITTEN.ordinal()].add(Files.size(output));
+        }
+        if (event.shouldCommit()) {
+            event.outputFile = outputFileName;
+            event.parseTime = getNanos(Phase.PARSE);
+            event.fastestRouteTime = getNanos(Phase.FASTEST_ROUTE);
+            event.barelyConnectedMapTime = getNanos(Phase.BARELY_CONNECTED_MAP);
+            event.outputTime = getNanos(Phase.OUTPUT);
+            event.roadsScanned = getCount(Counter.ROADS_SCANNED);
+            event.heapPushes = getCount(Counter.HEAP_PUSHES);
+            event.heapPolls = getCount(Counter.HEAP_POLLS);
+            event.relaxations = getCount(Counter.RELAXATIONS);
+            event.unionFindOperations = getCount(Counter.UNION_FIND_OPERATIONS);
+            event.bytesWritten = getCount(Counter.BYTES_WRITTEN);
+            event.commit();
+        }
+        if (DUMP_ENABLED) {
+            try (Writer writer = Files.newBufferedWriter(Paths.get(outputFileName + ".metrics.json"), StandardCharsets.UTF_8)) {
+                writer.write(toJson());
+            }
+        }
+    }
+
+    /**
+     * Returns the totals as a JSON object, for example
+     * {"phases":{"parse":{"count":1,"nanos":1200},...},"counters":{"roadsScanned":48,...}}.
+     *
+     * @return the JSON text
+     */
+    public static String toJson() {
+        StringBuilder json = new StringBuilder("{\"phases\":{");
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) {
+                json.append(',');
+            }
+            json.append('"').append(phase.key).append("\":{\"count\":").append(PHASE_COUNTS[phase.ordinal()].sum())
+                    .append(",\"nanos\":").append(getNanos(phase)).append('}');
+        }
+        json.append("},\"counters\":{");
+        for (Counter counter : Counter.values()) {
+            if (counter.ordinal() > 0) {
+                json.append(',');
+            }
+            json.append('"').append(counter.key).append("\":").append(getCount(counter));
+        }
+        return json.append("}}\n").toString();
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
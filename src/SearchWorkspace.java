@@ -0,0 +1,136 @@
+import java.util.Arrays;
+
+/**
+ * The SearchWorkspace class holds the working arrays of the route searches of one thread: the heap, the distance and
+ * the row of the last road to every settled city, and a stamp per city. Every search takes the next stamp, and a city
+ * counts as settled only if it carries the stamp of the current search, so the arrays are never cleared between
+ * searches and a search costs only the cities it touches. The arrays grow to the largest map the thread has searched
+ * and are kept for the life of the thread.
+ */
+public final class SearchWorkspace {
+    private static final ThreadLocal<SearchWorkspace> WORKSPACES = ThreadLocal.withInitial(SearchWorkspace::new);
+
+    private IndexedRoadHeap heap = new IndexedRoadHeap(0);
+    private int[] settled = new int[0];
+    private int[] distances = new int[0];
+    private int[] predecessorRoads = new int[0];
+    private int stamp = 0;
+
+    private SearchWorkspace() {
+    }
+
+    /**
+     * Returns the workspace of the current thread, ready for a new search over the given number of cities. Anything
+     * a previous search on the thread left in it is forgotten.
+     *
+     * @param cityCount the number of cities of the map to be searched
+     * @return the workspace of the current thread
+     */
+    public static SearchWorkspace begin(int cityCount) {
+        SearchWorkspace workspace = WORKSPACES.get();
+        workspace.reset(cityCount);
+        return workspace;
+    }
+
+    private void reset(int cityCount) {
+        if (settled.length < cityCount) {
+            int capacity = Math.max(cityCount, settled.length + (settled.length >> 1));
+            heap = new IndexedRoadHeap(capacity);
+            settled = new int[capacity];
+            distances = new int[capacity];
+            predecessorRoads = new int[capacity];
+            stamp = 0;
+        } else {
+            heap.clear();
+        }
+        // Stamps only wrap around after billions of searches, and then every stamp is cleared once
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(settled, 0);
+            stamp = 0;
+        }
+        stamp++;
+    }
+
+    /**
+     * Returns the heap of the search, empty when the search begins.
+     *
+     * @return the heap
+     */
+    public IndexedRoadHeap getHeap() {
+        return heap;
+    }
+
+    /**
+     * Returns whether a city has been settled by the current search.
+     *
+     * @param city the city ID
+     * @return true if the city is settled
+     */
+    public boolean isSettled(int city) {
+        return settled[city] == stamp;
+    }
+
+    /**
+     * Settles a city at its final distance.
+     *
+     * @param city     the city ID
+     * @param distance the distance of the fastest route to the city
+     */
+    public void settle(int city, int distance) {
+        settled[city] = stamp;
+        distances[city] = distance;
+    }
+
+    /**
+     * Returns the distance of a settled city.
+     *
+     * @param city the city ID
+     * @return the distance, or ShortestPathTreeCache.UNREACHABLE if the city is not settled
+     */
+    public int getDistance(int city) {
+        return settled[city] == stamp ? distances[city] : ShortestPathTreeCache.UNREACHABLE;
+    }
+
+    /**
+     * Records the row of the road that last reached a city.
+     *
+     * @param city the city ID
+     * @param road the row of the road, or -1 for the starting city
+     */
+    public void setPredecessorRoad(int city, int road) {
+        predecessorRoads[city] = road;
+    }
+
+    /**
+     * Returns the row of the last road to every city. Only the entries of settled cities belong to the current
+     * search, and the array must not be modified.
+     *
+     * @return the row of the last road to every city
+     */
+    int[] getPredecessorRoads() {
+        return predecessorRoads;
+    }
+
+    /**
+     * Copies the results of a search over the whole map into a tree that no longer depends on the workspace.
+     *
+     * @param source    the starting city ID
+     * @param version   the version of the road table the search ran on
+     * @param cityCount the number of cities of the map
+     * @return the shortest-path tree
+     */
+    public ShortestPathTreeCache.Tree toTree(int source, int version, int cityCount) {
+        int[] treeDistances = new int[cityCount];
+        int[] treePredecessorRoads = new int[cityCount];
+        for (int city = 0; city < cityCount; city++) {
+            if (settled[city] == stamp) {
+                treeDistances[city] = distances[city];
+                treePredecessorRoads[city] = predecessorRoads[city];
+            } else {
+                treeDistances[city] = ShortestPathTreeCache.UNREACHABLE;
+                treePredecessorRoads[city] = -1;
+            }
+        }
+        return new ShortestPathTreeCache.Tree(source, version, treeDistances, treePredecessorRoads);
+    }
+}
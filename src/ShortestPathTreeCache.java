@@ -0,0 +1,242 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The ShortestPathTreeCache class keeps the shortest-path trees of recently used starting cities, so repeated
+ * queries from the same city only have to follow the predecessor roads to their destination. Every tree is stored
+ * as two int arrays, the distance and the row of the last road to every city, and the least recently used trees are
+ * evicted when the cache grows past its memory budget. All trees are dropped when the roads change.
+ */
+public class ShortestPathTreeCache {
+    /**
+     * Distance stored for cities that cannot be reached.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final RoadTable roads;
+    private final long maxBytes;
+    // Access-ordered, so iteration starts at the least recently used tree
+    private final LinkedHashMap<Integer, Tree> trees = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes = 0;
+    private int version;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * The shortest-path tree of one starting city.
+     */
+    public static final class Tree {
+        private final int source;
+        private final int version;
+        private final int[] distances;
+        private final int[] predecessorRoads;
+
+        /**
+         * Constructs a tree from complete search results.
+         *
+         * @param source           the starting city ID
+         * @param version          the version of the road table the search ran on
+         * @param distances        the distance to every city, UNREACHABLE for cities that cannot be reached
+         * @param predecessorRoads the row of the last road to every city, -1 for the starting city and unreachable cities
+         */
+        Tree(int source, int version, int[] distances, int[] predecessorRoads) {
+            this.source = source;
+            this.version = version;
+            this.distances = distances;
+            this.predecessorRoads = predecessorRoads;
+        }
+
+        /**
+         * Returns the starting city ID.
+         *
+         * @return the starting city ID
+         */
+        public int getSource() {
+            return source;
+        }
+
+        /**
+         * Returns the distance to a city.
+         *
+         * @param city the city ID
+         * @return the distance, or UNREACHABLE if the city cannot be reached
+         */
+        public int getDistance(int city) {
+            return distances[city];
+        }
+
+        /**
+         * Returns the roads of the fastest road from the starting city to the given city.
+         *
+         * @param roads the road table the tree was built for
+         * @param city  the destination city ID
+         * @return the rows of the roads, in order from the starting city
+         */
+        public int[] getRoute(RoadTable roads, int city) {
+            return getRoute(roads, source, predecessorRoads, city);
+        }
+
+        /**
+         * Returns the roads of the fastest road from a starting city to the given city, walking back along the last
+         * road to every city of a search.
+         *
+         * @param roads            the road table the search ran on
+         * @param source           the starting city ID
+         * @param predecessorRoads the row of the last road to every city on the way
+         * @param city             the destination city ID
+         * @return the rows of the roads, in order from the starting city
+         */
+        static int[] getRoute(RoadTable roads, int source, int[] predecessorRoads, int city) {
+            int hops = 0;
+            for (int c = city; c != source; hops++) {
+                int road = predecessorRoads[c];
+                c = roads.getCity1(road) == c ? roads.getCity2(road) : roads.getCity1(road);
+            }
+            int[] route = new int[hops];
+            for (int c = city; c != source; ) {
+                int road = predecessorRoads[c];
+                route[--hops] = road;
+                c = roads.getCity1(road) == c ? roads.getCity2(road) : roads.getCity1(road);
+            }
+            return route;
+        }
+
+        int[] getDistances() {
+            return distances;
+        }
+
+        int[] getPredecessorRoads() {
+            return predecessorRoads;
+        }
+
+        long getMemoryBytes() {
+            // Two int arrays plus their headers and the object itself
+            return 8L * distances.length + 64;
+        }
+    }
+
+    /**
+     * Constructs an empty cache for the given roads.
+     *
+     * @param roads    the road table
+     * @param maxBytes the memory budget of the cached trees
+     */
+    public ShortestPathTreeCache(RoadTable roads, long maxBytes) {
+        this.roads = roads;
+        this.maxBytes = maxBytes;
+        this.version = roads.getVersion();
+    }
+
+    /**
+     * Returns the cached tree of a starting city and marks it as the most recently used one.
+     *
+     * @param source the starting city ID
+     * @return the tree, or null if it is not cached
+     */
+    public synchronized Tree get(int source) {
+        invalidateIfStale();
+        Tree tree = trees.get(source);
+        if (tree == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return tree;
+    }
+
+    /**
+     * Adds a tree to the cache, evicting the least recently used trees until it fits. A tree larger than the whole
+     * budget, or one found before the roads last changed, is not cached.
+     *
+     * @param tree the tree to add
+     */
+    public synchronized void put(Tree tree) {
+        invalidateIfStale();
+        if (tree.version != version || tree.getMemoryBytes() > maxBytes) {
+            return;
+        }
+        Tree previous = trees.put(tree.getSource(), tree);
+        if (previous != null) {
+            usedBytes -= previous.getMemoryBytes();
+        }
+        usedBytes += tree.getMemoryBytes();
+        Iterator<Map.Entry<Integer, Tree>> eldest = trees.entrySet().iterator();
+        while (usedBytes > maxBytes) {
+            usedBytes -= eldest.next().getValue().getMemoryBytes();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Drops every cached tree.
+     */
+    public synchronized void clear() {
+        trees.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * Returns the road table the trees are built for.
+     *
+     * @return the road table
+     */
+    public RoadTable getRoads() {
+        return roads;
+    }
+
+    /**
+     * Returns the number of lookups that found a cached tree.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a cached tree.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of trees evicted to stay within the memory budget.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the memory used by the cached trees.
+     *
+     * @return the memory in bytes
+     */
+    public synchronized long getMemoryBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Returns a one-line summary of the counters.
+     *
+     * @return the summary
+     */
+    public synchronized String getStatistics() {
+        return "Shortest-path tree cache: " + trees.size() + " trees, " + usedBytes / 1024 + " KB of " + maxBytes / 1024
+                + " KB, " + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+    }
+
+    private void invalidateIfStale() {
+        if (version != roads.getVersion()) {
+            clear();
+            version = roads.getVersion();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * The StretchAnalysis class measures how much longer routes get on the barely connected map than on the original map,
+ * across the whole network rather than for one city pair. For every source city, one search over the original roads and
+ * one walk over the barely connected map give the distance to every other city on both, and the stretch of every pair
+ * is added to a {@link StretchHistogram}. Sources are searched in parallel on a fork-join pool, every worker thread
+ * reuses its own search arrays, and the histograms of the workers are merged at the end, so memory does not grow with
+ * the number of pairs.
+ * <p>
+ * With every city as a source, every pair is counted once. With a sample of sources, every source is paired with all
+ * other cities.
+ */
+public class StretchAnalysis {
+    // Number of pairs with the largest stretch that are reported
+    private static final int WORST_PAIRS = 10;
+    // Seed of the sample of source cities, so the same map always gives the same report
+    private static final long SAMPLE_SEED = 42;
+
+    private final RoadTable roads;
+    private final RoadTable barelyConnectedMap;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Workspace> workspaces;
+
+    /**
+     * The search arrays of one worker thread. A stamp per source marks the cities settled by the current search, so the
+     * arrays are never cleared between sources.
+     */
+    private static final class Workspace {
+        final IndexedRoadHeap heap;
+        final int[] settled;
+        final int[] visited;
+        final int[] treeDistances;
+        final int[] stack;
+        int stamp = 0;
+
+        Workspace(int cityCount) {
+            heap = new IndexedRoadHeap(cityCount);
+            settled = new int[cityCount];
+            visited = new int[cityCount];
+            treeDistances = new int[cityCount];
+            stack = new int[cityCount];
+        }
+    }
+
+    /**
+     * Constructs a StretchAnalysis of the given roads and finds their barely connected map.
+     *
+     * @param roads the road table, which is frozen
+     * @param pool  the pool the sources are searched on
+     */
+    public StretchAnalysis(RoadTable roads, ForkJoinPool pool) {
+        this.roads = roads.freeze();
+        this.pool = pool;
+        boolean parallel = pool.getParallelism() > 1 && roads.size() >= MapAnalyzer.PARALLEL_SPANNING_TREE_THRESHOLD;
+        this.barelyConnectedMap = new BarelyConnectedMapCalculate(roads, parallel).getBarelyConnectedMap();
+        int cityCount = roads.getCities().size();
+        this.workspaces = ThreadLocal.withInitial(() -> new Workspace(cityCount));
+        // Build the shared indexes before the workers start
+        roads.getAdjacency();
+        barelyConnectedMap.getAdjacency();
+    }
+
+    /**
+     * Measures the stretch of the pairs of every source city, or of a sample of source cities.
+     *
+     * @param sampleCount the number of source cities to sample, or 0 or at least the number of cities for every city
+     * @return the histogram of the stretches
+     */
+    public StretchHistogram analyse(int sampleCount) {
+        int cityCount = roads.getCities().size();
+        boolean everyCity = sampleCount <= 0 || sampleCount >= cityCount;
+        int[] sources = everyCity ? IntStream.range(0, cityCount).toArray() : sample(cityCount, sampleCount);
+        return pool.submit(() -> IntStream.of(sources).parallel().collect(
+                () -> new StretchHistogram(WORST_PAIRS),
+                (histogram, source) -> analyse(source, everyCity, histogram),
+                StretchHistogram::merge)).join();
+    }
+
+    /**
+     * Reports a histogram as message lines: the number of pairs, the mean, a few percentiles, the largest stretch and
+     * the pairs with the largest stretch.
+     *
+     * @param histogram the histogram of the stretches
+     * @param sink      the sink to report to
+     * @throws IOException if an I/O error occurs
+     */
+    public void report(StretchHistogram histogram, ResultSink sink) throws IOException {
+        CityDictionary cities = roads.getCities();
+        sink.message("Stretch of Fastest Routes on Barely Connected Map over " + histogram.getCount() + " City Pairs:");
+        sink.message("Mean: " + format(histogram.getMean()));
+        String[] percentiles = {"50", "90", "99", "99.9"};
+        for (String percentile : percentiles) {
+            sink.message("Percentile " + percentile + ": " + format(histogram.getPercentile(Double.parseDouble(percentile) / 100)));
+        }
+        sink.message("Maximum: " + format(histogram.getMax()));
+        if (histogram.getUnboundedCount() > 0) {
+            sink.message("Pairs 0 KM Apart on Original Map Only: " + histogram.getUnboundedCount());
+        }
+        if (histogram.getUnreachableCount() > 0) {
+            sink.message("Unconnected Pairs: " + histogram.getUnreachableCount());
+        }
+        sink.message("Pairs with Largest Stretch:");
+        for (int i = 0; i < histogram.getWorstCount(); i++) {
+            int treeDistance = histogram.getWorstTreeDistance(i);
+            int distance = histogram.getWorstDistance(i);
+            sink.message(cities.getName(histogram.getWorstSource(i)) + "\t" + cities.getName(histogram.getWorstTarget(i))
+                    + "\t" + treeDistance + "\t" + distance + "\t" + format((double) treeDistance / distance));
+        }
+        sink.endAnswer();
+    }
+
+    // Adds the pairs of one source to the histogram, only those with a larger target when every city is a source
+    private void analyse(int source, boolean everyCity, StretchHistogram histogram) {
+        Workspace workspace = workspaces.get();
+        int stamp = ++workspace.stamp;
+        searchOriginal(workspace, source, stamp);
+        walkTree(workspace, source, stamp);
+        int[] settled = workspace.settled;
+        for (int target = everyCity ? source + 1 : 0; target < settled.length; target++) {
+            if (target == source) {
+                continue;
+            }
+            if (settled[target] != stamp) {
+                histogram.addUnreachable();
+            } else {
+                // Cities connected on the original map are connected on the barely connected map too
+                histogram.add(source, target, workspace.treeDistances[target], workspace.heap.getDistance(target));
+            }
+        }
+    }
+
+    // Dijkstra's algorithm over the whole original map; the heap keeps the distance of every settled city
+    private void searchOriginal(Workspace workspace, int source, int stamp) {
+        RoadAdjacency adjacency = roads.getAdjacency();
+        IndexedRoadHeap heap = workspace.heap;
+        int[] settled = workspace.settled;
+        heap.push(source, 0, 0);
+        while (!heap.isEmpty()) {
+            int city = heap.poll();
+            settled[city] = stamp;
+            int distance = heap.getDistance(city);
+            for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                int neighbour = adjacency.getNeighbour(slot);
+                if (settled[neighbour] == stamp) {
+                    continue;
+                }
+                int road = adjacency.getRoadIndex(slot);
+                int newDistance = distance + roads.getDistance(road);
+                if (!heap.contains(neighbour) || newDistance < heap.getDistance(neighbour)) {
+                    heap.push(neighbour, newDistance, roads.getID(road));
+                }
+            }
+        }
+    }
+
+    // Depth-first walk of the barely connected map, where the only route to every city is the fastest one
+    private void walkTree(Workspace workspace, int source, int stamp) {
+        RoadAdjacency adjacency = barelyConnectedMap.getAdjacency();
+        int[] visited = workspace.visited;
+        int[] treeDistances = workspace.treeDistances;
+        int[] stack = workspace.stack;
+        int size = 0;
+        visited[source] = stamp;
+        treeDistances[source] = 0;
+        stack[size++] = source;
+        while (size > 0) {
+            int city = stack[--size];
+            for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                int neighbour = adjacency.getNeighbour(slot);
+                if (visited[neighbour] != stamp) {
+                    visited[neighbour] = stamp;
+                    treeDistances[neighbour] = treeDistances[city] + barelyConnectedMap.getDistance(adjacency.getRoadIndex(slot));
+                    stack[size++] = neighbour;
+                }
+            }
+        }
+    }
+
+    // Picks distinct cities with a partial Fisher-Yates shuffle, returned in ID order
+    private static int[] sample(int cityCount, int sampleCount) {
+        int[] cities = IntStream.range(0, cityCount).toArray();
+        SplittableRandom random = new SplittableRandom(SAMPLE_SEED);
+        for (int i = 0; i < sampleCount; i++) {
+            int j = i + random.nextInt(cityCount - i);
+            int swap = cities[i];
+            cities[i] = cities[j];
+            cities[j] = swap;
+        }
+        int[] sources = Arrays.copyOf(cities, sampleCount);
+        Arrays.sort(sources);
+        return sources;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
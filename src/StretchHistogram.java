@@ -0,0 +1,250 @@
+/**
+ * The StretchHistogram class aggregates the stretch of city pairs, the distance between them on the barely connected
+ * map divided by their distance on the original map, without keeping the pairs. Stretches go into logarithmic buckets
+ * half a percent wide, so memory stays the same however many pairs are added, and percentiles are found to within
+ * that width. The mean and maximum are exact, and the pairs with the largest stretch are kept.
+ * <p>
+ * Histograms filled on different threads are combined with {@link #merge(StretchHistogram)}.
+ */
+public final class StretchHistogram {
+    // Relative width of a bucket
+    private static final double BUCKET_WIDTH = 0.005;
+    private static final double LOG_BASE = Math.log1p(BUCKET_WIDTH);
+    // Bucket 0 holds the pairs whose route on the barely connected map is a fastest route, bucket b > 0 the stretches
+    // from (1 + BUCKET_WIDTH)^(b - 1) up to (1 + BUCKET_WIDTH)^b, and the last bucket everything above
+    private static final int BUCKET_COUNT = 4096;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long count = 0;
+    private double sum = 0;
+    private double max = 0;
+    private long unboundedCount = 0;
+    private long unreachableCount = 0;
+
+    // The pairs with the largest stretch, largest first
+    private final int worstCapacity;
+    private final int[] worstSource;
+    private final int[] worstTarget;
+    private final int[] worstTreeDistance;
+    private final int[] worstDistance;
+    private int worstCount = 0;
+
+    /**
+     * Constructs an empty histogram.
+     *
+     * @param worstCapacity the number of pairs with the largest stretch to keep
+     */
+    public StretchHistogram(int worstCapacity) {
+        this.worstCapacity = worstCapacity;
+        worstSource = new int[worstCapacity];
+        worstTarget = new int[worstCapacity];
+        worstTreeDistance = new int[worstCapacity];
+        worstDistance = new int[worstCapacity];
+    }
+
+    /**
+     * Adds a city pair.
+     *
+     * @param source       the source city ID
+     * @param target       the target city ID
+     * @param treeDistance the distance between the cities on the barely connected map
+     * @param distance     the distance between the cities on the original map
+     */
+    public void add(int source, int target, int treeDistance, int distance) {
+        if (treeDistance == distance) {
+            // The route on the barely connected map is a fastest route, which also covers pairs 0 KM apart
+            count++;
+            sum += 1;
+            max = Math.max(max, 1);
+            counts[0]++;
+            return;
+        }
+        if (distance == 0) {
+            // Joined by roads of distance 0 on the original map only
+            unboundedCount++;
+            return;
+        }
+        double stretch = (double) treeDistance / distance;
+        count++;
+        sum += stretch;
+        max = Math.max(max, stretch);
+        counts[Math.min(BUCKET_COUNT - 1, 1 + (int) (Math.log(stretch) / LOG_BASE))]++;
+        if (worstCapacity > 0 && (worstCount < worstCapacity || isWorse(treeDistance, distance, source, target, worstCount - 1))) {
+            insertWorst(source, target, treeDistance, distance);
+        }
+    }
+
+    /**
+     * Counts a city pair that is not connected.
+     */
+    public void addUnreachable() {
+        unreachableCount++;
+    }
+
+    /**
+     * Adds everything in another histogram to this one.
+     *
+     * @param other the other histogram
+     */
+    public void merge(StretchHistogram other) {
+        for (int b = 0; b < BUCKET_COUNT; b++) {
+            counts[b] += other.counts[b];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+        unboundedCount += other.unboundedCount;
+        unreachableCount += other.unreachableCount;
+        for (int i = 0; i < other.worstCount; i++) {
+            if (worstCount < worstCapacity || isWorse(other.worstTreeDistance[i], other.worstDistance[i],
+                    other.worstSource[i], other.worstTarget[i], worstCount - 1)) {
+                insertWorst(other.worstSource[i], other.worstTarget[i], other.worstTreeDistance[i], other.worstDistance[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of connected pairs with a finite stretch.
+     *
+     * @return the number of pairs
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of connected pairs whose distance is 0 on the original map only, which have no finite stretch.
+     *
+     * @return the number of pairs
+     */
+    public long getUnboundedCount() {
+        return unboundedCount;
+    }
+
+    /**
+     * Returns the number of pairs that are not connected.
+     *
+     * @return the number of pairs
+     */
+    public long getUnreachableCount() {
+        return unreachableCount;
+    }
+
+    /**
+     * Returns the mean stretch.
+     *
+     * @return the mean stretch, or NaN if there are no pairs
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * Returns the largest stretch.
+     *
+     * @return the largest stretch, or 0 if there are no pairs
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the stretch that the given fraction of the pairs do not exceed, rounded up to the end of its bucket.
+     *
+     * @param fraction the fraction of the pairs, from 0 to 1
+     * @return the stretch, or NaN if there are no pairs
+     */
+    public double getPercentile(double fraction) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int b = 0; b < BUCKET_COUNT; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return b == 0 ? 1.0 : Math.min(max, Math.exp(b * LOG_BASE));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the number of pairs with the largest stretch that are kept.
+     *
+     * @return the number of pairs, at most the capacity given to the constructor
+     */
+    public int getWorstCount() {
+        return worstCount;
+    }
+
+    /**
+     * Returns the source city of a pair with one of the largest stretches.
+     *
+     * @param i the rank of the pair, 0 for the largest stretch
+     * @return the source city ID
+     */
+    public int getWorstSource(int i) {
+        return worstSource[i];
+    }
+
+    /**
+     * Returns the target city of a pair with one of the largest stretches.
+     *
+     * @param i the rank of the pair, 0 for the largest stretch
+     * @return the target city ID
+     */
+    public int getWorstTarget(int i) {
+        return worstTarget[i];
+    }
+
+    /**
+     * Returns the distance on the barely connected map of a pair with one of the largest stretches.
+     *
+     * @param i the rank of the pair, 0 for the largest stretch
+     * @return the distance on the barely connected map
+     */
+    public int getWorstTreeDistance(int i) {
+        return worstTreeDistance[i];
+    }
+
+    /**
+     * Returns the distance on the original map of a pair with one of the largest stretches.
+     *
+     * @param i the rank of the pair, 0 for the largest stretch
+     * @return the distance on the original map
+     */
+    public int getWorstDistance(int i) {
+        return worstDistance[i];
+    }
+
+    // Whether a pair has a larger stretch than the kept pair at the given rank, ties broken by the smaller city IDs, so
+    // the kept pairs do not depend on the order the pairs were added in
+    private boolean isWorse(int treeDistance, int distance, int source, int target, int i) {
+        long left = (long) treeDistance * worstDistance[i];
+        long right = (long) worstTreeDistance[i] * distance;
+        if (left != right) {
+            return left > right;
+        }
+        if (source != worstSource[i]) {
+            return source < worstSource[i];
+        }
+        return target < worstTarget[i];
+    }
+
+    private void insertWorst(int source, int target, int treeDistance, int distance) {
+        int i = Math.min(worstCount, worstCapacity - 1);
+        while (i > 0 && isWorse(treeDistance, distance, source, target, i - 1)) {
+            worstSource[i] = worstSource[i - 1];
+            worstTarget[i] = worstTarget[i - 1];
+            worstTreeDistance[i] = worstTreeDistance[i - 1];
+            worstDistance[i] = worstDistance[i - 1];
+            i--;
+        }
+        worstSource[i] = source;
+        worstTarget[i] = target;
+        worstTreeDistance[i] = treeDistance;
+        worstDistance[i] = distance;
+        worstCount = Math.min(worstCount + 1, worstCapacity);
+    }
+}
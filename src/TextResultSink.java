@@ -0,0 +1,167 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+
+/**
+ * The TextResultSink class writes results as the plain text output of MapAnalyzer. Everything goes into one large
+ * direct buffer that is handed to the channel when it is full, city names are encoded once per city, and numbers are
+ * written digit by digit, so a road costs no allocation at all.
+ */
+public class TextResultSink implements ResultSink {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final WritableByteChannel channel;
+    private final Charset charset;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final byte[] digits = new byte[11];
+    private final DecimalFormat decimalFormat;
+    // Encoded names of the cities of the dictionary seen last, by city ID
+    private CityDictionary cities;
+    private byte[][] names = new byte[0][];
+
+    /**
+     * Constructs a TextResultSink writing to the given channel.
+     *
+     * @param channel the channel to write to
+     * @param charset the charset of the text
+     */
+    public TextResultSink(WritableByteChannel channel, Charset charset) {
+        this.channel = channel;
+        this.charset = charset;
+        DecimalFormatSymbols symbols = new DecimalFormatSymbols();
+        symbols.setDecimalSeparator('.');
+        this.decimalFormat = new DecimalFormat("0.00", symbols);
+    }
+
+    @Override
+    public void beginRoute(String title, int totalDistance) throws IOException {
+        write(title);
+        write(" (");
+        write(totalDistance);
+        write(" KM):\n");
+    }
+
+    @Override
+    public void beginRoadList(String title) throws IOException {
+        write(title);
+        write(" is:\n");
+    }
+
+    @Override
+    public void road(CityDictionary cities, int city1, int city2, int distance, int ID) throws IOException {
+        write(name(cities, city1));
+        write((byte) '\t');
+        write(name(cities, city2));
+        write((byte) '\t');
+        write(distance);
+        write((byte) '\t');
+        write(ID);
+        write((byte) '\n');
+    }
+
+    @Override
+    public void analysis(int barelyConnectedMapTotalDistance, int originalTotalDistance, int totalFastestRoadDistance,
+                         int totalFastestRoadDistanceOnBarelyConnectedMap) throws IOException {
+        write("Analysis:\n");
+
+        // Ratio of construction material usage between the barely connected and original maps
+        double ratio1 = 1.0 * barelyConnectedMapTotalDistance / originalTotalDistance;
+        write("Ratio of Construction Material Usage Between Barely Connected and Original Map: " + decimalFormat.format(ratio1) + "\n");
+
+        // Ratio of the fastest route distances between the barely connected and original maps
+        double ratio2 = 1.0 * totalFastestRoadDistanceOnBarelyConnectedMap / totalFastestRoadDistance;
+        write("Ratio of Fastest Route Between Barely Connected and Original Map: " + decimalFormat.format(ratio2));
+    }
+
+    @Override
+    public void message(String text) throws IOException {
+        write(text);
+        write((byte) '\n');
+    }
+
+    @Override
+    public void endAnswer() throws IOException {
+        write((byte) '\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private byte[] name(CityDictionary dictionary, int city) {
+        if (dictionary != cities) {
+            cities = dictionary;
+            names = new byte[dictionary.size()][];
+        }
+        if (city >= names.length) {
+            names = Arrays.copyOf(names, Math.max(city + 1, dictionary.size()));
+        }
+        if (names[city] == null) {
+            names[city] = dictionary.getName(city).getBytes(charset);
+        }
+        return names[city];
+    }
+
+    private void write(String text) throws IOException {
+        write(text.getBytes(charset));
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.remaining()) {
+            flush();
+            if (bytes.length > buffer.capacity()) {
+                ByteBuffer large = ByteBuffer.wrap(bytes);
+                while (large.hasRemaining()) {
+                    channel.write(large);
+                }
+                return;
+            }
+        }
+        buffer.put(bytes);
+    }
+
+    private void write(byte b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put(b);
+    }
+
+    // Writes the decimal digits of the number without creating a String
+    private void write(int number) throws IOException {
+        long value = number;
+        if (value < 0) {
+            write((byte) '-');
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        if (count > buffer.remaining()) {
+            flush();
+        }
+        while (count > 0) {
+            buffer.put(digits[--count]);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.Arrays;
+
+/**
+ * The TreePathIndex class answers path queries on a tree of roads, such as the barely connected map. Every tree is
+ * rooted once and every city stores its depth, its distance from the root and the road to its parent, together with
+ * binary-lifting tables for finding lowest common ancestors. The distance between two cities is then found in
+ * O(log V), and the roads between them in O(log V) plus the number of roads on the path.
+ */
+public class TreePathIndex {
+    private final RoadTable tree;
+    private final int[] depth;
+    private final int[] rootDistance;
+    private final int[] parentRoad;
+    private final int[] component;
+    // ancestors[k][city] is the ancestor 2^k levels above the city, or the root if the tree is not that deep
+    private final int[][] ancestors;
+
+    /**
+     * Constructs the path index of the given roads, which must not contain a cycle. If the roads form several trees,
+     * each one is rooted at its city with the smallest ID.
+     *
+     * @param tree the roads of the tree
+     */
+    public TreePathIndex(RoadTable tree) {
+        this.tree = tree;
+        RoadAdjacency adjacency = tree.getAdjacency();
+        int cityCount = adjacency.getCityCount();
+        depth = new int[cityCount];
+        rootDistance = new int[cityCount];
+        parentRoad = new int[cityCount];
+        component = new int[cityCount];
+        int[] parent = new int[cityCount];
+        Arrays.fill(component, -1);
+
+        // Walk every tree breadth-first from its root
+        int[] queue = new int[cityCount];
+        int maxDepth = 0;
+        for (int root = 0; root < cityCount; root++) {
+            if (component[root] >= 0) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = root;
+            component[root] = root;
+            parent[root] = root;
+            parentRoad[root] = -1;
+            while (head < tail) {
+                int city = queue[head++];
+                for (int slot = adjacency.begin(city); slot < adjacency.end(city); slot++) {
+                    int child = adjacency.getNeighbour(slot);
+                    if (component[child] >= 0) {
+                        continue;
+                    }
+                    int road = adjacency.getRoadIndex(slot);
+                    component[child] = root;
+                    parent[child] = city;
+                    parentRoad[child] = road;
+                    depth[child] = depth[city] + 1;
+                    rootDistance[child] = rootDistance[city] + tree.getDistance(road);
+                    maxDepth = Math.max(maxDepth, depth[child]);
+                    queue[tail++] = child;
+                }
+            }
+        }
+
+        // Build the binary-lifting tables, one level per power of two up to the deepest city
+        int levels = 1;
+        while (levels < 31 && (1 << levels) <= maxDepth) {
+            levels++;
+        }
+        ancestors = new int[levels][];
+        ancestors[0] = parent;
+        for (int k = 1; k < levels; k++) {
+            int[] below = ancestors[k - 1];
+            int[] level = new int[cityCount];
+            for (int city = 0; city < cityCount; city++) {
+                level[city] = below[below[city]];
+            }
+            ancestors[k] = level;
+        }
+    }
+
+    /**
+     * Returns whether the two cities are in the same tree.
+     *
+     * @param a the first city ID
+     * @param b the second city ID
+     * @return true if there is a path between the cities
+     */
+    public boolean isConnected(int a, int b) {
+        return component[a] == component[b];
+    }
+
+    /**
+     * Returns the lowest common ancestor of two cities in the same tree.
+     *
+     * @param a the first city ID
+     * @param b the second city ID
+     * @return the ID of the lowest common ancestor
+     */
+    public int lowestCommonAncestor(int a, int b) {
+        if (depth[a] < depth[b]) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        // Lift the deeper city to the depth of the other one
+        int difference = depth[a] - depth[b];
+        for (int k = 0; difference > 0; k++, difference >>>= 1) {
+            if ((difference & 1) != 0) {
+                a = ancestors[k][a];
+            }
+        }
+        if (a == b) {
+            return a;
+        }
+        // Lift both cities as long as they stay below their common ancestor
+        for (int k = ancestors.length - 1; k >= 0; k--) {
+            if (ancestors[k][a] != ancestors[k][b]) {
+                a = ancestors[k][a];
+                b = ancestors[k][b];
+            }
+        }
+        return ancestors[0][a];
+    }
+
+    /**
+     * Returns the distance of the path between two cities in the same tree.
+     *
+     * @param a the first city ID
+     * @param b the second city ID
+     * @return the distance of the path
+     */
+    public int getDistance(int a, int b) {
+        return rootDistance[a] + rootDistance[b] - 2 * rootDistance[lowestCommonAncestor(a, b)];
+    }
+
+    /**
+     * Returns the roads on the path between two cities in the same tree, in order from the first city to the second.
+     *
+     * @param a the first city ID
+     * @param b the second city ID
+     * @return the rows of the roads in the tree's road table
+     */
+    public int[] getPath(int a, int b) {
+        int ancestor = lowestCommonAncestor(a, b);
+        int up = depth[a] - depth[ancestor];
+        int[] path = new int[up + depth[b] - depth[ancestor]];
+
+        // Roads from the first city up to the ancestor, then from the second city up to it in reverse
+        int i = 0;
+        for (int city = a; city != ancestor; city = ancestors[0][city]) {
+            path[i++] = parentRoad[city];
+        }
+        i = path.length;
+        for (int city = b; city != ancestor; city = ancestors[0][city]) {
+            path[--i] = parentRoad[city];
+        }
+        return path;
+    }
+
+    /**
+     * Returns the roads of the tree.
+     *
+     * @return the road table of the tree
+     */
+    public RoadTable getTree() {
+        return tree;
+    }
+}